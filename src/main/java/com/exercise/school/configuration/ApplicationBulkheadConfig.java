@@ -0,0 +1,61 @@
+package com.exercise.school.configuration;
+
+import com.exercise.school.controller.OperationBulkhead;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * Caps how many operations run at once with an {@link OperationBulkhead}, so that requests over the cap wait in line
+ * instead of timing out in Hikari. On when {@code school.threads.max-concurrent-operations} is set, and sized to the
+ * connection pool when it is set to 0.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "school.threads.max-concurrent-operations")
+public class ApplicationBulkheadConfig {
+	public static final String BULKHEAD_WAITING_METRIC = "school.bulkhead.waiting";
+
+	/**
+	 * @param maxConcurrentOperations the cap, or 0 to use the maximum size of the connection pool
+	 */
+	@Bean
+	public OperationBulkhead operationBulkhead(DataSource dataSource, MeterRegistry meterRegistry,
+											   @Value("${school.threads.max-concurrent-operations}") int maxConcurrentOperations,
+											   @Value("${school.threads.queue-timeout:PT5S}") Duration queueTimeout) {
+		final OperationBulkhead bulkhead = new OperationBulkhead(
+				maxConcurrentOperations > 0 ? maxConcurrentOperations : maximumPoolSize(dataSource), queueTimeout);
+		Gauge.builder(BULKHEAD_WAITING_METRIC, bulkhead, OperationBulkhead::getWaiting)
+				.description("Operations waiting for a slot in the bulkhead")
+				.register(meterRegistry);
+		log.info("Running at most {} operations at once", bulkhead.getMaxConcurrentOperations());
+		return bulkhead;
+	}
+
+	/**
+	 * Hikari only settles the size of its pool when the pool starts, so a connection is taken first to start it.
+	 */
+	private static int maximumPoolSize(DataSource dataSource) {
+		try {
+			if (dataSource.isWrapperFor(HikariDataSource.class)) {
+				final HikariDataSource pool = dataSource.unwrap(HikariDataSource.class);
+				try (Connection ignored = pool.getConnection()) {
+					return pool.getMaximumPoolSize();
+				}
+			}
+		} catch (SQLException e) {
+			throw new IllegalStateException("Could not read the connection pool size", e);
+		}
+		throw new IllegalStateException("Set school.threads.max-concurrent-operations, the connection pool size is unknown");
+	}
+}
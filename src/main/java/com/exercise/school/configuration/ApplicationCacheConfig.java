@@ -0,0 +1,35 @@
+package com.exercise.school.configuration;
+
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * In-process caches for single student and course lookups. Entries are evicted by the repository writes that change
+ * them; evictions made inside a transaction only apply once it commits, so a concurrent read cannot put back the row
+ * as it was before the write. Rows read from a replica are not cached, since a lagging replica could put back a row as
+ * it was before the latest writes.
+ */
+@Configuration
+@EnableCaching
+public class ApplicationCacheConfig {
+	public static final String STUDENTS = "students";
+	public static final String COURSES = "courses";
+	/**
+	 * Condition of the cached lookups that skips missing rows and rows read from a replica.
+	 */
+	public static final String UNLESS_MISSING_OR_FROM_REPLICA = "#result == null || " +
+			"T(com.exercise.school.database.routing.ReadOnlyContext).hasReadFromReplica()";
+
+	@Bean
+	public CacheManager cacheManager(@Value("${school.cache.spec}") String spec) {
+		final CaffeineCacheManager cacheManager = new CaffeineCacheManager(STUDENTS, COURSES);
+		cacheManager.setCaffeineSpec(CaffeineSpec.parse(spec));
+		return new TransactionAwareCacheManagerProxy(cacheManager);
+	}
+}
@@ -0,0 +1,51 @@
+package com.exercise.school.configuration;
+
+import com.exercise.school.controller.AdaptiveConcurrencyLimiter;
+import com.exercise.school.controller.ConcurrencyLimits;
+import com.exercise.school.controller.Traffic;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Opt-in load shedding: reads, enrollments and other writes each run under an {@link AdaptiveConcurrencyLimiter}, and
+ * requests over the limit of their kind are turned away with a {@code 503} straight away.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "school.limits.enabled", havingValue = "true")
+@EnableConfigurationProperties(ConcurrencyLimitProperties.class)
+public class ApplicationConcurrencyLimitsConfig {
+	public static final String LIMIT_METRIC = "school.limits.limit";
+	public static final String IN_FLIGHT_METRIC = "school.limits.in.flight";
+
+	@Bean
+	public ConcurrencyLimits concurrencyLimits(ConcurrencyLimitProperties properties, MeterRegistry meterRegistry) {
+		final Map<Traffic, AdaptiveConcurrencyLimiter> limiters = new EnumMap<>(Traffic.class);
+		for (Traffic traffic : Traffic.values()) {
+			final ConcurrencyLimitProperties.Limit limit = properties.forTraffic(traffic);
+			final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(limit.getInitialLimit(),
+					limit.getMinLimit(), limit.getMaxLimit(), limit.getLatencyTarget(), properties.getBackoffRatio());
+			Gauge.builder(LIMIT_METRIC, limiter, AdaptiveConcurrencyLimiter::getLimit)
+					.description("Operations of this kind allowed to run at once")
+					.tag("traffic", traffic.getTag())
+					.register(meterRegistry);
+			Gauge.builder(IN_FLIGHT_METRIC, limiter, AdaptiveConcurrencyLimiter::getInFlight)
+					.description("Operations of this kind running")
+					.tag("traffic", traffic.getTag())
+					.register(meterRegistry);
+			limiters.put(traffic, limiter);
+			log.info("Limiting {} traffic to between {} and {} operations at once, starting at {}, to keep them within {}",
+					traffic.getTag(), limit.getMinLimit(), limit.getMaxLimit(), limit.getInitialLimit(),
+					limit.getLatencyTarget());
+		}
+		return new ConcurrencyLimits(limiters);
+	}
+}
@@ -0,0 +1,46 @@
+package com.exercise.school.configuration;
+
+import com.exercise.school.service.EnrollmentLocks;
+import com.exercise.school.service.EnrollmentQueue;
+import com.exercise.school.service.EnrollmentService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Opt-in enrollment mode: {@code POST /courses/{id}/enroll} puts the request in an {@link EnrollmentQueue} and answers
+ * {@code 202 Accepted} straight away, instead of holding a thread and a connection while it competes for the course
+ * row.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "school.enrollment.mode", havingValue = "async")
+public class ApplicationEnrollmentQueueConfig {
+	public static final String QUEUE_WAITING_METRIC = "school.enrollment.queue.waiting";
+
+	@Bean(destroyMethod = "close")
+	public EnrollmentQueue enrollmentQueue(EnrollmentService enrollmentService, EnrollmentLocks enrollmentLocks,
+										   MeterRegistry meterRegistry,
+										   @Value("${school.enrollment.queue.partitions:4}") int partitions,
+										   @Value("${school.enrollment.queue.capacity:10000}") int capacity,
+										   @Value("${school.enrollment.queue.max-batch-size:" + EnrollmentService.MAX_BATCH_ENROLLMENT_SIZE + "}") int maxBatchSize,
+										   @Value("${school.enrollment.queue.retention:PT10M}") Duration retention,
+										   @Value("${school.retry.max-attempts:5}") int retryMaxAttempts,
+										   @Value("${school.retry.backoff:PT0.01S}") Duration retryBackoff,
+										   @Value("${school.retry.max-backoff:PT0.2S}") Duration retryMaxBackoff) {
+		final EnrollmentQueue queue = new EnrollmentQueue(enrollmentService, enrollmentLocks, partitions, capacity,
+				maxBatchSize, retention, retryMaxAttempts, retryBackoff, retryMaxBackoff);
+		Gauge.builder(QUEUE_WAITING_METRIC, queue, EnrollmentQueue::getWaiting)
+				.description("Enrollments waiting in the queue")
+				.register(meterRegistry);
+		queue.start();
+		log.info("Queueing enrollments in {} partitions of up to {} requests", partitions, capacity);
+		return queue;
+	}
+}
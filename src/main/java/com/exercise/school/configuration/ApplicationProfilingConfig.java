@@ -0,0 +1,36 @@
+package com.exercise.school.configuration;
+
+import com.exercise.school.profiling.EntityLoadCountingInterceptor;
+import com.exercise.school.profiling.ProfilingDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Diagnostic mode, off by default: counts the statements, database time, rows and entities of each request handled
+ * through the service handler, and reports them in a {@code Server-Timing} header.
+ */
+@Configuration
+@ConditionalOnProperty(name = "school.profiling.enabled", havingValue = "true")
+public class ApplicationProfilingConfig {
+	@Bean
+	public static BeanPostProcessor profilingDataSourcePostProcessor() {
+		return new BeanPostProcessor() {
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				return bean instanceof DataSource && !(bean instanceof ProfilingDataSource) ?
+						new ProfilingDataSource((DataSource) bean) : bean;
+			}
+		};
+	}
+
+	@Bean
+	public HibernatePropertiesCustomizer entityLoadCountingCustomizer() {
+		return properties -> properties.put(AvailableSettings.INTERCEPTOR, new EntityLoadCountingInterceptor());
+	}
+}
@@ -0,0 +1,105 @@
+package com.exercise.school.configuration;
+
+import com.exercise.school.controller.ReactiveCatalogHandler;
+import com.exercise.school.controller.ServiceHandler;
+import com.exercise.school.database.repository.CatalogReadRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.r2dbc.ConnectionFactoryBuilder;
+import org.springframework.boot.web.servlet.ServletRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.server.reactive.ServletHttpHandlerAdapter;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+/**
+ * Serves the reactive catalog under {@code /reactive} next to the Spring MVC endpoints. Requests go through WebFlux
+ * functional routes on Servlet 3.1 non-blocking I/O and read through R2DBC, so a client reading slowly holds neither
+ * a request thread nor a database connection. The routes are turned into a handler directly rather than through
+ * {@code @EnableWebFlux}, which cannot be enabled next to Spring MVC. Only served when {@code spring.r2dbc.url} is
+ * set.
+ */
+@Configuration
+@ConditionalOnExpression("!'${spring.r2dbc.url:}'.isBlank()")
+@EnableConfigurationProperties(R2dbcProperties.class)
+public class ApplicationReactiveConfig implements DisposableBean {
+	public static final String PATH = "/reactive";
+
+	private ConnectionPool connectionPool;
+
+	/**
+	 * Built here from the {@code spring.r2dbc} properties rather than by Spring Boot, whose R2DBC connection factory
+	 * bean would make it skip the JDBC data source that everything else runs on.
+	 */
+	@Bean
+	public DatabaseClient catalogDatabaseClient(R2dbcProperties properties) {
+		final ConnectionFactory connectionFactory = ConnectionFactoryBuilder.withUrl(properties.getUrl())
+				.username(properties.getUsername())
+				.password(properties.getPassword())
+				.build();
+		final R2dbcProperties.Pool pool = properties.getPool();
+		final ConnectionPoolConfiguration.Builder configuration = ConnectionPoolConfiguration.builder(connectionFactory)
+				.initialSize(pool.getInitialSize())
+				.maxSize(pool.getMaxSize())
+				.maxIdleTime(pool.getMaxIdleTime());
+		if (pool.getValidationQuery() != null) {
+			configuration.validationQuery(pool.getValidationQuery());
+		}
+		this.connectionPool = new ConnectionPool(configuration.build());
+		return DatabaseClient.create(this.connectionPool);
+	}
+
+	@Override
+	public void destroy() {
+		if (this.connectionPool != null) {
+			this.connectionPool.dispose();
+		}
+	}
+
+	@Bean
+	public ServletRegistrationBean<ServletHttpHandlerAdapter> reactiveCatalogServlet(
+			ServiceHandler serviceHandler, CatalogReadRepository catalogReadRepository, ObjectMapper objectMapper) {
+		final HandlerStrategies strategies = HandlerStrategies.builder()
+				.codecs(configurer -> {
+					configurer.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+					configurer.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+				})
+				.build();
+		final ServletHttpHandlerAdapter servlet = new ServletHttpHandlerAdapter(RouterFunctions.toHttpHandler(
+				catalogRoutes(new ReactiveCatalogHandler(serviceHandler, catalogReadRepository)), strategies));
+
+		final ServletRegistrationBean<ServletHttpHandlerAdapter> registration =
+				new ServletRegistrationBean<>(servlet, PATH + "/*");
+		registration.setName("reactiveCatalog");
+		registration.setAsyncSupported(true);
+		registration.setLoadOnStartup(1);
+		return registration;
+	}
+
+	/**
+	 * Paths are relative to the {@code /reactive} servlet mapping.
+	 */
+	private static RouterFunction<ServerResponse> catalogRoutes(ReactiveCatalogHandler handler) {
+		return RouterFunctions.route()
+				.GET("/students", handler::getStudents)
+				.GET("/students/stream", handler::streamStudents)
+				.GET("/students/{id}", handler::getStudentById)
+				.GET("/courses", handler::getCourses)
+				.GET("/courses/stream", handler::streamCourses)
+				.GET("/courses/{id}", handler::getCourseById)
+				.GET("/courses/{id}/students", handler::getCourseStudents)
+				.build();
+	}
+}
@@ -0,0 +1,73 @@
+package com.exercise.school.configuration;
+
+import com.exercise.school.database.routing.ReadOnlyContext;
+import com.exercise.school.database.routing.ReadWriteRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sends the reads of read-only operations to replicas, set with {@code school.datasource.replicas[n].url}, and
+ * everything else to the primary set with {@code spring.datasource}. Takes the place of the data source Spring Boot
+ * would otherwise build, so the primary pool is built here from the same properties.
+ *
+ * @see ReadOnlyContext
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "school.datasource.replicas[0].url")
+@EnableConfigurationProperties(ReplicaDataSourceProperties.class)
+public class ApplicationReadReplicaConfig {
+	private ReadWriteRoutingDataSource routingDataSource;
+
+	@Bean
+	public DataSource dataSource(DataSourceProperties dataSourceProperties, ReplicaDataSourceProperties replicaProperties,
+								 Environment environment, MeterRegistry meterRegistry) {
+		final HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder()
+				.type(HikariDataSource.class)
+				.build();
+		Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+
+		final List<HikariDataSource> replicas = new ArrayList<>();
+		for (int i = 0; i < replicaProperties.getReplicas().size(); i++) {
+			final ReplicaDataSourceProperties.Replica replica = replicaProperties.getReplicas().get(i);
+			final HikariDataSource replicaDataSource = new HikariDataSource();
+			replicaDataSource.setPoolName("replica-" + i);
+			replicaDataSource.setJdbcUrl(replica.getUrl());
+			replicaDataSource.setUsername(replica.getUsername());
+			replicaDataSource.setPassword(replica.getPassword());
+			replicaDataSource.setMaximumPoolSize(replica.getMaximumPoolSize());
+			replicaDataSource.setReadOnly(true);
+			replicaDataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+			replicas.add(replicaDataSource);
+		}
+
+		this.routingDataSource = new ReadWriteRoutingDataSource(primary, replicas, replicaProperties.getSelection(),
+				replicaProperties.getMaxLag(), replicaProperties.getLagQuery(), meterRegistry);
+		this.routingDataSource.checkReplicas();
+		log.info("Reading from {} of {} replicas, chosen {}", this.routingDataSource.getAvailableReplicas(),
+				replicas.size(), replicaProperties.getSelection());
+		return this.routingDataSource;
+	}
+
+	@Scheduled(fixedDelayString = "${school.datasource.check-interval:PT5S}")
+	public void checkReplicas() {
+		if (this.routingDataSource != null) {
+			this.routingDataSource.checkReplicas();
+		}
+	}
+}
@@ -3,7 +3,9 @@ package com.exercise.school.configuration;
 import com.exercise.school.database.model.Course;
 import com.exercise.school.database.model.Student;
 import com.exercise.school.dto.CoursePagedResponse;
+import com.exercise.school.dto.CourseView;
 import com.exercise.school.dto.StudentPagedResponse;
+import com.exercise.school.dto.StudentView;
 import com.fasterxml.classmate.TypeResolver;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -36,8 +38,10 @@ public class ApplicationSwaggerConfig {
 				.additionalModels(
 						typeResolver.resolve(Course.class),
 						typeResolver.resolve(CoursePagedResponse.class),
+						typeResolver.resolve(CourseView.class),
 						typeResolver.resolve(Student.class),
-						typeResolver.resolve(StudentPagedResponse.class)
+						typeResolver.resolve(StudentPagedResponse.class),
+						typeResolver.resolve(StudentView.class)
 				)
 				.globalResponses(HttpMethod.GET, globalResponses)
 				.globalResponses(HttpMethod.POST, globalResponses)
@@ -0,0 +1,51 @@
+package com.exercise.school.configuration;
+
+import com.exercise.school.controller.Traffic;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * The {@code school.limits} properties: the concurrency limits of each kind of traffic, and how fast they adapt.
+ */
+@Data
+@ConfigurationProperties("school.limits")
+public class ConcurrencyLimitProperties {
+	/**
+	 * What a limit is multiplied by when operations get slower than their latency target.
+	 */
+	private double backoffRatio = 0.9;
+
+	private Limit read = new Limit(50, 4, 200, Duration.ofMillis(500));
+
+	private Limit enrollment = new Limit(20, 4, 100, Duration.ofMillis(500));
+
+	private Limit write = new Limit(20, 4, 100, Duration.ofMillis(500));
+
+	public Limit forTraffic(Traffic traffic) {
+		return switch (traffic) {
+			case READ -> read;
+			case ENROLLMENT -> enrollment;
+			case WRITE -> write;
+		};
+	}
+
+	@Data
+	@NoArgsConstructor
+	@AllArgsConstructor
+	public static class Limit {
+		private int initialLimit;
+
+		private int minLimit;
+
+		private int maxLimit;
+
+		/**
+		 * The latency operations should keep; the limit shrinks when they take longer.
+		 */
+		private Duration latencyTarget;
+	}
+}
@@ -0,0 +1,44 @@
+package com.exercise.school.configuration;
+
+import com.exercise.school.database.routing.ReplicaSelection;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@code school.datasource} properties: the read replicas and how reads are spread over them.
+ */
+@Data
+@ConfigurationProperties("school.datasource")
+public class ReplicaDataSourceProperties {
+	private List<Replica> replicas = new ArrayList<>();
+
+	private ReplicaSelection selection = ReplicaSelection.ROUND_ROBIN;
+
+	/**
+	 * Returns how many seconds a replica is behind the primary, such as {@code SHOW REPLICA STATUS} on MySQL. Unset,
+	 * replicas are only checked to be reachable.
+	 */
+	private String lagQuery;
+
+	/**
+	 * How far behind the primary a replica may be and still serve reads.
+	 */
+	private Duration maxLag = Duration.ofSeconds(5);
+
+	private Duration checkInterval = Duration.ofSeconds(5);
+
+	@Data
+	public static class Replica {
+		private String url;
+
+		private String username;
+
+		private String password;
+
+		private int maximumPoolSize = 10;
+	}
+}
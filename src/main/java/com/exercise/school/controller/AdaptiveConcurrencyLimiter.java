@@ -0,0 +1,88 @@
+package com.exercise.school.controller;
+
+import java.time.Duration;
+
+/**
+ * Caps how many operations of one kind the {@link ServiceHandler} runs at once, and moves the cap with the latency of
+ * the operations it lets through. Operations over the cap are turned away at once, rather than queueing for a
+ * database connection and slowing down every operation already waiting for one.
+ * <p>
+ * The cap grows by about one for each round of operations that finish within the latency target, as long as at least
+ * half of it is in use: operations run alone tell nothing about the concurrency the database could take. An operation
+ * slower than the target, or one that gave up waiting for a connection, shrinks the cap by the backoff ratio. Only
+ * operations started after the last shrink count, so that a single slow spell shrinks the cap once rather than once
+ * for every operation caught in it. When the database slows down, the cap therefore settles around the concurrency it
+ * still serves within the target, and the operations let through keep their latency.
+ */
+public class AdaptiveConcurrencyLimiter {
+	private final int minLimit;
+	private final int maxLimit;
+	private final long latencyTargetNanos;
+	private final double backoffRatio;
+
+	private double limit;
+	private int inFlight;
+	private long lastBackoffNanos = System.nanoTime();
+
+	/**
+	 * @param backoffRatio what the cap is multiplied by when operations get too slow, between 0 and 1
+	 */
+	public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, Duration latencyTarget,
+									  double backoffRatio) {
+		if (minLimit < 1 || minLimit > maxLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+			throw new IllegalArgumentException("Expected 1 <= min-limit <= initial-limit <= max-limit, got " +
+					minLimit + ", " + initialLimit + " and " + maxLimit);
+		}
+		this.limit = initialLimit;
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.latencyTargetNanos = latencyTarget.toNanos();
+		this.backoffRatio = backoffRatio;
+	}
+
+	/**
+	 * A caller that is let through must report back with {@link #release(long, boolean)}, or {@link #release()}.
+	 *
+	 * @return whether the operation may run, rather than being turned away
+	 */
+	public synchronized boolean tryAcquire() {
+		if (this.inFlight >= (int) this.limit) {
+			return false;
+		}
+		this.inFlight++;
+		return true;
+	}
+
+	/**
+	 * @param latencyNanos how long the operation took
+	 * @param overloaded   whether the operation gave up waiting for the database
+	 */
+	public synchronized void release(long latencyNanos, boolean overloaded) {
+		final int inFlightBefore = this.inFlight--;
+		final long now = System.nanoTime();
+		if (overloaded || latencyNanos > this.latencyTargetNanos) {
+			if (now - latencyNanos > this.lastBackoffNanos) {
+				this.limit = Math.max(this.minLimit, this.limit * this.backoffRatio);
+				this.lastBackoffNanos = now;
+			}
+		} else if (inFlightBefore * 2 >= this.limit) {
+			this.limit = Math.min(this.maxLimit, this.limit + 1 / this.limit);
+		}
+	}
+
+	/**
+	 * Reports back on an operation whose latency says nothing about the database, such as a bulk import. It frees its
+	 * place and leaves the cap where it is.
+	 */
+	public synchronized void release() {
+		this.inFlight--;
+	}
+
+	public synchronized int getLimit() {
+		return (int) this.limit;
+	}
+
+	public synchronized int getInFlight() {
+		return this.inFlight;
+	}
+}
@@ -0,0 +1,22 @@
+package com.exercise.school.controller;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The {@link AdaptiveConcurrencyLimiter} of each kind of traffic.
+ */
+public class ConcurrencyLimits {
+	private final Map<Traffic, AdaptiveConcurrencyLimiter> limiters;
+
+	public ConcurrencyLimits(Map<Traffic, AdaptiveConcurrencyLimiter> limiters) {
+		this.limiters = new EnumMap<>(limiters);
+	}
+
+	/**
+	 * @return the limiter of the given traffic, or {@code null} if it is not limited
+	 */
+	public AdaptiveConcurrencyLimiter forTraffic(Traffic traffic) {
+		return this.limiters.get(traffic);
+	}
+}
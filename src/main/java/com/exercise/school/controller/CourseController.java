@@ -1,12 +1,32 @@
 package com.exercise.school.controller;
 
 import com.exercise.school.database.model.Course;
-import com.exercise.school.database.model.Student;
 import com.exercise.school.database.repository.CourseRepository;
+import com.exercise.school.database.repository.CourseSortKey;
 import com.exercise.school.database.repository.StudentRepository;
+import com.exercise.school.database.repository.StudentSortKey;
+import com.exercise.school.dto.BatchEnrollmentRequest;
 import com.exercise.school.dto.CourseDto;
 import com.exercise.school.dto.CoursePagedResponse;
+import com.exercise.school.dto.CourseView;
 import com.exercise.school.dto.EnrollmentRequest;
+import com.exercise.school.dto.HttpResponse;
+import com.exercise.school.dto.ImportProgress;
+import com.exercise.school.dto.ImportResult;
+import com.exercise.school.dto.PageCursor;
+import com.exercise.school.dto.PaginationDto;
+import com.exercise.school.dto.QueuedEnrollment;
+import com.exercise.school.dto.StudentEnrollmentResult;
+import com.exercise.school.dto.StudentPagedResponse;
+import com.exercise.school.dto.StudentView;
+import com.exercise.school.dto.TotalCount;
+import com.exercise.school.service.ApproximateCountCache;
+import com.exercise.school.service.EnrollmentLocks;
+import com.exercise.school.service.EnrollmentQueue;
+import com.exercise.school.service.EnrollmentResult;
+import com.exercise.school.service.EnrollmentService;
+import com.exercise.school.service.ImportFormat;
+import com.exercise.school.service.ImportService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
@@ -18,6 +38,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -26,19 +48,29 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/courses")
 public class CourseController {
-	private static final int MAX_COURSES_PER_STUDENT = 5;
-	private static final int MAX_STUDENTS_PER_COURSE = 50;
-
 	@Autowired
 	private ServiceHandler serviceHandler;
 
@@ -48,13 +80,32 @@ public class CourseController {
 	@Autowired
 	private StudentRepository studentRepository;
 
+	@Autowired
+	private EnrollmentService enrollmentService;
+
+	@Autowired
+	private EnrollmentLocks enrollmentLocks;
+
+	@Autowired
+	private ImportService importService;
+
+	@Autowired
+	private ApproximateCountCache approximateCountCache;
+
+	/**
+	 * Present only when enrollments are queued.
+	 */
+	@Autowired(required = false)
+	private EnrollmentQueue enrollmentQueue;
+
 	@GetMapping("")
 	@Operation(summary = "List courses")
 	@ApiResponses(value = {
 			@ApiResponse(
 					responseCode = "200", description = "Courses listed",
 					content = {@Content(schema = @Schema(implementation = CoursePagedResponse.class))}
-			)
+			),
+			@ApiResponse(responseCode = "304", description = "Course list unchanged since the given ETag")
 	})
 	public ResponseEntity<Object> getCourses(
 			@Parameter(description = "Get only courses with no students enrolled")
@@ -63,16 +114,75 @@ public class CourseController {
 			@Parameter(description = "Page number")
 			@RequestParam(value = "page", required = false, defaultValue = "0")
 					int pageNumber,
-			@Parameter(description = "Page size")
+			@Parameter(description = "Page size, at most " + PaginationDto.MAX_PAGE_SIZE)
 			@RequestParam(value = "size", required = false, defaultValue = "10")
-					int pageSize
+					int pageSize,
+			@Parameter(description = "Sort key: id or name")
+			@RequestParam(value = "sort", required = false, defaultValue = "id")
+					String sort,
+			@Parameter(description = "Cursor returned as nextCursor by the previous page. When given, the page number is ignored")
+			@RequestParam(value = "after", required = false)
+					String after,
+			@Parameter(description = "How to report totalElements: exact, approximate or none. " +
+					"Defaults to exact for page numbers and none for cursors")
+			@RequestParam(value = "total", required = false)
+					String total,
+			@Parameter(description = "ETag of the copy the client already holds")
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+					String ifNoneMatch
 	) {
-		return serviceHandler.processService((responseBuilder) -> {
-			Pageable pageable = PageRequest.of(pageNumber, pageSize);
-			Page<Course> response = noStudentsOnly ?
-					this.courseRepository.findCoursesWithNoStudents(pageable) :
-					this.courseRepository.findAll(pageable);
-			responseBuilder.responseBody(new CoursePagedResponse(response));
+		return serviceHandler.processService(ServiceOperation.LIST_COURSES, ifNoneMatch, (responseBuilder) -> {
+			final Optional<CourseSortKey> sortKey = CourseSortKey.fromParameter(sort);
+			if (sortKey.isEmpty()) {
+				final Map<String, String> responseBody = Map.of("message", "Unknown sort key", "sort", sort);
+				responseBuilder.responseBody(responseBody).statusCode(HttpStatus.BAD_REQUEST);
+				return;
+			}
+
+			final Optional<TotalCount> totalCount = total == null ?
+					Optional.of(after == null ? TotalCount.EXACT : TotalCount.NONE) :
+					TotalCount.fromParameter(total);
+			if (totalCount.isEmpty()) {
+				final Map<String, String> responseBody = Map.of("message", "Unknown total mode", "total", total);
+				responseBuilder.responseBody(responseBody).statusCode(HttpStatus.BAD_REQUEST);
+				return;
+			}
+
+			final int boundedPageSize = PaginationDto.boundedPageSize(pageSize);
+			final CoursePagedResponse response;
+			if (after != null) {
+				final Optional<PageCursor> cursor = PageCursor.decode(after)
+						.filter(decoded -> decoded.sort().equals(sortKey.get().getParameter()));
+				if (cursor.isEmpty()) {
+					final Map<String, String> responseBody = Map.of("message", "Invalid cursor for this sort key");
+					responseBuilder.responseBody(responseBody).statusCode(HttpStatus.BAD_REQUEST);
+					return;
+				}
+
+				final List<CourseView> rows = this.courseRepository.findCoursesAfter(
+						sortKey.get(), cursor.get(), noStudentsOnly, boundedPageSize + 1);
+				response = new CoursePagedResponse(rows, boundedPageSize,
+						countCourses(totalCount.get(), noStudentsOnly), totalCount.get() == TotalCount.APPROXIMATE,
+						sortKey.get()::cursorOf);
+			} else if (totalCount.get() == TotalCount.EXACT) {
+				Pageable pageable = PageRequest.of(pageNumber, boundedPageSize, sortKey.get().toSort());
+				Page<CourseView> page = noStudentsOnly ?
+						this.courseRepository.findCoursesWithNoStudents(pageable) :
+						this.courseRepository.findCourses(pageable);
+				response = new CoursePagedResponse(page, sortKey.get()::cursorOf);
+			} else {
+				Pageable pageable = PageRequest.of(pageNumber, boundedPageSize, sortKey.get().toSort());
+				Slice<CourseView> slice = noStudentsOnly ?
+						this.courseRepository.findSliceOfCoursesWithNoStudents(pageable) :
+						this.courseRepository.findSliceOfCourses(pageable);
+				response = new CoursePagedResponse(slice,
+						countCourses(totalCount.get(), noStudentsOnly), totalCount.get() == TotalCount.APPROXIMATE,
+						sortKey.get()::cursorOf);
+			}
+
+			if (!responseBuilder.eTagMatches(response.eTag())) {
+				responseBuilder.responseBody(response);
+			}
 		});
 	}
 
@@ -87,29 +197,85 @@ public class CourseController {
 	@ResponseStatus(HttpStatus.CREATED)
 	public ResponseEntity<Object> registerCourse(
 			@Parameter(name = "Course registration request", required = true) @RequestBody CourseDto course) {
-		return serviceHandler.processService((responseBuilder) -> {
+		return serviceHandler.processService(ServiceOperation.REGISTER_COURSE, (responseBuilder) -> {
 			Course courseModel = course.toModel();
 			this.courseRepository.save(courseModel);
 			responseBuilder.responseBody(courseModel).statusCode(HttpStatus.CREATED);
 		});
 	}
 
+	@PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+	@Operation(summary = "Import courses",
+			description = "Streams a CSV file with a name header, or one JSON course per line")
+	@ApiResponses(value = {
+			@ApiResponse(
+					responseCode = "200", description = "Import finished, rejected rows are listed with their line numbers. " +
+					"With an Accept header of application/x-ndjson, one progress line is streamed after every chunk of " +
+					"rows written, and the result is the last line",
+					content = {
+							@Content(mediaType = "application/json", schema = @Schema(implementation = ImportResult.class)),
+							@Content(mediaType = "application/x-ndjson", schema = @Schema(implementation = ImportProgress.class))
+					}
+			)
+	})
+	public ResponseEntity<Object> importCourses(
+			HttpServletRequest request,
+			HttpServletResponse response,
+			@RequestHeader(value = HttpHeaders.ACCEPT, required = false)
+					String accept
+	) {
+		return serviceHandler.processStreamingService(ServiceOperation.IMPORT_COURSES, response, (responseBuilder) -> {
+			final ImportFormat format = ImportFormat.fromContentType(request.getContentType()).orElseThrow();
+			final Charset charset = request.getCharacterEncoding() == null ?
+					StandardCharsets.UTF_8 : Charset.forName(request.getCharacterEncoding());
+			if (ImportService.reportsProgress(accept)) {
+				responseBuilder.contentType(ImportService.PROGRESS_MEDIA_TYPE).bodyWriter(outputStream ->
+						this.importService.importCourses(request.getInputStream(), charset, format, outputStream));
+				return;
+			}
+
+			try {
+				responseBuilder.responseBody(this.importService.importCourses(request.getInputStream(), charset, format));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+
+	private Long countCourses(TotalCount totalCount, boolean noStudentsOnly) {
+		return switch (totalCount) {
+			case EXACT -> noStudentsOnly ? this.courseRepository.countCoursesWithNoStudents() : this.courseRepository.count();
+			case APPROXIMATE -> noStudentsOnly ?
+					this.approximateCountCache.get("courses.filtered", this.courseRepository::countCoursesWithNoStudents) :
+					this.approximateCountCache.get("courses", this.courseRepository::count);
+			case NONE -> null;
+		};
+	}
+
 	@GetMapping("/{id}")
 	@Operation(summary = "Retrieve course")
 	@ApiResponses(value = {
 			@ApiResponse(
 					responseCode = "200", description = "Course retrieved",
-					content = {@Content(schema = @Schema(implementation = Course.class))}
+					content = {@Content(schema = @Schema(implementation = CourseView.class))}
 			),
+			@ApiResponse(responseCode = "304", description = "Course unchanged since the given ETag"),
 			@ApiResponse(responseCode = "404", description = "Course not found")
 	})
 	public ResponseEntity<Object> getCourseById(
 			@Parameter(description = "Course ID", required = true)
 			@PathVariable("id")
-					Long id
+					Long id,
+			@Parameter(description = "ETag of the copy the client already holds")
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+					String ifNoneMatch
 	) {
-		return serviceHandler.processService((responseBuilder) -> this.courseRepository.findById(id)
-				.ifPresentOrElse(responseBuilder::responseBody, () -> responseBuilder.statusCode(HttpStatus.NOT_FOUND)));
+		return serviceHandler.processService(ServiceOperation.GET_COURSE, ifNoneMatch, (responseBuilder) -> this.courseRepository.findViewById(id)
+				.ifPresentOrElse((course) -> {
+					if (!responseBuilder.eTagMatches(HttpResponse.strongETag(course.id(), course.version()))) {
+						responseBuilder.responseBody(course);
+					}
+				}, () -> responseBuilder.statusCode(HttpStatus.NOT_FOUND)));
 	}
 
 	@GetMapping("/{id}/students")
@@ -117,18 +283,60 @@ public class CourseController {
 	@ApiResponses(value = {
 			@ApiResponse(
 					responseCode = "200", description = "Enrolled students listed",
-					content = {@Content(array = @ArraySchema(schema = @Schema(implementation = Student.class)))}
+					content = {@Content(schema = @Schema(implementation = StudentPagedResponse.class))}
 			),
+			@ApiResponse(responseCode = "304", description = "Roster unchanged since the given ETag"),
+			@ApiResponse(responseCode = "400", description = "Invalid cursor"),
 			@ApiResponse(responseCode = "404", description = "Course not found")
 	})
 	public ResponseEntity<Object> getCourseStudents(
 			@Parameter(description = "Course ID", required = true)
 			@PathVariable("id")
-					Long id
+					Long id,
+			@Parameter(description = "Page number")
+			@RequestParam(value = "page", required = false, defaultValue = "0")
+					int pageNumber,
+			@Parameter(description = "Page size, at most " + PaginationDto.MAX_PAGE_SIZE)
+			@RequestParam(value = "size", required = false, defaultValue = "10")
+					int pageSize,
+			@Parameter(description = "Cursor returned as nextCursor by the previous page. When given, the page number is ignored")
+			@RequestParam(value = "after", required = false)
+					String after,
+			@Parameter(description = "ETag of the copy the client already holds")
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+					String ifNoneMatch
 	) {
-		return serviceHandler.processService((responseBuilder) -> this.courseRepository.findById(id)
-				.ifPresentOrElse(course -> responseBuilder.responseBody(course.getEnrolledStudents()),
-						() -> responseBuilder.statusCode(HttpStatus.NOT_FOUND)));
+		return serviceHandler.processService(ServiceOperation.LIST_ENROLLED_STUDENTS, ifNoneMatch, (responseBuilder) -> {
+			final Optional<Long> rosterVersion = this.courseRepository.findRosterVersionById(id);
+			if (rosterVersion.isEmpty()) {
+				responseBuilder.statusCode(HttpStatus.NOT_FOUND);
+				return;
+			}
+
+			if (responseBuilder.eTagMatches(HttpResponse.strongETag("roster", id, rosterVersion.get()))) {
+				return;
+			}
+
+			final int boundedPageSize = PaginationDto.boundedPageSize(pageSize);
+			if (after != null) {
+				final Optional<PageCursor> cursor = PageCursor.decode(after)
+						.filter(decoded -> decoded.sort().equals(StudentSortKey.ID.getParameter()));
+				if (cursor.isEmpty()) {
+					final Map<String, String> responseBody = Map.of("message", "Invalid cursor for this sort key");
+					responseBuilder.responseBody(responseBody).statusCode(HttpStatus.BAD_REQUEST);
+					return;
+				}
+
+				final List<StudentView> rows = this.studentRepository.findEnrolledInCourseAfter(
+						id, cursor.get().id(), PageRequest.of(0, boundedPageSize + 1));
+				responseBuilder.responseBody(new StudentPagedResponse(rows, boundedPageSize, null, false,
+						StudentSortKey.ID::cursorOf));
+				return;
+			}
+
+			final Page<StudentView> response = this.studentRepository.findEnrolledInCourse(id, PageRequest.of(pageNumber, boundedPageSize));
+			responseBuilder.responseBody(new StudentPagedResponse(response, StudentSortKey.ID::cursorOf));
+		});
 	}
 
 	@PutMapping("/{id}")
@@ -138,7 +346,8 @@ public class CourseController {
 					responseCode = "200", description = "Course updated",
 					content = {@Content(schema = @Schema(implementation = Course.class))}
 			),
-			@ApiResponse(responseCode = "404", description = "Course not found")
+			@ApiResponse(responseCode = "404", description = "Course not found"),
+			@ApiResponse(responseCode = "412", description = "Course changed since the given ETag")
 	})
 	public ResponseEntity<Object> updateCourse(
 			@Parameter(description = "Course ID", required = true)
@@ -146,9 +355,18 @@ public class CourseController {
 					Long id,
 			@Parameter(description = "course", required = true)
 			@RequestBody
-					CourseDto course) {
-		return serviceHandler.processService((responseBuilder) -> this.courseRepository.findById(id)
+					CourseDto course,
+			@Parameter(description = "ETag of the course the update was made from, to update only if unchanged since")
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+					String ifMatch) {
+		return serviceHandler.processService(ServiceOperation.UPDATE_COURSE, (responseBuilder) -> this.courseRepository.findById(id)
 				.ifPresentOrElse((courseFromDb) -> {
+					if (!HttpResponse.ifMatchAllows(ifMatch, HttpResponse.strongETag(courseFromDb.getId(), courseFromDb.getVersion()))) {
+						final Map<String, String> responseBody = Map.of("message", "Course changed since the given ETag");
+						responseBuilder.responseBody(responseBody).statusCode(HttpStatus.PRECONDITION_FAILED);
+						return;
+					}
+
 					courseFromDb.setName(course.getName());
 					this.courseRepository.save(courseFromDb);
 					responseBuilder.responseBody(courseFromDb);
@@ -167,9 +385,9 @@ public class CourseController {
 			@PathVariable("id")
 					Long id
 	) {
-		return serviceHandler.processService((responseBuilder) -> this.courseRepository.findById(id)
-				.ifPresentOrElse((courseFromDb) -> {
-					this.courseRepository.deleteById(id);
+		return serviceHandler.processService(ServiceOperation.DELETE_COURSE, (responseBuilder) -> this.courseRepository.findViewById(id)
+				.ifPresentOrElse((course) -> {
+					this.enrollmentService.deleteCourse(id);
 					responseBuilder.statusCode(HttpStatus.NO_CONTENT);
 				}, () -> responseBuilder.statusCode(HttpStatus.NOT_FOUND)));
 	}
@@ -178,8 +396,13 @@ public class CourseController {
 	@Operation(summary = "Enroll in course")
 	@ApiResponses(value = {
 			@ApiResponse(responseCode = "201", description = "Successful enrollment"),
+			@ApiResponse(
+					responseCode = "202", description = "Enrollment queued, its outcome can be retrieved from the Location header",
+					content = {@Content(schema = @Schema(implementation = QueuedEnrollment.class))}
+			),
 			@ApiResponse(responseCode = "400", description = "The course is full or the student has exceeded maximum enrolled courses"),
-			@ApiResponse(responseCode = "404", description = "Course not found")
+			@ApiResponse(responseCode = "404", description = "Course not found"),
+			@ApiResponse(responseCode = "503", description = "Too many enrollments queued or in progress in the course")
 	})
 	@ResponseStatus(HttpStatus.CREATED)
 	public ResponseEntity<Object> enrollInCourse(
@@ -193,35 +416,140 @@ public class CourseController {
 
 		Long studentId = enrollmentRequest.studentId();
 
-		return serviceHandler.processService((responseBuilder) -> this.courseRepository.findById(courseId)
-				.ifPresentOrElse((course) -> this.studentRepository.findById(studentId).ifPresentOrElse(
-								(student) -> {
-									if (student.getEnrolledCourses().size() >= MAX_COURSES_PER_STUDENT) {
-										final Map<String, String> responseBody = Map.of("message",
-												"Student has exceeded maximum allowed courses");
-										responseBuilder.responseBody(responseBody).statusCode(HttpStatus.BAD_REQUEST);
-									} else if (course.getEnrolledStudents().size() >= MAX_STUDENTS_PER_COURSE) {
-										final Map<String, String> responseBody = Map.of("message",
-												"The course is full");
-										responseBuilder.responseBody(responseBody).statusCode(HttpStatus.BAD_REQUEST);
-									} else {
-										course.getEnrolledStudents().add(student);
-										this.courseRepository.save(course);
-										responseBuilder.statusCode(HttpStatus.CREATED);
-									}
-								},
-								() -> {
-									final Map<String, String> responseBody = Map.of("message", "No student found with ID", "studentId", studentId.toString());
-									responseBuilder.responseBody(responseBody).statusCode(HttpStatus.NOT_FOUND);
-								}),
-						() -> {
-							final Map<String, String> responseBody = Map.of(
-									"message",
-									"No course found with ID",
-									"courseId",
-									courseId.toString()
-							);
-							responseBuilder.responseBody(responseBody).statusCode(HttpStatus.NOT_FOUND);
-						}));
+		if (this.enrollmentQueue != null) {
+			return serviceHandler.processService(ServiceOperation.QUEUE_ENROLLMENT, (responseBuilder) -> this.enrollmentQueue.submit(courseId, studentId)
+					.ifPresentOrElse((queued) -> responseBuilder
+							.location(ServletUriComponentsBuilder.fromCurrentRequest()
+									.path("/requests/{requestId}")
+									.buildAndExpand(queued.requestId())
+									.toUri())
+							.responseBody(queued)
+							.statusCode(HttpStatus.ACCEPTED), () -> {
+						final Map<String, String> responseBody = Map.of("message",
+								"Too many enrollments queued, try again later");
+						responseBuilder.responseBody(responseBody).statusCode(HttpStatus.SERVICE_UNAVAILABLE).outcome("busy");
+					}));
+		}
+
+		return serviceHandler.processService(ServiceOperation.ENROLL, (responseBuilder) -> {
+			final Optional<EnrollmentResult> enrolled = this.enrollmentLocks.callLocked(courseId,
+					Collections.singletonList(studentId), () -> this.enrollmentService.enroll(courseId, studentId));
+			if (enrolled.isEmpty()) {
+				enrollmentBusy(responseBuilder);
+				return;
+			}
+
+			final EnrollmentResult result = enrolled.get();
+			responseBuilder.outcome(result.name().toLowerCase(Locale.ROOT));
+			switch (result) {
+				case ENROLLED, ALREADY_ENROLLED -> responseBuilder.statusCode(HttpStatus.CREATED);
+				case STUDENT_COURSE_LIMIT_REACHED -> {
+					final Map<String, String> responseBody = Map.of("message",
+							"Student has exceeded maximum allowed courses");
+					responseBuilder.responseBody(responseBody).statusCode(HttpStatus.BAD_REQUEST);
+				}
+				case COURSE_FULL -> {
+					final Map<String, String> responseBody = Map.of("message",
+							"The course is full");
+					responseBuilder.responseBody(responseBody).statusCode(HttpStatus.BAD_REQUEST);
+				}
+				case STUDENT_NOT_FOUND -> {
+					final Map<String, String> responseBody = Map.of("message", "No student found with ID", "studentId", studentId.toString());
+					responseBuilder.responseBody(responseBody).statusCode(HttpStatus.NOT_FOUND);
+				}
+				case COURSE_NOT_FOUND -> {
+					final Map<String, String> responseBody = Map.of(
+							"message",
+							"No course found with ID",
+							"courseId",
+							courseId.toString()
+					);
+					responseBuilder.responseBody(responseBody).statusCode(HttpStatus.NOT_FOUND);
+				}
+			}
+		});
+	}
+
+	@GetMapping("/{id}/enroll/requests/{requestId}")
+	@Operation(summary = "Retrieve queued enrollment")
+	@ApiResponses(value = {
+			@ApiResponse(
+					responseCode = "200", description = "Queued enrollment retrieved, with its outcome once applied",
+					content = {@Content(schema = @Schema(implementation = QueuedEnrollment.class))}
+			),
+			@ApiResponse(responseCode = "404", description = "Enrollment request unknown or expired")
+	})
+	public ResponseEntity<Object> getQueuedEnrollment(
+			@Parameter(description = "Course ID", required = true)
+			@PathVariable("id")
+					Long courseId,
+			@Parameter(description = "Enrollment request ID", required = true)
+			@PathVariable("requestId")
+					UUID requestId
+	) {
+		return serviceHandler.processService(ServiceOperation.GET_QUEUED_ENROLLMENT, (responseBuilder) -> Optional.ofNullable(this.enrollmentQueue)
+				.flatMap((queue) -> queue.find(requestId))
+				.filter((queued) -> queued.courseId() == courseId)
+				.ifPresentOrElse(responseBuilder::responseBody, () -> responseBuilder.statusCode(HttpStatus.NOT_FOUND)));
+	}
+
+	@PostMapping("/{id}/enroll/batch")
+	@Operation(summary = "Enroll a group of students in course")
+	@ApiResponses(value = {
+			@ApiResponse(
+					responseCode = "200", description = "Enrollment outcome for each student",
+					content = {@Content(array = @ArraySchema(schema = @Schema(implementation = StudentEnrollmentResult.class)))}
+			),
+			@ApiResponse(responseCode = "400", description = "Too many students in one request"),
+			@ApiResponse(responseCode = "404", description = "Course not found"),
+			@ApiResponse(responseCode = "503", description = "Too many enrollments in progress in the course")
+	})
+	public ResponseEntity<Object> enrollAllInCourse(
+			@Parameter(description = "Course ID", required = true)
+			@PathVariable("id")
+					Long courseId,
+			@Parameter(description = "Batch enrollment request", required = true)
+			@RequestBody
+					BatchEnrollmentRequest batchEnrollmentRequest
+	) {
+		final List<Long> studentIds = batchEnrollmentRequest.studentIds() == null ?
+				List.of() : batchEnrollmentRequest.studentIds();
+
+		return serviceHandler.processService(ServiceOperation.BATCH_ENROLL, (responseBuilder) -> {
+			if (studentIds.size() > EnrollmentService.MAX_BATCH_ENROLLMENT_SIZE) {
+				final Map<String, Object> responseBody = Map.of(
+						"message",
+						"Too many students in one request",
+						"maximum",
+						EnrollmentService.MAX_BATCH_ENROLLMENT_SIZE
+				);
+				responseBuilder.responseBody(responseBody).statusCode(HttpStatus.BAD_REQUEST);
+				return;
+			}
+
+			final Optional<Optional<List<StudentEnrollmentResult>>> enrolled = this.enrollmentLocks.callLocked(courseId,
+					studentIds, () -> this.enrollmentService.enrollAll(courseId, studentIds));
+			if (enrolled.isEmpty()) {
+				enrollmentBusy(responseBuilder);
+				return;
+			}
+
+			enrolled.get()
+					.ifPresentOrElse(responseBuilder::responseBody, () -> {
+						final Map<String, String> responseBody = Map.of(
+								"message",
+								"No course found with ID",
+								"courseId",
+								courseId.toString()
+						);
+						responseBuilder.responseBody(responseBody).statusCode(HttpStatus.NOT_FOUND);
+					});
+		});
+	}
+
+	private static void enrollmentBusy(HttpResponse.HttpResponseBuilder responseBuilder) {
+		final Map<String, String> responseBody = Map.of("message",
+				"Too many enrollments in progress in this course, try again later");
+		responseBuilder.responseBody(responseBody).statusCode(HttpStatus.SERVICE_UNAVAILABLE).outcome("busy");
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,70 @@
+package com.exercise.school.controller;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps how many operations the {@link ServiceHandler} runs at once. Requests over the cap wait here in arrival order,
+ * rather than all at once in the connection pool, and are turned away once they have waited longer than the timeout.
+ */
+public class OperationBulkhead {
+	private static final String SLOT_ATTRIBUTE = OperationBulkhead.class.getName() + ".slot.";
+
+	private final AtomicLong slots = new AtomicLong();
+	private final Semaphore permits;
+	private final int maxConcurrentOperations;
+	private final Duration timeout;
+
+	public OperationBulkhead(int maxConcurrentOperations, Duration timeout) {
+		this.permits = new Semaphore(maxConcurrentOperations, true);
+		this.maxConcurrentOperations = maxConcurrentOperations;
+		this.timeout = timeout;
+	}
+
+	/**
+	 * Waits for a free slot, up to the timeout. A caller that gets one must give it back with {@link #exit()}.
+	 *
+	 * @return whether a slot was taken
+	 */
+	public boolean tryEnter() {
+		try {
+			return permits.tryAcquire(timeout.toNanos(), TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	public void exit() {
+		permits.release();
+	}
+
+	/**
+	 * Gives the slot back once the current request has completed, or at once outside a request. The persistence
+	 * context opened for a request keeps its connection until then, after the response is written, so an operation
+	 * let in any earlier could find the pool still short of that connection.
+	 */
+	public void exitAfterRequest() {
+		final RequestAttributes request = RequestContextHolder.getRequestAttributes();
+		if (request == null) {
+			exit();
+			return;
+		}
+
+		request.registerDestructionCallback(SLOT_ATTRIBUTE + slots.incrementAndGet(), this::exit,
+				RequestAttributes.SCOPE_REQUEST);
+	}
+
+	public int getMaxConcurrentOperations() {
+		return maxConcurrentOperations;
+	}
+
+	public int getWaiting() {
+		return permits.getQueueLength();
+	}
+}
@@ -0,0 +1,284 @@
+package com.exercise.school.controller;
+
+import com.exercise.school.database.repository.CatalogReadRepository;
+import com.exercise.school.database.repository.CourseSortKey;
+import com.exercise.school.database.repository.StudentSortKey;
+import com.exercise.school.dto.CoursePagedResponse;
+import com.exercise.school.dto.CourseView;
+import com.exercise.school.dto.HttpResponse;
+import com.exercise.school.dto.PageCursor;
+import com.exercise.school.dto.PagedResponse;
+import com.exercise.school.dto.PaginationDto;
+import com.exercise.school.dto.StudentView;
+import com.exercise.school.dto.TotalCount;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking counterparts of the student and course listing and lookup endpoints and of course rosters, served
+ * under {@code /reactive}. Parameters, bodies, pagination and ETags are those of the servlet endpoints, but lists are
+ * only sorted by ID and only report exact totals; other sort keys and approximate totals get a 400. The {@code /stream} routes send a whole table as one JSON object per line, read as fast as the client takes
+ * it.
+ */
+public class ReactiveCatalogHandler {
+	private final ServiceHandler serviceHandler;
+	private final CatalogReadRepository catalogReadRepository;
+
+	public ReactiveCatalogHandler(ServiceHandler serviceHandler, CatalogReadRepository catalogReadRepository) {
+		this.serviceHandler = serviceHandler;
+		this.catalogReadRepository = catalogReadRepository;
+	}
+
+	public Mono<ServerResponse> getStudents(ServerRequest request) {
+		final PageParameters page = PageParameters.of(request);
+		final boolean noCoursesOnly = flagOf(request, "noCoursesOnly");
+		return respond(serviceHandler.processReactiveService(ServiceOperation.CATALOG_LIST_STUDENTS, null,
+				(responseBuilder) -> {
+					final Optional<TotalCount> totalCount = listTotal(responseBuilder, request, page,
+							StudentSortKey.fromParameter(page.sort()).isPresent(), StudentSortKey.ID.getParameter());
+					if (totalCount.isEmpty()) {
+						return Mono.empty();
+					}
+
+					return page(responseBuilder, page, totalCount.get(), StudentSortKey.ID.getParameter(),
+							(offset, limit) -> this.catalogReadRepository.findStudents(noCoursesOnly, offset, limit),
+							(after, limit) -> this.catalogReadRepository.findStudentsAfter(noCoursesOnly, after, limit),
+							() -> this.catalogReadRepository.countStudents(noCoursesOnly), StudentSortKey.ID::cursorOf)
+							.doOnNext(responseBuilder::responseBody);
+				}));
+	}
+
+	public Mono<ServerResponse> streamStudents(ServerRequest request) {
+		return ServerResponse.ok()
+				.contentType(MediaType.APPLICATION_NDJSON)
+				.body(serviceHandler.processReactiveStream(ServiceOperation.CATALOG_STREAM_STUDENTS,
+						this.catalogReadRepository.streamStudents()), StudentView.class);
+	}
+
+	public Mono<ServerResponse> getStudentById(ServerRequest request) {
+		final long id = idOf(request);
+		return respond(serviceHandler.processReactiveService(ServiceOperation.CATALOG_GET_STUDENT, ifNoneMatchOf(request),
+				(responseBuilder) -> this.catalogReadRepository.findStudentById(id)
+						.doOnNext((student) -> {
+							if (!responseBuilder.eTagMatches(HttpResponse.strongETag(student.id(), student.version()))) {
+								responseBuilder.responseBody(student);
+							}
+						})
+						.switchIfEmpty(Mono.fromRunnable(() -> responseBuilder.statusCode(HttpStatus.NOT_FOUND)))));
+	}
+
+	public Mono<ServerResponse> getCourses(ServerRequest request) {
+		final PageParameters page = PageParameters.of(request);
+		final boolean noStudentsOnly = flagOf(request, "noStudentsOnly");
+		return respond(serviceHandler.processReactiveService(ServiceOperation.CATALOG_LIST_COURSES, ifNoneMatchOf(request),
+				(responseBuilder) -> {
+					final Optional<TotalCount> totalCount = listTotal(responseBuilder, request, page,
+							CourseSortKey.fromParameter(page.sort()).isPresent(), CourseSortKey.ID.getParameter());
+					if (totalCount.isEmpty()) {
+						return Mono.empty();
+					}
+
+					return page(responseBuilder, page, totalCount.get(), CourseSortKey.ID.getParameter(),
+							(offset, limit) -> this.catalogReadRepository.findCourses(noStudentsOnly, offset, limit),
+							(after, limit) -> this.catalogReadRepository.findCoursesAfter(noStudentsOnly, after, limit),
+							() -> this.catalogReadRepository.countCourses(noStudentsOnly), CourseSortKey.ID::cursorOf)
+							.map(CoursePagedResponse::new)
+							.doOnNext((response) -> {
+								if (!responseBuilder.eTagMatches(response.eTag())) {
+									responseBuilder.responseBody(response);
+								}
+							});
+				}));
+	}
+
+	public Mono<ServerResponse> streamCourses(ServerRequest request) {
+		return ServerResponse.ok()
+				.contentType(MediaType.APPLICATION_NDJSON)
+				.body(serviceHandler.processReactiveStream(ServiceOperation.CATALOG_STREAM_COURSES,
+						this.catalogReadRepository.streamCourses()), CourseView.class);
+	}
+
+	public Mono<ServerResponse> getCourseById(ServerRequest request) {
+		final long id = idOf(request);
+		return respond(serviceHandler.processReactiveService(ServiceOperation.CATALOG_GET_COURSE, ifNoneMatchOf(request),
+				(responseBuilder) -> this.catalogReadRepository.findCourseById(id)
+						.doOnNext((course) -> {
+							if (!responseBuilder.eTagMatches(HttpResponse.strongETag(course.id(), course.version()))) {
+								responseBuilder.responseBody(course);
+							}
+						})
+						.switchIfEmpty(Mono.fromRunnable(() -> responseBuilder.statusCode(HttpStatus.NOT_FOUND)))));
+	}
+
+	public Mono<ServerResponse> getCourseStudents(ServerRequest request) {
+		final long id = idOf(request);
+		final PageParameters page = PageParameters.of(request);
+		return respond(serviceHandler.processReactiveService(ServiceOperation.CATALOG_LIST_ENROLLED_STUDENTS,
+				ifNoneMatchOf(request), (responseBuilder) -> this.catalogReadRepository.findRosterVersionById(id)
+						.map(Optional::of)
+						.defaultIfEmpty(Optional.empty())
+						.flatMap((rosterVersion) -> {
+							if (rosterVersion.isEmpty()) {
+								responseBuilder.statusCode(HttpStatus.NOT_FOUND);
+								return Mono.empty();
+							}
+
+							if (responseBuilder.eTagMatches(HttpResponse.strongETag("roster", id, rosterVersion.get()))) {
+								return Mono.empty();
+							}
+
+							return page(responseBuilder, page, page.hasCursor() ? TotalCount.NONE : TotalCount.EXACT,
+									StudentSortKey.ID.getParameter(),
+									(offset, limit) -> this.catalogReadRepository.findEnrolledInCourse(id, offset, limit),
+									(after, limit) -> this.catalogReadRepository.findEnrolledInCourseAfter(id, after, limit),
+									() -> this.catalogReadRepository.countEnrolledInCourse(id), StudentSortKey.ID::cursorOf)
+									.doOnNext(responseBuilder::responseBody);
+						})));
+	}
+
+	/**
+	 * Checks the sort and total parameters of a list, which are those of the servlet endpoint. Lists here are only
+	 * sorted by ID and only report exact totals, so other sort keys and approximate totals get a 400 rather than a
+	 * differently ordered or counted page.
+	 *
+	 * @param knownSortKey whether the servlet endpoint knows the requested sort key
+	 * @return how to report the total, or nothing when the builder was filled with an error
+	 */
+	private static Optional<TotalCount> listTotal(HttpResponse.HttpResponseBuilder responseBuilder, ServerRequest request,
+												  PageParameters page, boolean knownSortKey, String idSortParameter) {
+		if (!knownSortKey) {
+			final Map<String, String> responseBody = Map.of("message", "Unknown sort key", "sort", page.sort());
+			responseBuilder.responseBody(responseBody).statusCode(HttpStatus.BAD_REQUEST);
+			return Optional.empty();
+		}
+		if (!page.sort().equals(idSortParameter)) {
+			final Map<String, String> responseBody = Map.of("message", "Only sorting by id is supported here", "sort", page.sort());
+			responseBuilder.responseBody(responseBody).statusCode(HttpStatus.BAD_REQUEST);
+			return Optional.empty();
+		}
+
+		final Optional<String> total = request.queryParam("total");
+		final Optional<TotalCount> totalCount = total.isEmpty() ?
+				Optional.of(page.hasCursor() ? TotalCount.NONE : TotalCount.EXACT) :
+				TotalCount.fromParameter(total.get());
+		if (totalCount.isEmpty()) {
+			final Map<String, String> responseBody = Map.of("message", "Unknown total mode", "total", total.get());
+			responseBuilder.responseBody(responseBody).statusCode(HttpStatus.BAD_REQUEST);
+			return Optional.empty();
+		}
+		if (totalCount.get() == TotalCount.APPROXIMATE) {
+			final Map<String, String> responseBody = Map.of("message", "Approximate totals are not supported here", "total", total.get());
+			responseBuilder.responseBody(responseBody).statusCode(HttpStatus.BAD_REQUEST);
+			return Optional.empty();
+		}
+		return totalCount;
+	}
+
+	/**
+	 * Reads the rows following the cursor when one is given, or else the page at the requested number. Fills the
+	 * builder with an error instead when the cursor is invalid.
+	 *
+	 * @param totalCount {@link TotalCount#EXACT} to count the rows along with the page, or {@link TotalCount#NONE}
+	 * @param rowsAt     reads up to a number of rows from an offset
+	 * @param rowsAfter  reads up to a number of rows following an ID
+	 */
+	private static <T> Mono<PagedResponse<T>> page(HttpResponse.HttpResponseBuilder responseBuilder, PageParameters page,
+												   TotalCount totalCount, String sortParameter,
+												   BiFunction<Long, Integer, Flux<T>> rowsAt,
+												   BiFunction<Long, Integer, Flux<T>> rowsAfter, Supplier<Mono<Long>> count,
+												   Function<T, String> cursorOf) {
+		final Mono<Optional<Long>> total = totalCount == TotalCount.EXACT ?
+				count.get().map(Optional::of) :
+				Mono.just(Optional.empty());
+		if (page.hasCursor()) {
+			final Optional<PageCursor> cursor = PageCursor.decode(page.after())
+					.filter(decoded -> decoded.sort().equals(sortParameter));
+			if (cursor.isEmpty()) {
+				final Map<String, String> responseBody = Map.of("message", "Invalid cursor for this sort key");
+				responseBuilder.responseBody(responseBody).statusCode(HttpStatus.BAD_REQUEST);
+				return Mono.empty();
+			}
+
+			return Mono.zip(rowsAfter.apply(cursor.get().id(), page.size() + 1).collectList(), total)
+					.map(result -> new PagedResponse<>(result.getT1(), page.size(), result.getT2().orElse(null), false,
+							cursorOf));
+		}
+
+		final PageRequest pageable = PageRequest.of(page.number(), page.size());
+		if (totalCount == TotalCount.EXACT) {
+			return Mono.zip(rowsAt.apply(pageable.getOffset(), page.size()).collectList(), count.get())
+					.map(result -> new PagedResponse<>(new PageImpl<>(result.getT1(), pageable, result.getT2()), cursorOf));
+		}
+		return rowsAt.apply(pageable.getOffset(), page.size() + 1).collectList()
+				.map(rows -> {
+					final boolean hasNext = rows.size() > page.size();
+					final Slice<T> slice = new SliceImpl<>(hasNext ? rows.subList(0, page.size()) : rows, pageable, hasNext);
+					return new PagedResponse<>(slice, null, false, cursorOf);
+				});
+	}
+
+	private static Mono<ServerResponse> respond(Mono<ResponseEntity<Object>> response) {
+		return response.flatMap(entity -> {
+			final ServerResponse.BodyBuilder builder = ServerResponse.status(entity.getStatusCode())
+					.headers(headers -> headers.addAll(entity.getHeaders()));
+			return entity.getBody() == null ?
+					builder.build() :
+					builder.contentType(MediaType.APPLICATION_JSON).bodyValue(entity.getBody());
+		});
+	}
+
+	private static long idOf(ServerRequest request) {
+		try {
+			return Long.parseLong(request.pathVariable("id"));
+		} catch (NumberFormatException e) {
+			throw new ServerWebInputException("Invalid ID");
+		}
+	}
+
+	private static boolean flagOf(ServerRequest request, String name) {
+		return request.queryParam(name).map(Boolean::parseBoolean).orElse(false);
+	}
+
+	private static String ifNoneMatchOf(ServerRequest request) {
+		return request.headers().firstHeader(HttpHeaders.IF_NONE_MATCH);
+	}
+
+	/**
+	 * @param after cursor returned as {@code nextCursor} by the previous page, or {@code null}
+	 * @param sort  sort key, checked against those of the servlet endpoint
+	 */
+	private record PageParameters(int number, int size, String after, String sort) {
+		static PageParameters of(ServerRequest request) {
+			try {
+				return new PageParameters(
+						request.queryParam("page").map(Integer::parseInt).orElse(0),
+						PaginationDto.boundedPageSize(request.queryParam("size").map(Integer::parseInt).orElse(10)),
+						request.queryParam("after").orElse(null),
+						request.queryParam("sort").orElse("id"));
+			} catch (NumberFormatException e) {
+				throw new ServerWebInputException("Invalid page or size");
+			}
+		}
+
+		boolean hasCursor() {
+			return after != null;
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package com.exercise.school.controller;
+
+import com.exercise.school.dto.EnrollmentReportRow;
+import com.exercise.school.service.EnrollmentReportService;
+import com.exercise.school.service.ReportFormat;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/reports")
+public class ReportController {
+	@Autowired
+	private ServiceHandler serviceHandler;
+
+	@Autowired
+	private EnrollmentReportService enrollmentReportService;
+
+	/**
+	 * The body is produced while the rows are read, so it is never held as a response object.
+	 */
+	@GetMapping("/enrollments")
+	@Operation(summary = "Export all enrollments", description = "Streams every course and student pair, ordered by course and student ID")
+	@ApiResponses(value = {
+			@ApiResponse(
+					responseCode = "200", description = "Enrollments exported, one row per line",
+					content = {@Content(mediaType = "application/x-ndjson", schema = @Schema(implementation = EnrollmentReportRow.class))}
+			),
+			@ApiResponse(responseCode = "400", description = "Unknown format")
+	})
+	public ResponseEntity<Object> exportEnrollments(
+			@Parameter(description = "Output format: ndjson or csv")
+			@RequestParam(value = "format", required = false, defaultValue = "ndjson")
+					String format,
+			HttpServletResponse response
+	) {
+		return serviceHandler.processStreamingService(ServiceOperation.EXPORT_ENROLLMENTS, response, (responseBuilder) -> {
+			final Optional<ReportFormat> reportFormat = ReportFormat.fromParameter(format);
+			if (reportFormat.isEmpty()) {
+				responseBuilder.responseBody(Map.of("message", "Unknown format")).statusCode(HttpStatus.BAD_REQUEST);
+				return;
+			}
+
+			responseBuilder.contentType(new MediaType(reportFormat.get().getMediaType(), StandardCharsets.UTF_8))
+					.bodyWriter(outputStream -> this.enrollmentReportService.writeEnrollments(outputStream, reportFormat.get()));
+		});
+	}
+}
@@ -1,28 +1,349 @@
 package com.exercise.school.controller;
 
+import com.exercise.school.database.routing.ReadOnlyContext;
 import com.exercise.school.dto.HttpResponse;
+import com.exercise.school.profiling.RequestProfile;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
+@Slf4j
 @Service
 public class ServiceHandler {
-	public ResponseEntity<Object> processService(Consumer<HttpResponse.HttpResponseBuilder> consumer) {
+	/**
+	 * Time spent in each operation, tagged with the operation, its outcome and the exception it failed with. Ends
+	 * before the response body is serialized; {@code http.server.requests} covers the full request.
+	 */
+	public static final String REQUESTS_METRIC = "school.requests";
+
+	/**
+	 * Operations run again after losing a conflict with a concurrent transaction, tagged with the operation.
+	 */
+	public static final String RETRIES_METRIC = "school.requests.retries";
+
+	/**
+	 * Requests turned away because their kind of traffic was at its concurrency limit, tagged with the operation and
+	 * the traffic.
+	 */
+	public static final String SHED_METRIC = "school.requests.shed";
+
+	public static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	/**
+	 * Present only when a cap is set on the operations running at once.
+	 */
+	@Autowired(required = false)
+	private OperationBulkhead operationBulkhead;
+
+	/**
+	 * Present only when load shedding is enabled.
+	 */
+	@Autowired(required = false)
+	private ConcurrencyLimits concurrencyLimits;
+
+	@Value("${school.profiling.enabled:false}")
+	private boolean profilingEnabled;
+
+	@Value("${school.profiling.slow-request-threshold:PT0.5S}")
+	private Duration slowRequestThreshold;
+
+	@Value("${school.retry.max-attempts:5}")
+	private int retryMaxAttempts;
+
+	@Value("${school.retry.backoff:PT0.01S}")
+	private Duration retryBackoff;
+
+	@Value("${school.retry.max-backoff:PT0.2S}")
+	private Duration retryMaxBackoff;
+
+	/**
+	 * Sent as the Retry-After header of requests turned away because the application or the database is overloaded.
+	 */
+	@Value("${school.limits.retry-after:PT1S}")
+	private Duration retryAfter;
+
+	public ResponseEntity<Object> processService(ServiceOperation operation,
+												 Consumer<HttpResponse.HttpResponseBuilder> consumer) {
+		return processService(operation, null, consumer);
+	}
+
+	/**
+	 * @param ifNoneMatch the If-None-Match header of the request, checked by
+	 *                    {@link HttpResponse.HttpResponseBuilder#eTagMatches(String)}
+	 */
+	public ResponseEntity<Object> processService(ServiceOperation operation, String ifNoneMatch,
+												 Consumer<HttpResponse.HttpResponseBuilder> consumer) {
+		return process(operation, ifNoneMatch, null, consumer);
+	}
+
+	/**
+	 * Counterpart of {@link #processService(ServiceOperation, Consumer)} for operations whose body is written while it
+	 * is produced, such as exports. The operation either sets a {@link HttpResponse.HttpResponseBuilder#bodyWriter},
+	 * or builds an ordinary response such as an error. The body writer runs before the operation counts as finished,
+	 * so it is timed, profiled, limited and routed like any other operation. The profile goes out as a
+	 * {@code Server-Timing} trailer, since the headers leave before the body is written.
+	 *
+	 * @return the response to send, or {@code null} when the body has already been written to {@code servletResponse}
+	 */
+	public ResponseEntity<Object> processStreamingService(ServiceOperation operation, HttpServletResponse servletResponse,
+														  Consumer<HttpResponse.HttpResponseBuilder> consumer) {
+		return process(operation, null, servletResponse, consumer);
+	}
+
+	private ResponseEntity<Object> process(ServiceOperation operation, String ifNoneMatch,
+										   HttpServletResponse servletResponse,
+										   Consumer<HttpResponse.HttpResponseBuilder> consumer) {
+		final Timer.Sample sample = Timer.start(meterRegistry);
+		final long start = System.nanoTime();
+		final RequestProfile profile = profilingEnabled ? RequestProfile.start() : null;
+		final AdaptiveConcurrencyLimiter limiter = concurrencyLimits == null ? null :
+				concurrencyLimits.forTraffic(operation.getTraffic());
+		final boolean accepted = limiter == null || limiter.tryAcquire();
+		final boolean admitted = accepted && (operationBulkhead == null || operationBulkhead.tryEnter());
+		// Time spent waiting in the bulkhead is not the database's doing, so the limiter only times what follows
+		final long admittedAt = System.nanoTime();
+		final boolean readOnly = admitted && operation.isReadOnly();
+		boolean overloaded = accepted && !admitted;
+		boolean streamed = false;
+		RuntimeException abort = null;
+		HttpResponse response;
+		String exception = "none";
 
 		try {
-			final HttpResponse.HttpResponseBuilder responseBuilder = HttpResponse.builder();
-			consumer.accept(responseBuilder);
-			return responseBuilder.build().toResponseEntity();
-		} catch (Exception e) {
-			Map<String, String> responseBody = Map.of("message", "Internal server error");
-			return HttpResponse.builder()
-					.statusCode(HttpStatus.INTERNAL_SERVER_ERROR)
-					.responseBody(responseBody)
-					.build()
-					.toResponseEntity();
-		}
-	}
-}
\ No newline at end of file
+			if (readOnly) {
+				ReadOnlyContext.enter();
+			}
+			if (!accepted) {
+				meterRegistry.counter(SHED_METRIC, "operation", operation.name().toLowerCase(Locale.ROOT),
+						"traffic", operation.getTraffic().getTag()).increment();
+				response = serviceUnavailable("Too many requests in progress, try again later", "shed");
+			} else if (admitted) {
+				response = attempt(operation, ifNoneMatch, consumer);
+				if (servletResponse != null && response.getBodyWriter() != null) {
+					stream(response, servletResponse, profile, start);
+					streamed = true;
+				}
+			} else {
+				response = serviceUnavailable("Too many requests in progress, try again later", "busy");
+			}
+		} catch (RuntimeException e) {
+			exception = e.getClass().getSimpleName();
+			response = internalServerError();
+			if (servletResponse != null && servletResponse.isCommitted()) {
+				// Part of the body is out, so the failure can only be reported by cutting the response short
+				log.error("Operation {} failed while writing its response", operation, e);
+				abort = e;
+			} else if (isConnectionTimeout(e)) {
+				log.warn("Operation {} timed out waiting for a database connection", operation, e);
+				overloaded = true;
+				response = serviceUnavailable("The database is busy, try again later", "busy");
+			} else {
+				log.error("Operation {} failed", operation, e);
+			}
+			if (servletResponse != null && !servletResponse.isCommitted()) {
+				servletResponse.reset();
+			}
+		} finally {
+			if (readOnly) {
+				ReadOnlyContext.exit();
+			}
+			if (admitted && operationBulkhead != null) {
+				operationBulkhead.exitAfterRequest();
+			}
+			if (accepted && limiter != null) {
+				if (operation.isBulk() && !overloaded) {
+					limiter.release();
+				} else {
+					limiter.release(System.nanoTime() - admittedAt, overloaded);
+				}
+			}
+			if (profile != null) {
+				RequestProfile.stop();
+			}
+		}
+
+		record(sample, operation, response, exception);
+		if (abort != null) {
+			throw abort;
+		}
+		if (streamed) {
+			if (profile != null) {
+				logIfSlow(operation, profile, System.nanoTime() - start);
+			}
+			return null;
+		}
+		final ResponseEntity<Object> responseEntity = response.toResponseEntity();
+		return profile == null ? responseEntity : profiled(operation, responseEntity, profile, System.nanoTime() - start);
+	}
+
+	/**
+	 * Sends the status and headers of the response, then runs its body writer.
+	 */
+	private void stream(HttpResponse response, HttpServletResponse servletResponse, RequestProfile profile, long start) {
+		final ResponseEntity<Object> head = response.toResponseEntity();
+		servletResponse.setStatus(head.getStatusCodeValue());
+		head.getHeaders().forEach((name, values) -> values.forEach(value -> servletResponse.addHeader(name, value)));
+		if (profile != null) {
+			servletResponse.setHeader(HttpHeaders.TRAILER, SERVER_TIMING_HEADER);
+			servletResponse.setTrailerFields(() ->
+					Map.of(SERVER_TIMING_HEADER, profile.toServerTiming((System.nanoTime() - start) / 1_000_000.0)));
+		}
+
+		try {
+			response.getBodyWriter().writeTo(servletResponse.getOutputStream());
+			servletResponse.flushBuffer();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Runs the operation, and runs it again from the start when it is retryable and lost a conflict with a concurrent
+	 * transaction, such as a stale version or a deadlock. Each attempt gets a fresh builder and first waits a random
+	 * time, up to a bound that doubles with each attempt, so that the conflicting requests do not meet again.
+	 */
+	private HttpResponse attempt(ServiceOperation operation, String ifNoneMatch,
+								 Consumer<HttpResponse.HttpResponseBuilder> consumer) {
+		long backoffNanos = retryBackoff.toNanos();
+		for (int attempt = 1; ; attempt++) {
+			final HttpResponse.HttpResponseBuilder responseBuilder = HttpResponse.builder().ifNoneMatch(ifNoneMatch);
+			try {
+				consumer.accept(responseBuilder);
+				return responseBuilder.build();
+			} catch (ConcurrencyFailureException e) {
+				if (!operation.isRetryable() || attempt >= retryMaxAttempts) {
+					throw e;
+				}
+				log.debug("Operation {} conflicted with a concurrent transaction, retrying", operation, e);
+				meterRegistry.counter(RETRIES_METRIC, "operation", operation.name().toLowerCase(Locale.ROOT)).increment();
+				try {
+					TimeUnit.NANOSECONDS.sleep(ThreadLocalRandom.current().nextLong(backoffNanos + 1));
+				} catch (InterruptedException interrupted) {
+					Thread.currentThread().interrupt();
+					throw e;
+				}
+				backoffNanos = Math.min(backoffNanos * 2, retryMaxBackoff.toNanos());
+			}
+		}
+	}
+
+	/**
+	 * Counterpart of {@link #processService(ServiceOperation, String, Consumer)} for operations that read without
+	 * blocking: the operation fills the builder by the time the returned publisher completes, and no thread waits for
+	 * it in the meantime. Request profiling, load shedding and the bulkhead only cover blocking operations.
+	 */
+	public Mono<ResponseEntity<Object>> processReactiveService(ServiceOperation operation, String ifNoneMatch,
+															   Function<HttpResponse.HttpResponseBuilder, Mono<?>> function) {
+		final Timer.Sample sample = Timer.start(meterRegistry);
+		return Mono.defer(() -> {
+					final HttpResponse.HttpResponseBuilder responseBuilder = HttpResponse.builder().ifNoneMatch(ifNoneMatch);
+					return function.apply(responseBuilder).then(Mono.fromSupplier(responseBuilder::build));
+				})
+				.doOnNext(response -> record(sample, operation, response, "none"))
+				.onErrorResume(e -> {
+					log.error("Operation {} failed", operation, e);
+					final HttpResponse response = internalServerError();
+					record(sample, operation, response, e.getClass().getSimpleName());
+					return Mono.just(response);
+				})
+				.map(HttpResponse::toResponseEntity);
+	}
+
+	/**
+	 * Times a reactive stream of rows as one operation, from subscription until the last row is sent, the stream
+	 * fails or the client goes away. The status is sent before the first row, so a failure can only cut the stream
+	 * short.
+	 */
+	public <T> Flux<T> processReactiveStream(ServiceOperation operation, Flux<T> rows) {
+		return Flux.defer(() -> {
+			final Timer.Sample sample = Timer.start(meterRegistry);
+			return rows
+					.doOnComplete(() -> record(sample, operation, HttpResponse.builder().build(), "none"))
+					.doOnError(e -> {
+						log.error("Operation {} failed while streaming its response", operation, e);
+						record(sample, operation, internalServerError(), e.getClass().getSimpleName());
+					})
+					.doOnCancel(() -> record(sample, operation, HttpResponse.builder().outcome("cancelled").build(),
+							"none"));
+		});
+	}
+
+	private HttpResponse serviceUnavailable(String message, String outcome) {
+		return HttpResponse.builder()
+				.statusCode(HttpStatus.SERVICE_UNAVAILABLE)
+				.responseBody(Map.of("message", message))
+				.retryAfter(retryAfter)
+				.outcome(outcome)
+				.build();
+	}
+
+	/**
+	 * @return whether the operation failed because no database connection came free in time, which the pool reports
+	 * as a transient connection error
+	 */
+	private static boolean isConnectionTimeout(Throwable e) {
+		for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+			if (cause instanceof SQLTransientConnectionException) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static HttpResponse internalServerError() {
+		return HttpResponse.builder()
+				.statusCode(HttpStatus.INTERNAL_SERVER_ERROR)
+				.responseBody(Map.of("message", "Internal server error"))
+				.build();
+	}
+
+	private void record(Timer.Sample sample, ServiceOperation operation, HttpResponse response, String exception) {
+		sample.stop(Timer.builder(REQUESTS_METRIC)
+				.tag("operation", operation.name().toLowerCase(Locale.ROOT))
+				.tag("outcome", response.getOutcome())
+				.tag("exception", exception)
+				.publishPercentileHistogram()
+				.register(meterRegistry));
+	}
+
+	private ResponseEntity<Object> profiled(ServiceOperation operation, ResponseEntity<Object> responseEntity,
+											RequestProfile profile, long elapsedNanos) {
+		logIfSlow(operation, profile, elapsedNanos);
+		return ResponseEntity.status(responseEntity.getStatusCode())
+				.headers(responseEntity.getHeaders())
+				.header(SERVER_TIMING_HEADER, profile.toServerTiming(elapsedNanos / 1_000_000.0))
+				.body(responseEntity.getBody());
+	}
+
+	private void logIfSlow(ServiceOperation operation, RequestProfile profile, long elapsedNanos) {
+		if (elapsedNanos > slowRequestThreshold.toNanos()) {
+			log.warn("Slow operation {}: {} ms, {} statements taking {} ms, {} rows fetched, {} entities loaded",
+					operation, Math.round(elapsedNanos / 1_000_000.0), profile.getStatements(),
+					Math.round(profile.getDatabaseMillis()), profile.getRowsFetched(), profile.getEntitiesLoaded());
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package com.exercise.school.controller;
+
+/**
+ * The API operations handled through {@link ServiceHandler}, as tagged on the request metrics. The {@code CATALOG_}
+ * operations are the reactive reads served under {@code /reactive}.
+ */
+public enum ServiceOperation {
+	REGISTER_STUDENT(Kind.WRITE),
+	IMPORT_STUDENTS(Kind.WRITE),
+	LIST_STUDENTS(Kind.READ),
+	GET_STUDENT(Kind.READ),
+	LIST_STUDENT_COURSES(Kind.READ),
+	UPDATE_STUDENT(Kind.RETRYABLE_WRITE),
+	DELETE_STUDENT(Kind.RETRYABLE_WRITE),
+	REGISTER_COURSE(Kind.WRITE),
+	IMPORT_COURSES(Kind.WRITE),
+	LIST_COURSES(Kind.READ),
+	GET_COURSE(Kind.READ),
+	LIST_ENROLLED_STUDENTS(Kind.READ),
+	UPDATE_COURSE(Kind.RETRYABLE_WRITE),
+	DELETE_COURSE(Kind.RETRYABLE_WRITE),
+	ENROLL(Kind.RETRYABLE_WRITE),
+	BATCH_ENROLL(Kind.RETRYABLE_WRITE),
+	QUEUE_ENROLLMENT(Kind.WRITE),
+	GET_QUEUED_ENROLLMENT(Kind.READ),
+	EXPORT_ENROLLMENTS(Kind.READ),
+	CATALOG_LIST_STUDENTS(Kind.READ),
+	CATALOG_STREAM_STUDENTS(Kind.READ),
+	CATALOG_GET_STUDENT(Kind.READ),
+	CATALOG_LIST_COURSES(Kind.READ),
+	CATALOG_STREAM_COURSES(Kind.READ),
+	CATALOG_GET_COURSE(Kind.READ),
+	CATALOG_LIST_ENROLLED_STUDENTS(Kind.READ);
+
+	private enum Kind {
+		/**
+		 * Only reads, and may therefore be served by a replica.
+		 */
+		READ,
+		WRITE,
+		/**
+		 * Writes in a single transaction, so that an attempt that lost a conflict with a concurrent transaction left
+		 * nothing behind and can run again from the start.
+		 */
+		RETRYABLE_WRITE
+	}
+
+	private final Kind kind;
+
+	ServiceOperation(Kind kind) {
+		this.kind = kind;
+	}
+
+	public boolean isReadOnly() {
+		return kind == Kind.READ;
+	}
+
+	public boolean isRetryable() {
+		return kind == Kind.RETRYABLE_WRITE;
+	}
+
+	/**
+	 * Whether the operation works through a whole file or table, so that how long it takes says nothing about how
+	 * busy the database is.
+	 */
+	public boolean isBulk() {
+		return switch (this) {
+			case IMPORT_STUDENTS, IMPORT_COURSES, EXPORT_ENROLLMENTS -> true;
+			default -> false;
+		};
+	}
+
+	public Traffic getTraffic() {
+		if (isReadOnly()) {
+			return Traffic.READ;
+		}
+		return switch (this) {
+			case ENROLL, BATCH_ENROLL, QUEUE_ENROLLMENT -> Traffic.ENROLLMENT;
+			default -> Traffic.WRITE;
+		};
+	}
+}
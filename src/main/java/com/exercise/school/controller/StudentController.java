@@ -1,21 +1,38 @@
 package com.exercise.school.controller;
 
-import com.exercise.school.database.model.Course;
 import com.exercise.school.database.model.Student;
+import com.exercise.school.database.repository.CourseRepository;
+import com.exercise.school.database.repository.CourseSortKey;
 import com.exercise.school.database.repository.StudentRepository;
+import com.exercise.school.database.repository.StudentSortKey;
+import com.exercise.school.dto.CoursePagedResponse;
+import com.exercise.school.dto.CourseView;
+import com.exercise.school.dto.HttpResponse;
+import com.exercise.school.dto.ImportProgress;
+import com.exercise.school.dto.ImportResult;
+import com.exercise.school.dto.PageCursor;
+import com.exercise.school.dto.PaginationDto;
 import com.exercise.school.dto.StudentDto;
 import com.exercise.school.dto.StudentPagedResponse;
+import com.exercise.school.dto.StudentView;
+import com.exercise.school.dto.TotalCount;
+import com.exercise.school.service.ApproximateCountCache;
+import com.exercise.school.service.EnrollmentService;
+import com.exercise.school.service.ImportFormat;
+import com.exercise.school.service.ImportService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
-import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -24,12 +41,21 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/students")
@@ -40,6 +66,18 @@ public class StudentController {
 	@Autowired
 	private StudentRepository studentRepository;
 
+	@Autowired
+	private CourseRepository courseRepository;
+
+	@Autowired
+	private EnrollmentService enrollmentService;
+
+	@Autowired
+	private ImportService importService;
+
+	@Autowired
+	private ApproximateCountCache approximateCountCache;
+
 	@PostMapping("")
 	@Operation(summary = "Register student")
 	@ApiResponses(value = {
@@ -52,20 +90,66 @@ public class StudentController {
 	@ResponseStatus(HttpStatus.CREATED)
 	public ResponseEntity<Object> registerStudent(
 			@Parameter(name = "Student registration request", required = true) @RequestBody StudentDto student) {
-		return serviceHandler.processService((responseBuilder) -> {
+		return serviceHandler.processService(ServiceOperation.REGISTER_STUDENT, (responseBuilder) -> {
 			final String emailAddress = student.getEmailAddress();
 			this.studentRepository.findOneByEmailAddress(emailAddress)
-					.ifPresentOrElse((duplicateStudent) -> {
-						final Map<String, String> responseBody = Map.of("message", "A student with this email has already been registered", "emailAddress", emailAddress);
-						responseBuilder.responseBody(responseBody).statusCode(HttpStatus.BAD_REQUEST);
-					}, () -> {
+					.ifPresentOrElse((duplicateStudent) -> duplicateEmailAddress(responseBuilder, emailAddress), () -> {
 						Student studentModel = student.toModel();
-						this.studentRepository.save((studentModel));
+						try {
+							this.studentRepository.save((studentModel));
+						} catch (DataIntegrityViolationException e) {
+							// Another registration with the same email address committed after the lookup
+							duplicateEmailAddress(responseBuilder, emailAddress);
+							return;
+						}
 						responseBuilder.responseBody(studentModel).statusCode(HttpStatus.CREATED);
 					});
 		});
 	}
 
+	private static void duplicateEmailAddress(HttpResponse.HttpResponseBuilder responseBuilder, String emailAddress) {
+		final Map<String, String> responseBody = Map.of("message", "A student with this email has already been registered", "emailAddress", emailAddress);
+		responseBuilder.responseBody(responseBody).statusCode(HttpStatus.BAD_REQUEST);
+	}
+
+	@PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+	@Operation(summary = "Import students",
+			description = "Streams a CSV file with a firstName,lastName,emailAddress header, or one JSON student per line")
+	@ApiResponses(value = {
+			@ApiResponse(
+					responseCode = "200", description = "Import finished, rejected rows are listed with their line numbers. " +
+					"With an Accept header of application/x-ndjson, one progress line is streamed after every chunk of " +
+					"rows written, and the result is the last line",
+					content = {
+							@Content(mediaType = "application/json", schema = @Schema(implementation = ImportResult.class)),
+							@Content(mediaType = "application/x-ndjson", schema = @Schema(implementation = ImportProgress.class))
+					}
+			)
+	})
+	public ResponseEntity<Object> importStudents(
+			HttpServletRequest request,
+			HttpServletResponse response,
+			@RequestHeader(value = HttpHeaders.ACCEPT, required = false)
+					String accept
+	) {
+		return serviceHandler.processStreamingService(ServiceOperation.IMPORT_STUDENTS, response, (responseBuilder) -> {
+			final ImportFormat format = ImportFormat.fromContentType(request.getContentType()).orElseThrow();
+			final Charset charset = request.getCharacterEncoding() == null ?
+					StandardCharsets.UTF_8 : Charset.forName(request.getCharacterEncoding());
+			if (ImportService.reportsProgress(accept)) {
+				responseBuilder.contentType(ImportService.PROGRESS_MEDIA_TYPE).bodyWriter(outputStream ->
+						this.importService.importStudents(request.getInputStream(), charset, format, outputStream));
+				return;
+			}
+
+			try {
+				responseBuilder.responseBody(this.importService.importStudents(request.getInputStream(), charset, format));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+
 	@GetMapping("")
 	@Operation(summary = "List students")
 	@ApiResponses(value = {
@@ -81,35 +165,107 @@ public class StudentController {
 			@Parameter(description = "Page number")
 			@RequestParam(value = "page", required = false, defaultValue = "0")
 					int pageNumber,
-			@Parameter(description = "Page size")
+			@Parameter(description = "Page size, at most " + PaginationDto.MAX_PAGE_SIZE)
 			@RequestParam(value = "size", required = false, defaultValue = "10")
-					int pageSize) {
-
-		return serviceHandler.processService((responseBuilder) -> {
-			Pageable pageable = PageRequest.of(pageNumber, pageSize);
-			Page<Student> response = noCoursesOnly ?
-					this.studentRepository.findStudentsWithNoCourses(pageable) :
-					this.studentRepository.findAll(pageable);
-			responseBuilder.responseBody(new StudentPagedResponse(response));
+					int pageSize,
+			@Parameter(description = "Sort key: id, name (last name) or email")
+			@RequestParam(value = "sort", required = false, defaultValue = "id")
+					String sort,
+			@Parameter(description = "Cursor returned as nextCursor by the previous page. When given, the page number is ignored")
+			@RequestParam(value = "after", required = false)
+					String after,
+			@Parameter(description = "How to report totalElements: exact, approximate or none. " +
+					"Defaults to exact for page numbers and none for cursors")
+			@RequestParam(value = "total", required = false)
+					String total) {
+
+		return serviceHandler.processService(ServiceOperation.LIST_STUDENTS, (responseBuilder) -> {
+			final Optional<StudentSortKey> sortKey = StudentSortKey.fromParameter(sort);
+			if (sortKey.isEmpty()) {
+				final Map<String, String> responseBody = Map.of("message", "Unknown sort key", "sort", sort);
+				responseBuilder.responseBody(responseBody).statusCode(HttpStatus.BAD_REQUEST);
+				return;
+			}
+
+			final Optional<TotalCount> totalCount = total == null ?
+					Optional.of(after == null ? TotalCount.EXACT : TotalCount.NONE) :
+					TotalCount.fromParameter(total);
+			if (totalCount.isEmpty()) {
+				final Map<String, String> responseBody = Map.of("message", "Unknown total mode", "total", total);
+				responseBuilder.responseBody(responseBody).statusCode(HttpStatus.BAD_REQUEST);
+				return;
+			}
+
+			final int boundedPageSize = PaginationDto.boundedPageSize(pageSize);
+			if (after != null) {
+				final Optional<PageCursor> cursor = PageCursor.decode(after)
+						.filter(decoded -> decoded.sort().equals(sortKey.get().getParameter()));
+				if (cursor.isEmpty()) {
+					final Map<String, String> responseBody = Map.of("message", "Invalid cursor for this sort key");
+					responseBuilder.responseBody(responseBody).statusCode(HttpStatus.BAD_REQUEST);
+					return;
+				}
+
+				final List<StudentView> rows = this.studentRepository.findStudentsAfter(
+						sortKey.get(), cursor.get(), noCoursesOnly, boundedPageSize + 1);
+				responseBuilder.responseBody(new StudentPagedResponse(rows, boundedPageSize,
+						countStudents(totalCount.get(), noCoursesOnly), totalCount.get() == TotalCount.APPROXIMATE,
+						sortKey.get()::cursorOf));
+				return;
+			}
+
+			Pageable pageable = PageRequest.of(pageNumber, boundedPageSize, sortKey.get().toSort());
+			if (totalCount.get() == TotalCount.EXACT) {
+				Page<StudentView> response = noCoursesOnly ?
+						this.studentRepository.findStudentsWithNoCourses(pageable) :
+						this.studentRepository.findStudents(pageable);
+				responseBuilder.responseBody(new StudentPagedResponse(response, sortKey.get()::cursorOf));
+				return;
+			}
+
+			Slice<StudentView> response = noCoursesOnly ?
+					this.studentRepository.findSliceOfStudentsWithNoCourses(pageable) :
+					this.studentRepository.findSliceOfStudents(pageable);
+			responseBuilder.responseBody(new StudentPagedResponse(response,
+					countStudents(totalCount.get(), noCoursesOnly), totalCount.get() == TotalCount.APPROXIMATE,
+					sortKey.get()::cursorOf));
 		});
 	}
 
+	private Long countStudents(TotalCount totalCount, boolean noCoursesOnly) {
+		return switch (totalCount) {
+			case EXACT -> noCoursesOnly ? this.studentRepository.countStudentsWithNoCourses() : this.studentRepository.count();
+			case APPROXIMATE -> noCoursesOnly ?
+					this.approximateCountCache.get("students.filtered", this.studentRepository::countStudentsWithNoCourses) :
+					this.approximateCountCache.get("students", this.studentRepository::count);
+			case NONE -> null;
+		};
+	}
+
 	@GetMapping("/{id}")
 	@Operation(summary = "Retrieve student")
 	@ApiResponses(value = {
 			@ApiResponse(
 					responseCode = "200", description = "Student retrieved",
-					content = {@Content(schema = @Schema(implementation = Student.class))}
+					content = {@Content(schema = @Schema(implementation = StudentView.class))}
 			),
+			@ApiResponse(responseCode = "304", description = "Student unchanged since the given ETag"),
 			@ApiResponse(responseCode = "404", description = "Student not found")
 	})
 	public ResponseEntity<Object> getStudentById(
 			@Parameter(description = "Student ID", required = true)
 			@PathVariable("id")
-					Long id
+					Long id,
+			@Parameter(description = "ETag of the copy the client already holds")
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+					String ifNoneMatch
 	) {
-		return serviceHandler.processService((responseBuilder) -> this.studentRepository.findById(id)
-				.ifPresentOrElse(responseBuilder::responseBody, () -> responseBuilder.statusCode(HttpStatus.NOT_FOUND)));
+		return serviceHandler.processService(ServiceOperation.GET_STUDENT, ifNoneMatch, (responseBuilder) -> this.studentRepository.findViewById(id)
+				.ifPresentOrElse((student) -> {
+					if (!responseBuilder.eTagMatches(HttpResponse.strongETag(student.id(), student.version()))) {
+						responseBuilder.responseBody(student);
+					}
+				}, () -> responseBuilder.statusCode(HttpStatus.NOT_FOUND)));
 	}
 
 	@GetMapping("/{id}/courses")
@@ -117,18 +273,51 @@ public class StudentController {
 	@ApiResponses(value = {
 			@ApiResponse(
 					responseCode = "200", description = "Student courses listed",
-					content = {@Content(array = @ArraySchema(schema = @Schema(implementation = Course.class)))}
+					content = {@Content(schema = @Schema(implementation = CoursePagedResponse.class))}
 			),
+			@ApiResponse(responseCode = "400", description = "Invalid cursor"),
 			@ApiResponse(responseCode = "404", description = "Student not found")
 	})
 	public ResponseEntity<Object> getStudentCourses(
 			@Parameter(description = "Student ID", required = true)
 			@PathVariable("id")
-					Long id
+					Long id,
+			@Parameter(description = "Page number")
+			@RequestParam(value = "page", required = false, defaultValue = "0")
+					int pageNumber,
+			@Parameter(description = "Page size, at most " + PaginationDto.MAX_PAGE_SIZE)
+			@RequestParam(value = "size", required = false, defaultValue = "10")
+					int pageSize,
+			@Parameter(description = "Cursor returned as nextCursor by the previous page. When given, the page number is ignored")
+			@RequestParam(value = "after", required = false)
+					String after
 	) {
-		return serviceHandler.processService((responseBuilder) -> this.studentRepository.findById(id)
-				.ifPresentOrElse(student -> responseBuilder.responseBody(student.getEnrolledCourses()),
-						() -> responseBuilder.statusCode(HttpStatus.NOT_FOUND)));
+		return serviceHandler.processService(ServiceOperation.LIST_STUDENT_COURSES, (responseBuilder) -> {
+			if (this.studentRepository.findViewById(id).isEmpty()) {
+				responseBuilder.statusCode(HttpStatus.NOT_FOUND);
+				return;
+			}
+
+			final int boundedPageSize = PaginationDto.boundedPageSize(pageSize);
+			if (after != null) {
+				final Optional<PageCursor> cursor = PageCursor.decode(after)
+						.filter(decoded -> decoded.sort().equals(CourseSortKey.ID.getParameter()));
+				if (cursor.isEmpty()) {
+					final Map<String, String> responseBody = Map.of("message", "Invalid cursor for this sort key");
+					responseBuilder.responseBody(responseBody).statusCode(HttpStatus.BAD_REQUEST);
+					return;
+				}
+
+				final List<CourseView> rows = this.courseRepository.findTakenByStudentAfter(
+						id, cursor.get().id(), PageRequest.of(0, boundedPageSize + 1));
+				responseBuilder.responseBody(new CoursePagedResponse(rows, boundedPageSize, null, false,
+						CourseSortKey.ID::cursorOf));
+				return;
+			}
+
+			final Page<CourseView> response = this.courseRepository.findTakenByStudent(id, PageRequest.of(pageNumber, boundedPageSize));
+			responseBuilder.responseBody(new CoursePagedResponse(response, CourseSortKey.ID::cursorOf));
+		});
 	}
 
 	@PutMapping("/{id}")
@@ -138,7 +327,9 @@ public class StudentController {
 					responseCode = "200", description = "Student updated",
 					content = {@Content(schema = @Schema(implementation = Student.class))}
 			),
-			@ApiResponse(responseCode = "404", description = "Student not found")
+			@ApiResponse(responseCode = "400", description = "Another student is registered with the given email address"),
+			@ApiResponse(responseCode = "404", description = "Student not found"),
+			@ApiResponse(responseCode = "412", description = "Student changed since the given ETag")
 	})
 	public ResponseEntity<Object> updateStudent(
 			@Parameter(description = "Student ID", required = true)
@@ -146,14 +337,28 @@ public class StudentController {
 					Long id,
 			@Parameter(description = "student", required = true)
 			@RequestBody
-					StudentDto student
+					StudentDto student,
+			@Parameter(description = "ETag of the student the update was made from, to update only if unchanged since")
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+					String ifMatch
 	) {
-		return serviceHandler.processService((responseBuilder) -> this.studentRepository.findById(id)
+		return serviceHandler.processService(ServiceOperation.UPDATE_STUDENT, (responseBuilder) -> this.studentRepository.findById(id)
 				.ifPresentOrElse((studentFromDb) -> {
+					if (!HttpResponse.ifMatchAllows(ifMatch, HttpResponse.strongETag(studentFromDb.getId(), studentFromDb.getVersion()))) {
+						final Map<String, String> responseBody = Map.of("message", "Student changed since the given ETag");
+						responseBuilder.responseBody(responseBody).statusCode(HttpStatus.PRECONDITION_FAILED);
+						return;
+					}
+
 					studentFromDb.setFirstName(student.getFirstName());
 					studentFromDb.setLastName(student.getLastName());
 					studentFromDb.setEmailAddress(student.getEmailAddress());
-					this.studentRepository.save(studentFromDb);
+					try {
+						this.enrollmentService.updateStudent(studentFromDb);
+					} catch (DataIntegrityViolationException e) {
+						duplicateEmailAddress(responseBuilder, student.getEmailAddress());
+						return;
+					}
 					responseBuilder.responseBody(student);
 				}, () -> responseBuilder.statusCode(HttpStatus.NOT_FOUND)));
 	}
@@ -170,9 +375,9 @@ public class StudentController {
 			@PathVariable("id")
 					Long id
 	) {
-		return serviceHandler.processService((responseBuilder) -> this.studentRepository.findById(id)
-				.ifPresentOrElse((studentFromDb) -> {
-					this.studentRepository.deleteById(id);
+		return serviceHandler.processService(ServiceOperation.DELETE_STUDENT, (responseBuilder) -> this.studentRepository.findViewById(id)
+				.ifPresentOrElse((student) -> {
+					this.enrollmentService.deleteStudent(id);
 					responseBuilder.statusCode(HttpStatus.NO_CONTENT);
 				}, () -> responseBuilder.statusCode(HttpStatus.NOT_FOUND)));
 	}
@@ -0,0 +1,22 @@
+package com.exercise.school.controller;
+
+import java.util.Locale;
+
+/**
+ * Kinds of requests that get a concurrency limit of their own, so that a surge of one cannot crowd out the others.
+ */
+public enum Traffic {
+	READ,
+	ENROLLMENT,
+	/**
+	 * Registrations, imports, updates and deletions.
+	 */
+	WRITE;
+
+	/**
+	 * @return the name used in properties and metric tags, such as {@code enrollment}
+	 */
+	public String getTag() {
+		return name().toLowerCase(Locale.ROOT);
+	}
+}
@@ -8,27 +8,49 @@ import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "course")
+@Table(name = "course", indexes = @Index(name = "idx_course_name", columnList = "name, id"))
 @Data
 @EqualsAndHashCode(exclude = "enrolledStudents")
-@JsonIgnoreProperties({"enrolledStudents"})
+@JsonIgnoreProperties({"enrolledStudents", "enrolledStudentsCount", "version", "rosterVersion"})
 public class Course {
 	@Id
-	@GeneratedValue
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "course_id_seq")
+	@SequenceGenerator(name = "course_id_seq", sequenceName = "course_id_seq", allocationSize = 50)
 	long id;
 
 	@Column(name = "name", nullable = false)
 	String name;
 
+	/**
+	 * Only written on insert. Afterwards it is maintained by the enrollment queries, so saving a course never
+	 * overwrites a concurrent change with the value it was loaded with.
+	 */
+	@Column(name = "enrolled_students_count", nullable = false, updatable = false)
+	int enrolledStudentsCount;
+
+	@Version
+	@Column(name = "version", nullable = false)
+	long version;
+
+	/**
+	 * Changes whenever a student joins or leaves the course, or an enrolled student is updated.
+	 */
+	@Column(name = "roster_version", nullable = false, updatable = false)
+	long rosterVersion;
+
 	@ManyToMany(fetch = FetchType.LAZY)
 	@JoinTable(
 			name = "course_enrollment",
@@ -0,0 +1,22 @@
+package com.exercise.school.database.model;
+
+import lombok.Data;
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.EmbeddedId;
+import javax.persistence.Entity;
+import javax.persistence.Table;
+
+/**
+ * The join table behind {@link Student#getEnrolledCourses()} and {@link Course#getEnrolledStudents()}, mapped so
+ * queries can filter on it directly instead of joining through both collections. Rows are written by the enrollment
+ * queries, never through this entity.
+ */
+@Entity
+@Immutable
+@Table(name = "course_enrollment")
+@Data
+public class CourseEnrollment {
+	@EmbeddedId
+	CourseEnrollmentId id;
+}
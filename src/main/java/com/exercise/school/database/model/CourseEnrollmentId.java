@@ -0,0 +1,17 @@
+package com.exercise.school.database.model;
+
+import lombok.Data;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import java.io.Serializable;
+
+@Embeddable
+@Data
+public class CourseEnrollmentId implements Serializable {
+	@Column(name = "course_id", nullable = false)
+	long courseId;
+
+	@Column(name = "student_id", nullable = false)
+	long studentId;
+}
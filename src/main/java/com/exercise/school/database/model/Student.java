@@ -8,22 +8,30 @@ import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "student")
+@Table(name = "student", indexes = {
+		@Index(name = "idx_student_last_name", columnList = "last_name, id"),
+		@Index(name = "uk_student_email_address", columnList = "email_address", unique = true)
+})
 @Data
 @EqualsAndHashCode(exclude = "enrolledCourses")
-@JsonIgnoreProperties("enrolledCourses")
+@JsonIgnoreProperties({"enrolledCourses", "enrolledCoursesCount", "version"})
 public class Student {
 	@Id
-	@GeneratedValue
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "student_id_seq")
+	@SequenceGenerator(name = "student_id_seq", sequenceName = "student_id_seq", allocationSize = 50)
 	long id;
 
 	@Column(name = "first_name", nullable = false)
@@ -35,11 +43,23 @@ public class Student {
 	@Column(name = "email_address", nullable = false)
 	String emailAddress;
 
+	/**
+	 * Only written on insert. Afterwards it is maintained by the enrollment queries, so saving a student never
+	 * overwrites a concurrent change with the value it was loaded with.
+	 */
+	@Column(name = "enrolled_courses_count", nullable = false, updatable = false)
+	int enrolledCoursesCount;
+
+	@Version
+	@Column(name = "version", nullable = false)
+	long version;
+
 	@ManyToMany(fetch = FetchType.LAZY)
 	@JoinTable(
 			name = "course_enrollment",
 			joinColumns = @JoinColumn(name = "student_id"),
-			inverseJoinColumns = @JoinColumn(name = "course_id")
+			inverseJoinColumns = @JoinColumn(name = "course_id"),
+			indexes = @Index(name = "idx_course_enrollment_student", columnList = "student_id, course_id")
 	)
 	Set<Course> enrolledCourses = new HashSet<>();
 }
\ No newline at end of file
@@ -0,0 +1,180 @@
+package com.exercise.school.database.repository;
+
+import com.exercise.school.dto.CourseView;
+import com.exercise.school.dto.StudentView;
+import io.r2dbc.spi.Row;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Non-blocking reads of students, courses and rosters through R2DBC, for the reactive catalog. Returns the same
+ * projections as the JPA repositories, always ordered by ID. Only present along with the reactive catalog, when
+ * {@code spring.r2dbc.url} is set.
+ */
+@Repository
+@ConditionalOnExpression("!'${spring.r2dbc.url:}'.isBlank()")
+public class CatalogReadRepository {
+	/**
+	 * Rows read per query when streaming a whole table.
+	 */
+	public static final int STREAM_CHUNK_SIZE = 500;
+
+	private static final String STUDENT_VIEW = "SELECT s.id, s.first_name, s.last_name, s.email_address, s.version " +
+			"FROM student s ";
+	private static final String COURSE_VIEW = "SELECT c.id, c.name, c.version FROM course c ";
+	private static final String WITH_NO_COURSES = "NOT EXISTS (SELECT 1 FROM course_enrollment e WHERE e.student_id = s.id) ";
+	private static final String WITH_NO_STUDENTS = "NOT EXISTS (SELECT 1 FROM course_enrollment e WHERE e.course_id = c.id) ";
+	private static final String ENROLLED_IN_COURSE = "JOIN course_enrollment e ON e.student_id = s.id " +
+			"WHERE e.course_id = :courseId ";
+
+	@Autowired
+	private DatabaseClient databaseClient;
+
+	public Mono<StudentView> findStudentById(long id) {
+		return this.databaseClient.sql(STUDENT_VIEW + "WHERE s.id = :id")
+				.bind("id", id)
+				.map(CatalogReadRepository::toStudentView)
+				.one();
+	}
+
+	/**
+	 * @param noCoursesOnly whether to read only students enrolled in no courses
+	 */
+	public Flux<StudentView> findStudents(boolean noCoursesOnly, long offset, int limit) {
+		return this.databaseClient.sql(STUDENT_VIEW + (noCoursesOnly ? "WHERE " + WITH_NO_COURSES : "") +
+						"ORDER BY s.id LIMIT :limit OFFSET :offset")
+				.bind("limit", limit)
+				.bind("offset", offset)
+				.map(CatalogReadRepository::toStudentView)
+				.all();
+	}
+
+	public Flux<StudentView> findStudentsAfter(boolean noCoursesOnly, long id, int limit) {
+		return this.databaseClient.sql(STUDENT_VIEW + "WHERE s.id > :id " + (noCoursesOnly ? "AND " + WITH_NO_COURSES : "") +
+						"ORDER BY s.id LIMIT :limit")
+				.bind("id", id)
+				.bind("limit", limit)
+				.map(CatalogReadRepository::toStudentView)
+				.all();
+	}
+
+	public Mono<Long> countStudents(boolean noCoursesOnly) {
+		return count("SELECT COUNT(*) FROM student s " + (noCoursesOnly ? "WHERE " + WITH_NO_COURSES : ""));
+	}
+
+	/**
+	 * Reads every student in chunks of {@link #STREAM_CHUNK_SIZE}, fetching the next chunk only once the subscriber
+	 * has asked for its rows. No connection is held while a slow subscriber works through a chunk.
+	 */
+	public Flux<StudentView> streamStudents() {
+		return inChunks(after -> findStudentsAfter(false, after, STREAM_CHUNK_SIZE), StudentView::id);
+	}
+
+	public Mono<CourseView> findCourseById(long id) {
+		return this.databaseClient.sql(COURSE_VIEW + "WHERE c.id = :id")
+				.bind("id", id)
+				.map(CatalogReadRepository::toCourseView)
+				.one();
+	}
+
+	/**
+	 * @param noStudentsOnly whether to read only courses with no students enrolled
+	 */
+	public Flux<CourseView> findCourses(boolean noStudentsOnly, long offset, int limit) {
+		return this.databaseClient.sql(COURSE_VIEW + (noStudentsOnly ? "WHERE " + WITH_NO_STUDENTS : "") +
+						"ORDER BY c.id LIMIT :limit OFFSET :offset")
+				.bind("limit", limit)
+				.bind("offset", offset)
+				.map(CatalogReadRepository::toCourseView)
+				.all();
+	}
+
+	public Flux<CourseView> findCoursesAfter(boolean noStudentsOnly, long id, int limit) {
+		return this.databaseClient.sql(COURSE_VIEW + "WHERE c.id > :id " + (noStudentsOnly ? "AND " + WITH_NO_STUDENTS : "") +
+						"ORDER BY c.id LIMIT :limit")
+				.bind("id", id)
+				.bind("limit", limit)
+				.map(CatalogReadRepository::toCourseView)
+				.all();
+	}
+
+	public Mono<Long> countCourses(boolean noStudentsOnly) {
+		return count("SELECT COUNT(*) FROM course c " + (noStudentsOnly ? "WHERE " + WITH_NO_STUDENTS : ""));
+	}
+
+	/**
+	 * @see #streamStudents()
+	 */
+	public Flux<CourseView> streamCourses() {
+		return inChunks(after -> findCoursesAfter(false, after, STREAM_CHUNK_SIZE), CourseView::id);
+	}
+
+	/**
+	 * @return the roster version of the course, or nothing when there is no such course
+	 */
+	public Mono<Long> findRosterVersionById(long courseId) {
+		return this.databaseClient.sql("SELECT roster_version FROM course WHERE id = :courseId")
+				.bind("courseId", courseId)
+				.map(row -> row.get("roster_version", Long.class))
+				.one();
+	}
+
+	public Flux<StudentView> findEnrolledInCourse(long courseId, long offset, int limit) {
+		return this.databaseClient.sql(STUDENT_VIEW + ENROLLED_IN_COURSE + "ORDER BY s.id LIMIT :limit OFFSET :offset")
+				.bind("courseId", courseId)
+				.bind("limit", limit)
+				.bind("offset", offset)
+				.map(CatalogReadRepository::toStudentView)
+				.all();
+	}
+
+	public Flux<StudentView> findEnrolledInCourseAfter(long courseId, long id, int limit) {
+		return this.databaseClient.sql(STUDENT_VIEW + ENROLLED_IN_COURSE + "AND s.id > :id ORDER BY s.id LIMIT :limit")
+				.bind("courseId", courseId)
+				.bind("id", id)
+				.bind("limit", limit)
+				.map(CatalogReadRepository::toStudentView)
+				.all();
+	}
+
+	public Mono<Long> countEnrolledInCourse(long courseId) {
+		return this.databaseClient.sql("SELECT COUNT(*) FROM course_enrollment WHERE course_id = :courseId")
+				.bind("courseId", courseId)
+				.map(row -> row.get(0, Long.class))
+				.one();
+	}
+
+	private Mono<Long> count(String sql) {
+		return this.databaseClient.sql(sql)
+				.map(row -> row.get(0, Long.class))
+				.one();
+	}
+
+	/**
+	 * @param chunkAfter reads the chunk of rows following an ID
+	 */
+	private static <T> Flux<T> inChunks(Function<Long, Flux<T>> chunkAfter, Function<T, Long> idOf) {
+		return chunkAfter.apply(0L).collectList()
+				.expand(chunk -> chunk.size() < STREAM_CHUNK_SIZE ?
+						Mono.empty() :
+						chunkAfter.apply(idOf.apply(chunk.get(chunk.size() - 1))).collectList())
+				.concatMapIterable(Function.<List<T>>identity(), 1);
+	}
+
+	private static StudentView toStudentView(Row row) {
+		return new StudentView(row.get("id", Long.class), row.get("first_name", String.class),
+				row.get("last_name", String.class), row.get("email_address", String.class),
+				row.get("version", Long.class));
+	}
+
+	private static CourseView toCourseView(Row row) {
+		return new CourseView(row.get("id", Long.class), row.get("name", String.class), row.get("version", Long.class));
+	}
+}
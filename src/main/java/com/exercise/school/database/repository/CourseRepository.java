@@ -1,14 +1,148 @@
 
 package com.exercise.school.database.repository;
 
+import com.exercise.school.configuration.ApplicationCacheConfig;
 import com.exercise.school.database.model.Course;
+import com.exercise.school.dto.CourseView;
+import com.exercise.school.dto.EnrollmentReportRow;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
-public interface CourseRepository extends JpaRepository<Course, Long> {
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
-	@Query("SELECT c FROM Course c WHERE c.enrolledStudents IS EMPTY")
-	Page<Course> findCoursesWithNoStudents(Pageable pageable);
-}
\ No newline at end of file
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+public interface CourseRepository extends JpaRepository<Course, Long>, CourseRepositoryCustom {
+	String COURSE_VIEW = "SELECT new com.exercise.school.dto.CourseView(c.id, c.name, c.version) ";
+	String TAKEN_BY_STUDENT = "FROM CourseEnrollment e JOIN Course c ON c.id = e.id.courseId WHERE e.id.studentId = :studentId ";
+	/**
+	 * Anti-join served by the primary key of the join table.
+	 */
+	String WITH_NO_STUDENTS = "WHERE NOT EXISTS (SELECT 1 FROM CourseEnrollment e WHERE e.id.courseId = c.id)";
+
+	@Cacheable(cacheNames = ApplicationCacheConfig.COURSES, key = "#p0", unless = ApplicationCacheConfig.UNLESS_MISSING_OR_FROM_REPLICA)
+	@Query(COURSE_VIEW + "FROM Course c WHERE c.id = :id")
+	Optional<CourseView> findViewById(@Param("id") long id);
+
+	@Override
+	@CacheEvict(cacheNames = ApplicationCacheConfig.COURSES, key = "#p0.id")
+	<S extends Course> S save(S entity);
+
+	@Override
+	@CacheEvict(cacheNames = ApplicationCacheConfig.COURSES, key = "#p0")
+	void deleteById(Long id);
+
+	@Override
+	@CacheEvict(cacheNames = ApplicationCacheConfig.COURSES, allEntries = true)
+	void deleteAll();
+
+	@Query("SELECT c.rosterVersion FROM Course c WHERE c.id = :courseId")
+	Optional<Long> findRosterVersionById(@Param("courseId") long courseId);
+
+	@Query(value = COURSE_VIEW + "FROM Course c", countQuery = "SELECT COUNT(c) FROM Course c")
+	Page<CourseView> findCourses(Pageable pageable);
+
+	@Query(value = COURSE_VIEW + "FROM Course c " + WITH_NO_STUDENTS,
+			countQuery = "SELECT COUNT(c) FROM Course c " + WITH_NO_STUDENTS)
+	Page<CourseView> findCoursesWithNoStudents(Pageable pageable);
+
+	/**
+	 * Walks the student index of the join table in course order, and joins only the courses of the page. The count
+	 * reads the index alone.
+	 */
+	@Query(value = COURSE_VIEW + TAKEN_BY_STUDENT + "ORDER BY e.id.courseId",
+			countQuery = "SELECT COUNT(e) FROM CourseEnrollment e WHERE e.id.studentId = :studentId")
+	Page<CourseView> findTakenByStudent(@Param("studentId") long studentId, Pageable pageable);
+
+	/**
+	 * @param limit only the page size is used; rows always start right after {@code afterCourseId}
+	 */
+	@Query(COURSE_VIEW + TAKEN_BY_STUDENT + "AND e.id.courseId > :afterCourseId ORDER BY e.id.courseId")
+	List<CourseView> findTakenByStudentAfter(@Param("studentId") long studentId,
+											 @Param("afterCourseId") long afterCourseId, Pageable limit);
+
+	/**
+	 * Reads every enrollment through a forward-only cursor. Must be consumed, and closed, inside a transaction.
+	 */
+	@QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+	@Query("SELECT new com.exercise.school.dto.EnrollmentReportRow(c.id, c.name, s.id, s.firstName, s.lastName, s.emailAddress) " +
+			"FROM Course c JOIN c.enrolledStudents s ORDER BY c.id, s.id")
+	Stream<EnrollmentReportRow> streamEnrollments();
+
+	@Query(COURSE_VIEW + "FROM Course c")
+	Slice<CourseView> findSliceOfCourses(Pageable pageable);
+
+	@Query(COURSE_VIEW + "FROM Course c " + WITH_NO_STUDENTS)
+	Slice<CourseView> findSliceOfCoursesWithNoStudents(Pageable pageable);
+
+	@Query("SELECT COUNT(c) FROM Course c " + WITH_NO_STUDENTS)
+	long countCoursesWithNoStudents();
+
+	/**
+	 * Reads the seat counter and keeps the course row locked until the end of the transaction.
+	 */
+	@Query(value = "SELECT enrolled_students_count FROM course WHERE id = :courseId FOR UPDATE", nativeQuery = true)
+	Optional<Integer> lockEnrolledStudentsCount(@Param("courseId") long courseId);
+
+	@Query(value = "SELECT e.student_id FROM course_enrollment e " +
+			"WHERE e.course_id = :courseId AND e.student_id IN (:studentIds)",
+			nativeQuery = true)
+	List<Long> findEnrolledStudentIds(@Param("courseId") long courseId, @Param("studentIds") Collection<Long> studentIds);
+
+	@Modifying
+	@Query("UPDATE Course c SET c.enrolledStudentsCount = c.enrolledStudentsCount + :seats, " +
+			"c.rosterVersion = c.rosterVersion + 1 WHERE c.id = :courseId")
+	int takeSeats(@Param("courseId") long courseId, @Param("seats") int seats);
+
+	/**
+	 * Takes one seat in the course if it still has room. The row lock taken by the update serializes concurrent
+	 * enrollments in the same course, so the capacity check cannot be raced.
+	 *
+	 * @return 1 if a seat was taken, 0 if the course does not exist or is full
+	 */
+	@Modifying
+	@Query("UPDATE Course c SET c.enrolledStudentsCount = c.enrolledStudentsCount + 1, " +
+			"c.rosterVersion = c.rosterVersion + 1 WHERE c.id = :courseId AND c.enrolledStudentsCount < :capacity")
+	int reserveSeat(@Param("courseId") long courseId, @Param("capacity") int capacity);
+
+	/**
+	 * Gives back the seats held by a student in every course they are enrolled in.
+	 */
+	@Modifying
+	@Query(value = "UPDATE course SET enrolled_students_count = enrolled_students_count - 1, " +
+			"roster_version = roster_version + 1 " +
+			"WHERE id IN (SELECT e.course_id FROM course_enrollment e WHERE e.student_id = :studentId)",
+			nativeQuery = true)
+	int releaseSeatsHeldBy(@Param("studentId") long studentId);
+
+	/**
+	 * Marks the roster of every course the student is enrolled in as changed, after the student's details changed.
+	 */
+	@Modifying
+	@Query(value = "UPDATE course SET roster_version = roster_version + 1 " +
+			"WHERE id IN (SELECT e.course_id FROM course_enrollment e WHERE e.student_id = :studentId)",
+			nativeQuery = true)
+	int touchRostersOf(@Param("studentId") long studentId);
+
+	/**
+	 * @return 1 if the enrollment row was written, 0 if the student is already enrolled in the course
+	 */
+	@Modifying
+	@Query(value = "INSERT INTO course_enrollment (course_id, student_id) " +
+			"SELECT c.id, :studentId FROM course c WHERE c.id = :courseId AND NOT EXISTS (" +
+			"SELECT 1 FROM course_enrollment e WHERE e.course_id = :courseId AND e.student_id = :studentId)",
+			nativeQuery = true)
+	int insertEnrollment(@Param("courseId") long courseId, @Param("studentId") long studentId);
+}
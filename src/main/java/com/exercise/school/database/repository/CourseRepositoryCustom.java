@@ -0,0 +1,10 @@
+package com.exercise.school.database.repository;
+
+import com.exercise.school.dto.CourseView;
+import com.exercise.school.dto.PageCursor;
+
+import java.util.List;
+
+public interface CourseRepositoryCustom {
+	List<CourseView> findCoursesAfter(CourseSortKey sortKey, PageCursor after, boolean noStudentsOnly, int limit);
+}
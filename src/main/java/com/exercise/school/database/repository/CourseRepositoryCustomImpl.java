@@ -0,0 +1,24 @@
+package com.exercise.school.database.repository;
+
+import com.exercise.school.database.model.Course;
+import com.exercise.school.dto.CourseView;
+import com.exercise.school.dto.PageCursor;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+
+class CourseRepositoryCustomImpl implements CourseRepositoryCustom {
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Override
+	public List<CourseView> findCoursesAfter(CourseSortKey sortKey, PageCursor after, boolean noStudentsOnly, int limit) {
+		return KeysetQueries.findAfter(entityManager, Course.class, CourseView.class,
+				(criteriaBuilder, course) -> criteriaBuilder.construct(CourseView.class,
+						course.get("id"), course.get("name"), course.get("version")),
+				sortKey, after,
+				noStudentsOnly ? KeysetQueries.withoutEnrollments("courseId") : null,
+				limit);
+	}
+}
@@ -0,0 +1,48 @@
+package com.exercise.school.database.repository;
+
+import com.exercise.school.dto.CourseView;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+public enum CourseSortKey implements SortKey<CourseView> {
+	ID("id", ID_ATTRIBUTE) {
+		@Override
+		public String valueOf(CourseView course) {
+			return null;
+		}
+	},
+	NAME("name", "name") {
+		@Override
+		public String valueOf(CourseView course) {
+			return course.name();
+		}
+	};
+
+	private final String parameter;
+	private final String attribute;
+
+	CourseSortKey(String parameter, String attribute) {
+		this.parameter = parameter;
+		this.attribute = attribute;
+	}
+
+	public static Optional<CourseSortKey> fromParameter(String parameter) {
+		return Arrays.stream(values()).filter(key -> key.parameter.equals(parameter)).findFirst();
+	}
+
+	@Override
+	public String getParameter() {
+		return parameter;
+	}
+
+	@Override
+	public String getAttribute() {
+		return attribute;
+	}
+
+	@Override
+	public long idOf(CourseView course) {
+		return course.id();
+	}
+}
@@ -0,0 +1,26 @@
+package com.exercise.school.database.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Writes {@code course_enrollment} rows through JDBC batches. The join table has no entity of its own, so this is the
+ * only way to insert many rows in one round trip.
+ */
+@Repository
+public class EnrollmentBatchRepository {
+	private static final String INSERT_ENROLLMENT = "INSERT INTO course_enrollment (course_id, student_id) VALUES (?, ?)";
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	public void insertEnrollments(long courseId, List<Long> studentIds) {
+		this.jdbcTemplate.batchUpdate(INSERT_ENROLLMENT, studentIds, studentIds.size(), (statement, studentId) -> {
+			statement.setLong(1, courseId);
+			statement.setLong(2, studentId);
+		});
+	}
+}
@@ -0,0 +1,80 @@
+package com.exercise.school.database.repository;
+
+import com.exercise.school.database.model.CourseEnrollment;
+import com.exercise.school.database.model.CourseEnrollmentId;
+import com.exercise.school.dto.PageCursor;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import javax.persistence.criteria.Subquery;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * Builds seek queries: instead of skipping an offset, a page starts right after the row a cursor points at, so
+ * reading deep pages costs the same as reading the first one as long as the sort key is indexed.
+ */
+final class KeysetQueries {
+	private KeysetQueries() {
+	}
+
+	/**
+	 * @param selection builds the projection each row is read into
+	 * @param filter    optional extra restriction on the rows, or {@code null}
+	 */
+	static <E, V> List<V> findAfter(EntityManager entityManager, Class<E> entityType, Class<V> viewType,
+									BiFunction<CriteriaBuilder, Root<E>, Selection<V>> selection, SortKey<V> sortKey,
+									PageCursor after, Filter<E> filter, int limit) {
+		final CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+		final CriteriaQuery<V> query = criteriaBuilder.createQuery(viewType);
+		final Root<E> root = query.from(entityType);
+		final Path<Long> id = root.get(SortKey.ID_ATTRIBUTE);
+		final boolean sortedById = SortKey.ID_ATTRIBUTE.equals(sortKey.getAttribute());
+
+		final List<Predicate> predicates = new ArrayList<>();
+		if (filter != null) {
+			predicates.add(filter.apply(criteriaBuilder, query, root));
+		}
+
+		if (sortedById) {
+			predicates.add(criteriaBuilder.greaterThan(id, after.id()));
+			query.orderBy(criteriaBuilder.asc(id));
+		} else {
+			final Path<String> key = root.get(sortKey.getAttribute());
+			predicates.add(criteriaBuilder.or(
+					criteriaBuilder.greaterThan(key, after.value()),
+					criteriaBuilder.and(criteriaBuilder.equal(key, after.value()), criteriaBuilder.greaterThan(id, after.id()))
+			));
+			query.orderBy(criteriaBuilder.asc(key), criteriaBuilder.asc(id));
+		}
+
+		query.select(selection.apply(criteriaBuilder, root)).where(predicates.toArray(Predicate[]::new));
+		return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+	}
+
+	/**
+	 * Keeps only the rows with no enrollment, as an anti-join on the given side of the join table.
+	 *
+	 * @param enrollmentAttribute the {@link CourseEnrollmentId} attribute holding the ID of the filtered rows
+	 */
+	static <E> Filter<E> withoutEnrollments(String enrollmentAttribute) {
+		return (criteriaBuilder, query, root) -> {
+			final Subquery<Integer> enrollments = query.subquery(Integer.class);
+			final Root<CourseEnrollment> enrollment = enrollments.from(CourseEnrollment.class);
+			enrollments.select(criteriaBuilder.literal(1))
+					.where(criteriaBuilder.equal(enrollment.get("id").get(enrollmentAttribute), root.get(SortKey.ID_ATTRIBUTE)));
+			return criteriaBuilder.not(criteriaBuilder.exists(enrollments));
+		};
+	}
+
+	@FunctionalInterface
+	interface Filter<E> {
+		Predicate apply(CriteriaBuilder criteriaBuilder, CriteriaQuery<?> query, Root<E> root);
+	}
+}
@@ -0,0 +1,39 @@
+package com.exercise.school.database.repository;
+
+import com.exercise.school.dto.PageCursor;
+import org.springframework.data.domain.Sort;
+
+/**
+ * A column list endpoints can be ordered by. Rows are always ordered by ID after the sort key, so every row has a
+ * unique position and a page can be resumed from the last row of the previous one.
+ */
+public interface SortKey<T> {
+	String ID_ATTRIBUTE = "id";
+
+	/**
+	 * @return the name clients use for this sort key
+	 */
+	String getParameter();
+
+	/**
+	 * @return the entity attribute rows are ordered by
+	 */
+	String getAttribute();
+
+	/**
+	 * @return the value of the sort attribute, or {@code null} when sorting by ID
+	 */
+	String valueOf(T row);
+
+	long idOf(T row);
+
+	default Sort toSort() {
+		return ID_ATTRIBUTE.equals(getAttribute()) ?
+				Sort.by(ID_ATTRIBUTE) :
+				Sort.by(getAttribute()).and(Sort.by(ID_ATTRIBUTE));
+	}
+
+	default String cursorOf(T row) {
+		return new PageCursor(getParameter(), idOf(row), valueOf(row)).encode();
+	}
+}
@@ -0,0 +1,7 @@
+package com.exercise.school.database.repository;
+
+public interface StudentCourseLoad {
+	long getId();
+
+	int getEnrolledCoursesCount();
+}
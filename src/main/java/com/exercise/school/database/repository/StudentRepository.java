@@ -1,17 +1,113 @@
 package com.exercise.school.database.repository;
 
+import com.exercise.school.configuration.ApplicationCacheConfig;
 import com.exercise.school.database.model.Student;
+import com.exercise.school.dto.StudentView;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
-public interface StudentRepository extends JpaRepository<Student, Long> {
+public interface StudentRepository extends JpaRepository<Student, Long>, StudentRepositoryCustom {
+	String STUDENT_VIEW = "SELECT new com.exercise.school.dto.StudentView(s.id, s.firstName, s.lastName, s.emailAddress, s.version) ";
+	String ENROLLED_IN_COURSE = "FROM CourseEnrollment e JOIN Student s ON s.id = e.id.studentId WHERE e.id.courseId = :courseId ";
+	/**
+	 * Anti-join served by the student index of the join table.
+	 */
+	String WITH_NO_COURSES = "WHERE NOT EXISTS (SELECT 1 FROM CourseEnrollment e WHERE e.id.studentId = s.id)";
 
 	Optional<Student> findOneByEmailAddress(String emailAddress);
 
-	@Query("SELECT s FROM Student s WHERE s.enrolledCourses IS EMPTY")
-	Page<Student> findStudentsWithNoCourses(Pageable pageable);
-}
\ No newline at end of file
+	@Query("SELECT s.emailAddress FROM Student s WHERE s.emailAddress IN :emailAddresses")
+	List<String> findEmailAddressesIn(@Param("emailAddresses") Collection<String> emailAddresses);
+
+	@Cacheable(cacheNames = ApplicationCacheConfig.STUDENTS, key = "#p0", unless = ApplicationCacheConfig.UNLESS_MISSING_OR_FROM_REPLICA)
+	@Query(STUDENT_VIEW + "FROM Student s WHERE s.id = :id")
+	Optional<StudentView> findViewById(@Param("id") long id);
+
+	@Override
+	@CacheEvict(cacheNames = ApplicationCacheConfig.STUDENTS, key = "#p0.id")
+	<S extends Student> S save(S entity);
+
+	@Override
+	@CacheEvict(cacheNames = ApplicationCacheConfig.STUDENTS, key = "#p0")
+	void deleteById(Long id);
+
+	@Override
+	@CacheEvict(cacheNames = ApplicationCacheConfig.STUDENTS, allEntries = true)
+	void deleteAll();
+
+	@Query(value = STUDENT_VIEW + "FROM Student s", countQuery = "SELECT COUNT(s) FROM Student s")
+	Page<StudentView> findStudents(Pageable pageable);
+
+	@Query(value = STUDENT_VIEW + "FROM Student s " + WITH_NO_COURSES,
+			countQuery = "SELECT COUNT(s) FROM Student s " + WITH_NO_COURSES)
+	Page<StudentView> findStudentsWithNoCourses(Pageable pageable);
+
+	@Query(STUDENT_VIEW + "FROM Student s")
+	Slice<StudentView> findSliceOfStudents(Pageable pageable);
+
+	@Query(STUDENT_VIEW + "FROM Student s " + WITH_NO_COURSES)
+	Slice<StudentView> findSliceOfStudentsWithNoCourses(Pageable pageable);
+
+	@Query("SELECT COUNT(s) FROM Student s " + WITH_NO_COURSES)
+	long countStudentsWithNoCourses();
+
+	/**
+	 * Walks the primary key of the join table in student order, and joins only the students of the page. The count
+	 * reads the key alone.
+	 */
+	@Query(value = STUDENT_VIEW + ENROLLED_IN_COURSE + "ORDER BY e.id.studentId",
+			countQuery = "SELECT COUNT(e) FROM CourseEnrollment e WHERE e.id.courseId = :courseId")
+	Page<StudentView> findEnrolledInCourse(@Param("courseId") long courseId, Pageable pageable);
+
+	/**
+	 * @param limit only the page size is used; rows always start right after {@code afterStudentId}
+	 */
+	@Query(STUDENT_VIEW + ENROLLED_IN_COURSE + "AND e.id.studentId > :afterStudentId ORDER BY e.id.studentId")
+	List<StudentView> findEnrolledInCourseAfter(@Param("courseId") long courseId,
+												@Param("afterStudentId") long afterStudentId, Pageable limit);
+
+	@Query("SELECT s.enrolledCoursesCount FROM Student s WHERE s.id = :studentId")
+	Optional<Integer> findEnrolledCoursesCountById(@Param("studentId") long studentId);
+
+	/**
+	 * Reads the course counters of the given students and keeps their rows locked until the end of the transaction.
+	 */
+	@Query(value = "SELECT s.id AS id, s.enrolled_courses_count AS enrolledCoursesCount FROM student s " +
+			"WHERE s.id IN (:studentIds) ORDER BY s.id FOR UPDATE",
+			nativeQuery = true)
+	List<StudentCourseLoad> lockCourseLoads(@Param("studentIds") Collection<Long> studentIds);
+
+	@Modifying
+	@Query("UPDATE Student s SET s.enrolledCoursesCount = s.enrolledCoursesCount + 1 WHERE s.id IN :studentIds")
+	int takeCourseSlots(@Param("studentIds") Collection<Long> studentIds);
+
+	/**
+	 * Takes one of the student's course slots if they are still under the limit.
+	 *
+	 * @return 1 if a slot was taken, 0 if the student does not exist or has reached the limit
+	 */
+	@Modifying
+	@Query("UPDATE Student s SET s.enrolledCoursesCount = s.enrolledCoursesCount + 1 " +
+			"WHERE s.id = :studentId AND s.enrolledCoursesCount < :limit")
+	int reserveCourseSlot(@Param("studentId") long studentId, @Param("limit") int limit);
+
+	/**
+	 * Gives back the course slot held by every student enrolled in the given course.
+	 */
+	@Modifying
+	@Query(value = "UPDATE student SET enrolled_courses_count = enrolled_courses_count - 1 " +
+			"WHERE id IN (SELECT e.student_id FROM course_enrollment e WHERE e.course_id = :courseId)",
+			nativeQuery = true)
+	int releaseCourseSlotsHeldIn(@Param("courseId") long courseId);
+}
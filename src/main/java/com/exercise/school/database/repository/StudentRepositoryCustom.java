@@ -0,0 +1,10 @@
+package com.exercise.school.database.repository;
+
+import com.exercise.school.dto.PageCursor;
+import com.exercise.school.dto.StudentView;
+
+import java.util.List;
+
+public interface StudentRepositoryCustom {
+	List<StudentView> findStudentsAfter(StudentSortKey sortKey, PageCursor after, boolean noCoursesOnly, int limit);
+}
@@ -0,0 +1,24 @@
+package com.exercise.school.database.repository;
+
+import com.exercise.school.database.model.Student;
+import com.exercise.school.dto.PageCursor;
+import com.exercise.school.dto.StudentView;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+
+class StudentRepositoryCustomImpl implements StudentRepositoryCustom {
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Override
+	public List<StudentView> findStudentsAfter(StudentSortKey sortKey, PageCursor after, boolean noCoursesOnly, int limit) {
+		return KeysetQueries.findAfter(entityManager, Student.class, StudentView.class,
+				(criteriaBuilder, student) -> criteriaBuilder.construct(StudentView.class, student.get("id"),
+						student.get("firstName"), student.get("lastName"), student.get("emailAddress"), student.get("version")),
+				sortKey, after,
+				noCoursesOnly ? KeysetQueries.withoutEnrollments("studentId") : null,
+				limit);
+	}
+}
@@ -0,0 +1,54 @@
+package com.exercise.school.database.repository;
+
+import com.exercise.school.dto.StudentView;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+public enum StudentSortKey implements SortKey<StudentView> {
+	ID("id", ID_ATTRIBUTE) {
+		@Override
+		public String valueOf(StudentView student) {
+			return null;
+		}
+	},
+	NAME("name", "lastName") {
+		@Override
+		public String valueOf(StudentView student) {
+			return student.lastName();
+		}
+	},
+	EMAIL("email", "emailAddress") {
+		@Override
+		public String valueOf(StudentView student) {
+			return student.emailAddress();
+		}
+	};
+
+	private final String parameter;
+	private final String attribute;
+
+	StudentSortKey(String parameter, String attribute) {
+		this.parameter = parameter;
+		this.attribute = attribute;
+	}
+
+	public static Optional<StudentSortKey> fromParameter(String parameter) {
+		return Arrays.stream(values()).filter(key -> key.parameter.equals(parameter)).findFirst();
+	}
+
+	@Override
+	public String getParameter() {
+		return parameter;
+	}
+
+	@Override
+	public String getAttribute() {
+		return attribute;
+	}
+
+	@Override
+	public long idOf(StudentView student) {
+		return student.id();
+	}
+}
@@ -0,0 +1,40 @@
+package com.exercise.school.database.routing;
+
+/**
+ * Marks the work of the calling thread as read-only, so that the connections it takes from now on may come from a
+ * replica. Must be entered before the work takes its first connection: a connection already held by the persistence
+ * context is kept until the request ends.
+ */
+public final class ReadOnlyContext {
+	/**
+	 * Whether a replica connection was handed out, while the context is active.
+	 */
+	private static final ThreadLocal<Boolean> READ_ONLY = new ThreadLocal<>();
+
+	private ReadOnlyContext() {
+	}
+
+	public static void enter() {
+		READ_ONLY.set(Boolean.FALSE);
+	}
+
+	public static void exit() {
+		READ_ONLY.remove();
+	}
+
+	public static boolean isActive() {
+		return READ_ONLY.get() != null;
+	}
+
+	static void replicaConnectionTaken() {
+		READ_ONLY.set(Boolean.TRUE);
+	}
+
+	/**
+	 * @return whether the work of the calling thread has read from a replica, and may therefore have seen rows as they
+	 * were up to the allowed lag ago
+	 */
+	public static boolean hasReadFromReplica() {
+		return Boolean.TRUE.equals(READ_ONLY.get());
+	}
+}
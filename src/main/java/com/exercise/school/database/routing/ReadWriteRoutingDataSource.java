@@ -0,0 +1,218 @@
+package com.exercise.school.database.routing;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out replica connections to work running in a {@link ReadOnlyContext}, and primary connections to everything
+ * else. A read goes to a replica that passed the last check: reachable, and when a lag query is set, no further behind
+ * the primary than the allowed lag. It falls back to the primary when no replica passed, or the chosen one cannot hand
+ * out a connection.
+ */
+@Slf4j
+public class ReadWriteRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+	/**
+	 * Reads served by the primary although the request allowed a replica.
+	 */
+	public static final String FALLBACKS_METRIC = "school.datasource.replica.fallbacks";
+	/**
+	 * Replicas currently fit to serve reads.
+	 */
+	public static final String AVAILABLE_METRIC = "school.datasource.replicas.available";
+
+	/**
+	 * Lag columns of {@code SHOW REPLICA STATUS} and its older name {@code SHOW SLAVE STATUS}.
+	 */
+	private static final Set<String> LAG_COLUMNS = Set.of("seconds_behind_source", "seconds_behind_master");
+	private static final int CHECK_TIMEOUT_SECONDS = 2;
+
+	private final HikariDataSource primary;
+	private final List<Replica> replicas;
+	private final ReplicaSelection selection;
+	private final Duration maxLag;
+	private final String lagQuery;
+	private final AtomicInteger nextReplica = new AtomicInteger();
+	private final Counter fallbackCounter;
+
+	/**
+	 * @param lagQuery returns how many seconds a replica is behind the primary, or {@code null} to only check that
+	 *                 replicas are reachable
+	 */
+	public ReadWriteRoutingDataSource(HikariDataSource primary, List<HikariDataSource> replicas,
+									  ReplicaSelection selection, Duration maxLag, String lagQuery,
+									  MeterRegistry meterRegistry) {
+		this.primary = primary;
+		this.replicas = replicas.stream().map(Replica::new).toList();
+		this.selection = selection;
+		this.maxLag = maxLag;
+		this.lagQuery = lagQuery;
+		this.fallbackCounter = meterRegistry.counter(FALLBACKS_METRIC);
+		Gauge.builder(AVAILABLE_METRIC, this, ReadWriteRoutingDataSource::getAvailableReplicas)
+				.description("Replicas fit to serve reads")
+				.register(meterRegistry);
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		if (!ReadOnlyContext.isActive()) {
+			return this.primary.getConnection();
+		}
+
+		final Replica replica = select();
+		if (replica == null) {
+			this.fallbackCounter.increment();
+			return this.primary.getConnection();
+		}
+
+		try {
+			final Connection connection = replica.dataSource.getConnection();
+			ReadOnlyContext.replicaConnectionTaken();
+			return connection;
+		} catch (SQLException | RuntimeException e) {
+			log.warn("Replica {} could not hand out a connection, reading from the primary", replica.name(), e);
+			replica.available = false;
+			this.fallbackCounter.increment();
+			return this.primary.getConnection();
+		}
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		return this.primary.getConnection(username, password);
+	}
+
+	/**
+	 * Checks every replica, and only lets those that pass serve reads until the next check.
+	 */
+	public void checkReplicas() {
+		for (Replica replica : this.replicas) {
+			final boolean available = check(replica);
+			if (available != replica.available) {
+				if (available) {
+					log.info("Replica {} serves reads", replica.name());
+				} else {
+					log.warn("Replica {} stops serving reads until it passes a check", replica.name());
+				}
+			}
+			replica.available = available;
+		}
+	}
+
+	public int getAvailableReplicas() {
+		return (int) this.replicas.stream().filter(replica -> replica.available).count();
+	}
+
+	/**
+	 * The primary pool stands in for this data source when asked about the pool, such as its size.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> T unwrap(Class<T> type) throws SQLException {
+		return type.isInstance(this) ? (T) this : this.primary.unwrap(type);
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> type) throws SQLException {
+		return type.isInstance(this) || this.primary.isWrapperFor(type);
+	}
+
+	@Override
+	public void close() {
+		this.replicas.forEach(replica -> replica.dataSource.close());
+		this.primary.close();
+	}
+
+	private Replica select() {
+		final List<Replica> available = this.replicas.stream().filter(replica -> replica.available).toList();
+		if (available.isEmpty()) {
+			return null;
+		}
+
+		return switch (this.selection) {
+			case ROUND_ROBIN -> available.get(Math.floorMod(this.nextReplica.getAndIncrement(), available.size()));
+			case LEAST_LOADED -> available.stream().min(Comparator.comparingInt(Replica::load)).orElseThrow();
+		};
+	}
+
+	private boolean check(Replica replica) {
+		try (Connection connection = replica.dataSource.getConnection()) {
+			if (this.lagQuery == null) {
+				return connection.isValid(CHECK_TIMEOUT_SECONDS);
+			}
+
+			final Long lagSeconds = lagSeconds(connection);
+			if (lagSeconds == null) {
+				log.debug("Replica {} reports no lag, it may not be replicating", replica.name());
+				return false;
+			}
+			return lagSeconds <= this.maxLag.toSeconds();
+		} catch (SQLException | RuntimeException e) {
+			log.debug("Replica {} failed its check", replica.name(), e);
+			return false;
+		}
+	}
+
+	/**
+	 * @return the lag reported by the lag query, or {@code null} if it reported none
+	 */
+	private Long lagSeconds(Connection connection) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			statement.setQueryTimeout(CHECK_TIMEOUT_SECONDS);
+			try (ResultSet resultSet = statement.executeQuery(this.lagQuery)) {
+				if (!resultSet.next()) {
+					return null;
+				}
+
+				final Object lag = resultSet.getObject(lagColumn(resultSet.getMetaData()));
+				return lag == null ? null : Long.valueOf(lag.toString());
+			}
+		}
+	}
+
+	/**
+	 * @return the lag column of {@code SHOW REPLICA STATUS}, or else the first column
+	 */
+	private static int lagColumn(ResultSetMetaData metaData) throws SQLException {
+		for (int column = 1; column <= metaData.getColumnCount(); column++) {
+			if (LAG_COLUMNS.contains(metaData.getColumnLabel(column).toLowerCase(Locale.ROOT))) {
+				return column;
+			}
+		}
+		return 1;
+	}
+
+	private static class Replica {
+		private final HikariDataSource dataSource;
+		private volatile boolean available;
+
+		Replica(HikariDataSource dataSource) {
+			this.dataSource = dataSource;
+		}
+
+		String name() {
+			return this.dataSource.getPoolName();
+		}
+
+		int load() {
+			final HikariPoolMXBean pool = this.dataSource.getHikariPoolMXBean();
+			return pool == null ? 0 : pool.getActiveConnections() + pool.getThreadsAwaitingConnection();
+		}
+	}
+}
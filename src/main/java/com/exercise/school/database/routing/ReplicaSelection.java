@@ -0,0 +1,15 @@
+package com.exercise.school.database.routing;
+
+/**
+ * How {@link ReadWriteRoutingDataSource} picks among the replicas fit to serve a read.
+ */
+public enum ReplicaSelection {
+	/**
+	 * Each replica in turn.
+	 */
+	ROUND_ROBIN,
+	/**
+	 * The replica with the fewest connections in use or awaited.
+	 */
+	LEAST_LOADED
+}
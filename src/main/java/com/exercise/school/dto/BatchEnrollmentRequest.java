@@ -0,0 +1,6 @@
+package com.exercise.school.dto;
+
+import java.util.List;
+
+public record BatchEnrollmentRequest(List<Long> studentIds) {
+}
@@ -1,10 +1,47 @@
 package com.exercise.school.dto;
 
-import com.exercise.school.database.model.Course;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.util.DigestUtils;
 
-public class CoursePagedResponse extends PagedResponse<Course> {
-	public CoursePagedResponse(Page<Course> queryResult) {
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Function;
+
+public class CoursePagedResponse extends PagedResponse<CourseView> {
+	public CoursePagedResponse(Page<CourseView> queryResult) {
 		super(queryResult);
 	}
-}
\ No newline at end of file
+
+	public CoursePagedResponse(Page<CourseView> queryResult, Function<CourseView, String> cursorOf) {
+		super(queryResult, cursorOf);
+	}
+
+	public CoursePagedResponse(Slice<CourseView> queryResult, Long totalElements, boolean totalElementsApproximate,
+							  Function<CourseView, String> cursorOf) {
+		super(queryResult, totalElements, totalElementsApproximate, cursorOf);
+	}
+
+	public CoursePagedResponse(List<CourseView> rows, int pageSize, Long totalElements, boolean totalElementsApproximate,
+							  Function<CourseView, String> cursorOf) {
+		super(rows, pageSize, totalElements, totalElementsApproximate, cursorOf);
+	}
+
+	public CoursePagedResponse(PagedResponse<CourseView> response) {
+		super(response);
+	}
+
+	/**
+	 * Derived from what the response shows, so it changes with the courses on the page and the pagination, but not
+	 * with enrollments into courses that stay listed.
+	 *
+	 * @return a strong entity tag over the pagination and the ID and version of every course on the page
+	 */
+	public String eTag() {
+		final StringBuilder page = new StringBuilder(getPagination().toString());
+		for (CourseView course : getContent()) {
+			page.append(',').append(course.id()).append(':').append(course.version());
+		}
+		return HttpResponse.strongETag("courses", DigestUtils.md5DigestAsHex(page.toString().getBytes(StandardCharsets.UTF_8)));
+	}
+}
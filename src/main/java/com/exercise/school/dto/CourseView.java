@@ -0,0 +1,11 @@
+package com.exercise.school.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Read-only projection of a course holding just the columns the API returns, so reads never build managed entities.
+ *
+ * @param version row version, used as the ETag of the course
+ */
+public record CourseView(long id, String name, @JsonIgnore long version) {
+}
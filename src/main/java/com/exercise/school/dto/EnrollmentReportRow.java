@@ -0,0 +1,5 @@
+package com.exercise.school.dto;
+
+public record EnrollmentReportRow(long courseId, String courseName, long studentId, String firstName, String lastName,
+								  String emailAddress) {
+}
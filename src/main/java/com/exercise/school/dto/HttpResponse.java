@@ -1,9 +1,18 @@
 package com.exercise.school.dto;
 
 import lombok.Builder;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
 @Builder
 public class HttpResponse {
     @Builder.Default
@@ -11,7 +20,118 @@ public class HttpResponse {
 
     private Object responseBody;
 
+    private String eTag;
+
+    private MediaType contentType;
+
+    /**
+     * Writes the body while it is produced, in place of a {@code responseBody}. Only honoured by
+     * {@code ServiceHandler.processStreamingService}.
+     */
+    private BodyWriter bodyWriter;
+
+    /**
+     * Where the created or accepted resource can be found, sent as the Location header.
+     */
+    private URI location;
+
+    /**
+     * How long the client should wait before trying again, sent as the Retry-After header in whole seconds.
+     */
+    private Duration retryAfter;
+
+    /**
+     * Outcome recorded on the request metrics when the status code alone does not tell it, such as why an enrollment
+     * was rejected.
+     */
+    private String outcome;
+
+    /**
+     * The If-None-Match header of the request, or {@code null}.
+     */
+    private String ifNoneMatch;
+
+    /**
+     * @return a strong entity tag made of the given version markers
+     */
+    public static String strongETag(Object... parts) {
+        return Arrays.stream(parts).map(String::valueOf).collect(Collectors.joining(".", "\"", "\""));
+    }
+
+    /**
+     * @return the outcome set by the operation, or else the status class, such as {@code 2xx}
+     */
+    public String getOutcome() {
+        return outcome != null ? outcome : statusCode.series().value() + "xx";
+    }
+
+    public BodyWriter getBodyWriter() {
+        return bodyWriter;
+    }
+
     public ResponseEntity<Object> toResponseEntity() {
-        return new ResponseEntity<>(responseBody, statusCode);
+        final ResponseEntity.BodyBuilder response = ResponseEntity.status(statusCode);
+        if (contentType != null) {
+            response.contentType(contentType);
+        }
+        if (eTag != null && (statusCode.is2xxSuccessful() || statusCode == HttpStatus.NOT_MODIFIED)) {
+            response.eTag(eTag);
+        }
+        if (location != null) {
+            response.location(location);
+        }
+        if (retryAfter != null) {
+            final long seconds = Math.max(1, retryAfter.plusNanos(999_999_999).getSeconds());
+            response.header(HttpHeaders.RETRY_AFTER, Long.toString(seconds));
+        }
+        return response.body(responseBody);
+    }
+
+    /**
+     * Checks the If-Match header of a conditional write against the current version of the resource.
+     *
+     * @param ifMatch the If-Match header of the request, or {@code null} for an unconditional write
+     * @return whether the write may go ahead
+     */
+    public static boolean ifMatchAllows(String ifMatch, String eTag) {
+        return ifMatch == null || matches(ifMatch, eTag, false);
+    }
+
+    /**
+     * @param weak whether a weak tag in {@code eTags} may match, as for If-None-Match. If-Match uses the strong
+     *             comparison, where a weak tag never matches
+     */
+    private static boolean matches(String eTags, String eTag, boolean weak) {
+        if (eTags == null) {
+            return false;
+        }
+
+        return Arrays.stream(eTags.split(","))
+                .map(String::trim)
+                .map(candidate -> weak && candidate.startsWith("W/") ? candidate.substring(2) : candidate)
+                .anyMatch(candidate -> candidate.equals("*") || candidate.equals(eTag));
+    }
+
+    @FunctionalInterface
+    public interface BodyWriter {
+        void writeTo(OutputStream outputStream) throws IOException;
+    }
+
+    public static class HttpResponseBuilder {
+        /**
+         * Tags the response with the current version of the resource. When the client already holds that version
+         * the response becomes a {@code 304 Not Modified}, and the caller should not build a body.
+         *
+         * @return whether the client's copy is current
+         */
+        public boolean eTagMatches(String eTag) {
+            this.eTag(eTag);
+            if (!matches(this.ifNoneMatch, eTag, true)) {
+                return false;
+            }
+
+            this.statusCode(HttpStatus.NOT_MODIFIED);
+            return true;
+        }
     }
 }
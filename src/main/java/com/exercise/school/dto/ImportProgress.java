@@ -0,0 +1,7 @@
+package com.exercise.school.dto;
+
+/**
+ * How far a bulk import has got, reported after every chunk of rows written.
+ */
+public record ImportProgress(long rowsRead, long imported, long rejected) {
+}
@@ -0,0 +1,11 @@
+package com.exercise.school.dto;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk import. Only the first rejected rows are listed in {@code errors}; {@code errorsTruncated} tells
+ * whether more were rejected than are listed.
+ */
+public record ImportResult(long rowsRead, long imported, long rejected, List<ImportRowError> errors,
+						   boolean errorsTruncated) {
+}
@@ -0,0 +1,4 @@
+package com.exercise.school.dto;
+
+public record ImportRowError(long line, String message) {
+}
@@ -0,0 +1,40 @@
+package com.exercise.school.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Position of the last row of a page, handed to clients as an opaque token so they can ask for the rows that follow
+ * it.
+ *
+ * @param sort  the sort key the page was ordered by
+ * @param id    the ID of the last row, which breaks ties between rows with the same sort value
+ * @param value the sort value of the last row, or {@code null} when sorting by ID
+ */
+public record PageCursor(String sort, long id, String value) {
+	private static final String SEPARATOR = "\n";
+	private static final String ID_SORT = "id";
+
+	public String encode() {
+		final String plain = sort + SEPARATOR + id + (value == null ? "" : SEPARATOR + value);
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(plain.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * @return the cursor, or nothing when the token is malformed, including when it lacks the sort value of any sort
+	 * key but the ID
+	 */
+	public static Optional<PageCursor> decode(String token) {
+		try {
+			final String plain = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+			final String[] parts = plain.split(SEPARATOR, 3);
+			if (parts.length < 2 || (parts.length == 2 && !parts[0].equals(ID_SORT))) {
+				return Optional.empty();
+			}
+			return Optional.of(new PageCursor(parts[0], Long.parseLong(parts[1]), parts.length == 3 ? parts[2] : null));
+		} catch (IllegalArgumentException e) {
+			return Optional.empty();
+		}
+	}
+}
@@ -3,8 +3,10 @@ package com.exercise.school.dto;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 
 import java.util.List;
+import java.util.function.Function;
 
 @Getter
 @EqualsAndHashCode
@@ -13,13 +15,58 @@ public class PagedResponse<T> {
 	private final PaginationDto pagination;
 
 	public PagedResponse(Page<T> queryResult) {
+		this(queryResult, null);
+	}
+
+	/**
+	 * @param cursorOf builds the cursor pointing after a row, so an offset page can be continued with cursors
+	 */
+	public PagedResponse(Page<T> queryResult, Function<T, String> cursorOf) {
+		this(queryResult, queryResult.getTotalElements(), false, cursorOf);
+	}
+
+	/**
+	 * @param totalElements the total to report, or {@code null} to leave it out
+	 * @param cursorOf      builds the cursor pointing after a row, so an offset page can be continued with cursors
+	 */
+	public PagedResponse(Slice<T> queryResult, Long totalElements, boolean totalElementsApproximate,
+						 Function<T, String> cursorOf) {
 		this.content = queryResult.getContent();
 		this.pagination = new PaginationDto(
 				queryResult.getPageable().getOffset(),
 				queryResult.getNumber(),
 				queryResult.getSize(),
 				queryResult.isLast(),
-				queryResult.getTotalElements()
+				totalElements,
+				queryResult.isLast() || cursorOf == null || content.isEmpty() ?
+						null : cursorOf.apply(content.get(content.size() - 1)),
+				totalElementsApproximate
+		);
+	}
+
+	protected PagedResponse(PagedResponse<T> response) {
+		this.content = response.content;
+		this.pagination = response.pagination;
+	}
+
+	/**
+	 * @param rows          rows read after a cursor, up to one more than the page size so the last page can be
+	 *                      detected
+	 * @param totalElements the total to report, or {@code null} to leave it out
+	 * @param cursorOf      builds the cursor pointing after a row
+	 */
+	public PagedResponse(List<T> rows, int pageSize, Long totalElements, boolean totalElementsApproximate,
+						 Function<T, String> cursorOf) {
+		final boolean last = rows.size() <= pageSize;
+		this.content = last ? rows : rows.subList(0, pageSize);
+		this.pagination = new PaginationDto(
+				0,
+				0,
+				pageSize,
+				last,
+				totalElements,
+				last || content.isEmpty() ? null : cursorOf.apply(content.get(content.size() - 1)),
+				totalElementsApproximate
 		);
 	}
-}
\ No newline at end of file
+}
@@ -1,4 +1,18 @@
 package com.exercise.school.dto;
 
-public record PaginationDto(long offset, int pageNumber, int pageSize, boolean last, long totalElements) {
-}
\ No newline at end of file
+/**
+ * @param totalElements            total number of rows, or {@code null} when it was not requested
+ * @param nextCursor               token for fetching the page after this one, or {@code null} on the last page
+ * @param totalElementsApproximate whether {@code totalElements} comes from a periodically refreshed count
+ */
+public record PaginationDto(long offset, int pageNumber, int pageSize, boolean last, Long totalElements,
+							String nextCursor, boolean totalElementsApproximate) {
+	public static final int MAX_PAGE_SIZE = 100;
+
+	/**
+	 * Keeps a requested page size within what the server is willing to return in one response.
+	 */
+	public static int boundedPageSize(int requestedPageSize) {
+		return Math.max(1, Math.min(requestedPageSize, MAX_PAGE_SIZE));
+	}
+}
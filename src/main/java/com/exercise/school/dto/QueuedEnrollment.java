@@ -0,0 +1,21 @@
+package com.exercise.school.dto;
+
+import com.exercise.school.service.EnrollmentResult;
+
+import java.util.UUID;
+
+/**
+ * An enrollment request accepted by the enrollment queue.
+ *
+ * @param result the outcome once {@code status} is {@code COMPLETED}, or else {@code null}
+ */
+public record QueuedEnrollment(UUID requestId, long courseId, Long studentId, Status status, EnrollmentResult result) {
+	public enum Status {
+		QUEUED,
+		COMPLETED,
+		/**
+		 * The enrollment could not be applied because of an error, and the request can be sent again.
+		 */
+		FAILED
+	}
+}
@@ -0,0 +1,6 @@
+package com.exercise.school.dto;
+
+import com.exercise.school.service.EnrollmentResult;
+
+public record StudentEnrollmentResult(long studentId, EnrollmentResult result) {
+}
@@ -1,10 +1,27 @@
 package com.exercise.school.dto;
 
-import com.exercise.school.database.model.Student;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 
-public class StudentPagedResponse extends PagedResponse<Student> {
-	public StudentPagedResponse(Page<Student> queryResult) {
+import java.util.List;
+import java.util.function.Function;
+
+public class StudentPagedResponse extends PagedResponse<StudentView> {
+	public StudentPagedResponse(Page<StudentView> queryResult) {
 		super(queryResult);
 	}
-}
\ No newline at end of file
+
+	public StudentPagedResponse(Page<StudentView> queryResult, Function<StudentView, String> cursorOf) {
+		super(queryResult, cursorOf);
+	}
+
+	public StudentPagedResponse(Slice<StudentView> queryResult, Long totalElements, boolean totalElementsApproximate,
+							 Function<StudentView, String> cursorOf) {
+		super(queryResult, totalElements, totalElementsApproximate, cursorOf);
+	}
+
+	public StudentPagedResponse(List<StudentView> rows, int pageSize, Long totalElements, boolean totalElementsApproximate,
+							 Function<StudentView, String> cursorOf) {
+		super(rows, pageSize, totalElements, totalElementsApproximate, cursorOf);
+	}
+}
@@ -0,0 +1,11 @@
+package com.exercise.school.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Read-only projection of a student holding just the columns the API returns, so reads never build managed entities.
+ *
+ * @param version row version, used as the ETag of the student
+ */
+public record StudentView(long id, String firstName, String lastName, String emailAddress, @JsonIgnore long version) {
+}
@@ -0,0 +1,32 @@
+package com.exercise.school.dto;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * How a list endpoint works out {@code totalElements}.
+ */
+public enum TotalCount {
+	/**
+	 * Counts the matching rows with a query next to the page query.
+	 */
+	EXACT("exact"),
+	/**
+	 * Serves a count cached by the server and refreshed in the background.
+	 */
+	APPROXIMATE("approximate"),
+	/**
+	 * Leaves the total out; the page only tells whether another page follows.
+	 */
+	NONE("none");
+
+	private final String parameter;
+
+	TotalCount(String parameter) {
+		this.parameter = parameter;
+	}
+
+	public static Optional<TotalCount> fromParameter(String parameter) {
+		return Arrays.stream(values()).filter(mode -> mode.parameter.equals(parameter)).findFirst();
+	}
+}
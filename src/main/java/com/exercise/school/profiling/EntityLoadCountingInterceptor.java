@@ -0,0 +1,17 @@
+package com.exercise.school.profiling;
+
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+
+/**
+ * Counts the entities Hibernate hydrates for the {@link RequestProfile} of the calling thread.
+ */
+public class EntityLoadCountingInterceptor extends EmptyInterceptor {
+	@Override
+	public boolean onLoad(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+		RequestProfile.current().ifPresent(RequestProfile::entityLoaded);
+		return false;
+	}
+}
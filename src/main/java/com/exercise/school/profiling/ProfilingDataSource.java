@@ -0,0 +1,112 @@
+package com.exercise.school.profiling;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+
+/**
+ * Hands out connections whose statements report their execution time and fetched rows to the {@link RequestProfile}
+ * of the calling thread. Calls made outside a profiled request go straight through.
+ */
+public class ProfilingDataSource extends DelegatingDataSource implements AutoCloseable {
+	private static final Set<String> STATEMENT_FACTORIES = Set.of("createStatement", "prepareStatement", "prepareCall");
+	private static final Set<String> RESULT_SET_SOURCES = Set.of("executeQuery", "getResultSet", "getGeneratedKeys");
+
+	public ProfilingDataSource(DataSource targetDataSource) {
+		super(targetDataSource);
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		return profiled(super.getConnection());
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		return profiled(super.getConnection(username, password));
+	}
+
+	/**
+	 * Closes the wrapped pool on shutdown, as the container would have done had it not been wrapped.
+	 */
+	@Override
+	public void close() throws Exception {
+		if (getTargetDataSource() instanceof AutoCloseable closeable) {
+			closeable.close();
+		}
+	}
+
+	private static Connection profiled(Connection connection) {
+		return (Connection) proxy(Connection.class, (proxy, method, args) -> {
+			final Object result = invoke(connection, method, args);
+			return STATEMENT_FACTORIES.contains(method.getName()) ? profiled((Statement) result) : result;
+		});
+	}
+
+	private static Statement profiled(Statement statement) {
+		final Class<?> type = statement instanceof CallableStatement ? CallableStatement.class :
+				statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+		return (Statement) proxy(type, (proxy, method, args) -> {
+			final String name = method.getName();
+			if (!name.startsWith("execute")) {
+				final Object result = invoke(statement, method, args);
+				return RESULT_SET_SOURCES.contains(name) && result != null ?
+						profiled((ResultSet) result, (Statement) proxy) : result;
+			}
+
+			final long start = System.nanoTime();
+			try {
+				final Object result = invoke(statement, method, args);
+				return result instanceof ResultSet ? profiled((ResultSet) result, (Statement) proxy) : result;
+			} finally {
+				final long elapsed = System.nanoTime() - start;
+				RequestProfile.current().ifPresent(profile -> profile.statementExecuted(elapsed));
+			}
+		});
+	}
+
+	private static ResultSet profiled(ResultSet resultSet, Statement statement) {
+		return (ResultSet) proxy(ResultSet.class, (proxy, method, args) -> {
+			if ("getStatement".equals(method.getName())) {
+				return statement;
+			}
+
+			final Object result = invoke(resultSet, method, args);
+			if ("next".equals(method.getName()) && Boolean.TRUE.equals(result)) {
+				RequestProfile.current().ifPresent(RequestProfile::rowFetched);
+			}
+			return result;
+		});
+	}
+
+	/**
+	 * Proxies compare by identity, since JDBC objects are tracked in hash maps by the pool and by Hibernate.
+	 */
+	private static Object proxy(Class<?> type, InvocationHandler handler) {
+		return Proxy.newProxyInstance(ProfilingDataSource.class.getClassLoader(), new Class<?>[]{type},
+				(proxy, method, args) -> switch (method.getName()) {
+					case "equals" -> proxy == args[0];
+					case "hashCode" -> System.identityHashCode(proxy);
+					default -> handler.invoke(proxy, method, args);
+				});
+	}
+
+	private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getTargetException();
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package com.exercise.school.profiling;
+
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Database work done by the request being handled on the current thread. Only collected while profiling is enabled,
+ * and only between {@link #start()} and {@link #stop()}.
+ */
+public final class RequestProfile {
+	private static final ThreadLocal<RequestProfile> CURRENT = new ThreadLocal<>();
+
+	private int statements;
+	private long databaseNanos;
+	private long rowsFetched;
+	private int entitiesLoaded;
+
+	private RequestProfile() {
+	}
+
+	public static RequestProfile start() {
+		final RequestProfile profile = new RequestProfile();
+		CURRENT.set(profile);
+		return profile;
+	}
+
+	public static void stop() {
+		CURRENT.remove();
+	}
+
+	static Optional<RequestProfile> current() {
+		return Optional.ofNullable(CURRENT.get());
+	}
+
+	void statementExecuted(long nanos) {
+		statements++;
+		databaseNanos += nanos;
+	}
+
+	void rowFetched() {
+		rowsFetched++;
+	}
+
+	void entityLoaded() {
+		entitiesLoaded++;
+	}
+
+	public int getStatements() {
+		return statements;
+	}
+
+	public double getDatabaseMillis() {
+		return databaseNanos / 1_000_000.0;
+	}
+
+	public long getRowsFetched() {
+		return rowsFetched;
+	}
+
+	public int getEntitiesLoaded() {
+		return entitiesLoaded;
+	}
+
+	/**
+	 * @return the profile as a {@code Server-Timing} header value, with {@code totalMillis} as the application time
+	 */
+	public String toServerTiming(double totalMillis) {
+		return String.format(Locale.ROOT,
+				"app;dur=%.1f, db;dur=%.1f;desc=\"%d statements\", rows;desc=\"%d rows fetched\", " +
+						"entities;desc=\"%d entities loaded\"",
+				totalMillis, getDatabaseMillis(), statements, rowsFetched, entitiesLoaded);
+	}
+}
@@ -0,0 +1,49 @@
+package com.exercise.school.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Serves row counts for list endpoints without running a count query on every request. A count is computed the first
+ * time it is asked for and then refreshed in the background, so it may lag behind recent writes by up to the refresh
+ * interval.
+ */
+@Slf4j
+@Service
+public class ApproximateCountCache {
+	private final Map<String, CachedCount> counts = new ConcurrentHashMap<>();
+
+	/**
+	 * @param name       identifies the count; the same name must always be used with the same query
+	 * @param exactCount runs the count query, used to fill and refresh the cache
+	 */
+	public long get(String name, LongSupplier exactCount) {
+		return this.counts.computeIfAbsent(name, key -> new CachedCount(exactCount)).value;
+	}
+
+	@Scheduled(fixedDelayString = "${school.pagination.count-refresh-interval:PT30S}")
+	public void refresh() {
+		this.counts.forEach((name, count) -> {
+			try {
+				count.value = count.exactCount.getAsLong();
+			} catch (RuntimeException e) {
+				log.warn("Could not refresh count {}", name, e);
+			}
+		});
+	}
+
+	private static class CachedCount {
+		private final LongSupplier exactCount;
+		private volatile long value;
+
+		CachedCount(LongSupplier exactCount) {
+			this.exactCount = exactCount;
+			this.value = exactCount.getAsLong();
+		}
+	}
+}
@@ -0,0 +1,138 @@
+package com.exercise.school.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Serializes enrollments that touch the same course or the same student within this instance, so that they wait here
+ * in arrival order instead of piling up on the same database rows, while enrollments in other courses run in parallel.
+ * Locks are striped: each course and each student ID maps to one of a fixed number of locks, which unrelated IDs may
+ * share. The conditional updates in {@link EnrollmentService} still enforce the limits, across instances too.
+ * <p>
+ * Course stripes are always taken before student stripes, and stripes of each kind in ascending order, so two
+ * enrollments never wait on each other.
+ */
+@Service
+public class EnrollmentLocks {
+	/**
+	 * Time spent waiting for the stripes of an enrollment.
+	 */
+	public static final String WAIT_METRIC = "school.enrollment.lock.wait";
+	/**
+	 * Enrollments that found one of their stripes held by another.
+	 */
+	public static final String CONTENDED_METRIC = "school.enrollment.lock.contended";
+	/**
+	 * Enrollments given up because their stripes stayed held past the timeout.
+	 */
+	public static final String TIMEOUTS_METRIC = "school.enrollment.lock.timeouts";
+
+	private final ReentrantLock[] courseStripes;
+	private final ReentrantLock[] studentStripes;
+	private final Duration timeout;
+	private final Timer waitTimer;
+	private final Counter contendedCounter;
+	private final Counter timeoutCounter;
+
+	public EnrollmentLocks(MeterRegistry meterRegistry,
+						   @Value("${school.enrollment.lock.stripes:1024}") int stripes,
+						   @Value("${school.enrollment.lock.timeout:PT5S}") Duration timeout) {
+		this.courseStripes = newStripes(stripes);
+		this.studentStripes = newStripes(stripes);
+		this.timeout = timeout;
+		this.waitTimer = Timer.builder(WAIT_METRIC)
+				.description("Time spent waiting for the enrollment locks")
+				.publishPercentileHistogram()
+				.register(meterRegistry);
+		this.contendedCounter = meterRegistry.counter(CONTENDED_METRIC);
+		this.timeoutCounter = meterRegistry.counter(TIMEOUTS_METRIC);
+	}
+
+	/**
+	 * Runs the action holding the stripes of the course and of the students, waiting up to the timeout for them in
+	 * all. The action should commit its own transaction, so that the next enrollment sees its writes.
+	 *
+	 * @return the result of the action, or empty if the stripes could not be taken in time
+	 */
+	public <T> Optional<T> callLocked(long courseId, Collection<Long> studentIds, Supplier<T> action) {
+		final List<ReentrantLock> locks = new ArrayList<>();
+		locks.add(this.courseStripes[stripeOf(courseId, this.courseStripes.length)]);
+		studentIds.stream()
+				.filter(Objects::nonNull)
+				.map(studentId -> stripeOf(studentId, this.studentStripes.length))
+				.collect(Collectors.toCollection(TreeSet::new))
+				.forEach(stripe -> locks.add(this.studentStripes[stripe]));
+
+		final List<ReentrantLock> held = new ArrayList<>(locks.size());
+		try {
+			if (!lockAll(locks, held)) {
+				this.timeoutCounter.increment();
+				return Optional.empty();
+			}
+			return Optional.ofNullable(action.get());
+		} finally {
+			for (int i = held.size() - 1; i >= 0; i--) {
+				held.get(i).unlock();
+			}
+		}
+	}
+
+	/**
+	 * Takes the locks in order, adding each one taken to {@code held}. A free lock is still only taken once those
+	 * already waiting for it have had their turn.
+	 *
+	 * @return whether all were taken before the timeout
+	 */
+	private boolean lockAll(List<ReentrantLock> locks, List<ReentrantLock> held) {
+		final long start = System.nanoTime();
+		final long deadline = start + this.timeout.toNanos();
+		boolean contended = false;
+		try {
+			for (ReentrantLock lock : locks) {
+				if (!lock.tryLock(0, TimeUnit.NANOSECONDS)) {
+					contended = true;
+					if (!lock.tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+						return false;
+					}
+				}
+				held.add(lock);
+			}
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		} finally {
+			if (contended) {
+				this.contendedCounter.increment();
+			}
+			this.waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	private static int stripeOf(long id, int stripes) {
+		return Math.floorMod(Long.hashCode(id * 0x9E3779B97F4A7C15L), stripes);
+	}
+
+	private static ReentrantLock[] newStripes(int stripes) {
+		final ReentrantLock[] locks = new ReentrantLock[stripes];
+		for (int i = 0; i < stripes; i++) {
+			locks[i] = new ReentrantLock(true);
+		}
+		return locks;
+	}
+}
@@ -0,0 +1,241 @@
+package com.exercise.school.service;
+
+import com.exercise.school.dto.QueuedEnrollment;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.ConcurrencyFailureException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies enrollments in the background. Each course belongs to one of a fixed number of partitions, and a single
+ * worker per partition applies what is waiting there in arrival order. A worker takes everything waiting at once, up
+ * to the batch size, and commits the enrollments of each course in it together through
+ * {@link EnrollmentService#enrollQueued(long, List)}. A burst of enrollments in one course therefore costs one
+ * transaction and a fixed number of statements rather than a transaction each, and seats go to whoever asked first.
+ * <p>
+ * A course's enrollments that lost a conflict with a concurrent transaction are applied again, after the same bounded
+ * random backoff as retried requests, before they are reported as failed. Enrollments that fail for any other
+ * reason, errors included, are reported as failed, and the worker goes on with the rest of its partition.
+ * <p>
+ * Outcomes are kept for the retention period after they are known, so that clients can look them up. Enrollments
+ * still waiting when the queue is closed are applied before it stops.
+ */
+@Slf4j
+public class EnrollmentQueue {
+	private static final long POLL_INTERVAL_MILLIS = 100;
+
+	private final EnrollmentService enrollmentService;
+	private final EnrollmentLocks enrollmentLocks;
+	private final List<BlockingQueue<Ticket>> partitions;
+	private final List<Thread> workers;
+	private final int maxBatchSize;
+	private final Cache<UUID, Ticket> tickets;
+	private final int retryMaxAttempts;
+	private final Duration retryBackoff;
+	private final Duration retryMaxBackoff;
+	private volatile boolean running;
+
+	/**
+	 * @param capacity         how many enrollments may wait in each partition before requests are turned away
+	 * @param retryMaxAttempts how many times a course's enrollments are applied before a conflict fails them
+	 * @param retryBackoff     bound of the random wait before the first retry, doubled with each retry up to
+	 *                         {@code retryMaxBackoff}
+	 */
+	public EnrollmentQueue(EnrollmentService enrollmentService, EnrollmentLocks enrollmentLocks, int partitions, int capacity, int maxBatchSize,
+						   Duration retention, int retryMaxAttempts, Duration retryBackoff, Duration retryMaxBackoff) {
+		this.enrollmentService = enrollmentService;
+		this.enrollmentLocks = enrollmentLocks;
+		this.partitions = new ArrayList<>(partitions);
+		this.workers = new ArrayList<>(partitions);
+		this.maxBatchSize = maxBatchSize;
+		this.retryMaxAttempts = retryMaxAttempts;
+		this.retryBackoff = retryBackoff;
+		this.retryMaxBackoff = retryMaxBackoff;
+		this.tickets = Caffeine.newBuilder().expireAfterWrite(retention).build();
+		for (int i = 0; i < partitions; i++) {
+			final BlockingQueue<Ticket> partition = new LinkedBlockingQueue<>(capacity);
+			this.partitions.add(partition);
+			this.workers.add(new Thread(() -> work(partition), "enrollment-queue-" + i));
+		}
+	}
+
+	public void start() {
+		this.running = true;
+		this.workers.forEach(Thread::start);
+	}
+
+	/**
+	 * Stops taking enrollments and waits for the workers to apply those already waiting. Enrollments submitted while
+	 * the workers were stopping are applied here.
+	 */
+	public void close() throws InterruptedException {
+		this.running = false;
+		for (Thread worker : this.workers) {
+			worker.join();
+		}
+
+		final List<Ticket> batch = new ArrayList<>(this.maxBatchSize);
+		for (BlockingQueue<Ticket> partition : this.partitions) {
+			while (partition.drainTo(batch, this.maxBatchSize) > 0) {
+				apply(batch);
+				batch.clear();
+			}
+		}
+	}
+
+	/**
+	 * @return the accepted request, or empty if the partition of the course is full or the queue is closed
+	 */
+	public Optional<QueuedEnrollment> submit(long courseId, Long studentId) {
+		if (!this.running) {
+			return Optional.empty();
+		}
+
+		final Ticket ticket = new Ticket(UUID.randomUUID(), courseId, studentId);
+		final QueuedEnrollment queued = ticket.toQueuedEnrollment();
+		this.tickets.put(ticket.requestId, ticket);
+		final BlockingQueue<Ticket> partition = partitionOf(courseId);
+		if (!partition.offer(ticket)) {
+			this.tickets.invalidate(ticket.requestId);
+			return Optional.empty();
+		}
+
+		// Closed after the check above: unless a worker or close() took the ticket already, it would never be applied
+		if (!this.running && partition.remove(ticket)) {
+			this.tickets.invalidate(ticket.requestId);
+			return Optional.empty();
+		}
+		return Optional.of(queued);
+	}
+
+	/**
+	 * @return the request, or empty if it is unknown or its outcome is older than the retention period
+	 */
+	public Optional<QueuedEnrollment> find(UUID requestId) {
+		return Optional.ofNullable(this.tickets.getIfPresent(requestId)).map(Ticket::toQueuedEnrollment);
+	}
+
+	public int getWaiting() {
+		return this.partitions.stream().mapToInt(BlockingQueue::size).sum();
+	}
+
+	private BlockingQueue<Ticket> partitionOf(long courseId) {
+		return this.partitions.get(Math.floorMod(Long.hashCode(courseId), this.partitions.size()));
+	}
+
+	private void work(BlockingQueue<Ticket> partition) {
+		final List<Ticket> batch = new ArrayList<>(this.maxBatchSize);
+		while (this.running || !partition.isEmpty()) {
+			try {
+				final Ticket first = partition.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					continue;
+				}
+				batch.add(first);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+
+			partition.drainTo(batch, this.maxBatchSize - 1);
+			apply(batch);
+			batch.clear();
+		}
+	}
+
+	private void apply(List<Ticket> batch) {
+		final Map<Long, List<Ticket>> byCourse = new LinkedHashMap<>();
+		batch.forEach(ticket -> byCourse.computeIfAbsent(ticket.courseId, courseId -> new ArrayList<>()).add(ticket));
+
+		byCourse.forEach((courseId, courseTickets) -> {
+			final List<Long> studentIds = courseTickets.stream().map(ticket -> ticket.studentId).toList();
+			try {
+				enrollWithRetries(courseId, studentIds)
+						.ifPresentOrElse(results -> {
+							for (int i = 0; i < courseTickets.size(); i++) {
+								courseTickets.get(i).complete(results.get(i));
+							}
+						}, () -> {
+							log.warn("Gave up waiting for the locks of {} queued enrollments in course {}",
+									courseTickets.size(), courseId);
+							courseTickets.forEach(Ticket::fail);
+						});
+			} catch (Throwable e) {
+				// Errors too: the worker would die with them, and every later ticket of its partition stay queued
+				log.error("Could not apply {} queued enrollments in course {}", courseTickets.size(), courseId, e);
+				courseTickets.forEach(Ticket::fail);
+			}
+			courseTickets.forEach(ticket -> this.tickets.put(ticket.requestId, ticket));
+		});
+	}
+
+	/**
+	 * Applies a course's enrollments, and applies them again from the start when they lost a conflict with a
+	 * concurrent transaction. Each attempt first waits a random time, up to a bound that doubles with each attempt.
+	 *
+	 * @return the results, or empty if the locks could not be taken in time
+	 */
+	private Optional<List<EnrollmentResult>> enrollWithRetries(long courseId, List<Long> studentIds) {
+		long backoffNanos = this.retryBackoff.toNanos();
+		for (int attempt = 1; ; attempt++) {
+			try {
+				return this.enrollmentLocks.callLocked(courseId, studentIds,
+						() -> this.enrollmentService.enrollQueued(courseId, studentIds));
+			} catch (ConcurrencyFailureException e) {
+				if (attempt >= this.retryMaxAttempts) {
+					throw e;
+				}
+				log.debug("Queued enrollments in course {} conflicted with a concurrent transaction, retrying",
+						courseId, e);
+				try {
+					TimeUnit.NANOSECONDS.sleep(ThreadLocalRandom.current().nextLong(backoffNanos + 1));
+				} catch (InterruptedException interrupted) {
+					Thread.currentThread().interrupt();
+					throw e;
+				}
+				backoffNanos = Math.min(backoffNanos * 2, this.retryMaxBackoff.toNanos());
+			}
+		}
+	}
+
+	private static class Ticket {
+		private final UUID requestId;
+		private final long courseId;
+		private final Long studentId;
+		private volatile QueuedEnrollment.Status status = QueuedEnrollment.Status.QUEUED;
+		private volatile EnrollmentResult result;
+
+		Ticket(UUID requestId, long courseId, Long studentId) {
+			this.requestId = requestId;
+			this.courseId = courseId;
+			this.studentId = studentId;
+		}
+
+		void complete(EnrollmentResult result) {
+			this.result = result;
+			this.status = QueuedEnrollment.Status.COMPLETED;
+		}
+
+		void fail() {
+			this.status = QueuedEnrollment.Status.FAILED;
+		}
+
+		QueuedEnrollment toQueuedEnrollment() {
+			final QueuedEnrollment.Status currentStatus = this.status;
+			return new QueuedEnrollment(this.requestId, this.courseId, this.studentId, currentStatus,
+					currentStatus == QueuedEnrollment.Status.COMPLETED ? this.result : null);
+		}
+	}
+}
@@ -0,0 +1,48 @@
+package com.exercise.school.service;
+
+import com.exercise.school.database.repository.CourseRepository;
+import com.exercise.school.dto.EnrollmentReportRow;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes every (course, student) pair straight from a database cursor to the client. Rows are projected into small
+ * DTOs rather than entities, so nothing accumulates in the persistence context and memory use does not depend on the
+ * number of enrollments.
+ */
+@Service
+public class EnrollmentReportService {
+	@Autowired
+	private CourseRepository courseRepository;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Transactional(readOnly = true)
+	public void writeEnrollments(OutputStream outputStream, ReportFormat format) {
+		final Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+
+		try (Stream<EnrollmentReportRow> rows = this.courseRepository.streamEnrollments()) {
+			format.writeHeader(writer);
+			final Iterator<EnrollmentReportRow> iterator = rows.iterator();
+			while (iterator.hasNext()) {
+				format.writeRow(writer, this.objectMapper, iterator.next());
+			}
+			writer.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -0,0 +1,10 @@
+package com.exercise.school.service;
+
+public enum EnrollmentResult {
+	ENROLLED,
+	ALREADY_ENROLLED,
+	COURSE_NOT_FOUND,
+	STUDENT_NOT_FOUND,
+	COURSE_FULL,
+	STUDENT_COURSE_LIMIT_REACHED
+}
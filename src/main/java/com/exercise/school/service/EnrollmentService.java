@@ -0,0 +1,210 @@
+package com.exercise.school.service;
+
+import com.exercise.school.database.model.Student;
+import com.exercise.school.database.repository.CourseRepository;
+import com.exercise.school.database.repository.EnrollmentBatchRepository;
+import com.exercise.school.database.repository.StudentCourseLoad;
+import com.exercise.school.database.repository.StudentRepository;
+import com.exercise.school.dto.StudentEnrollmentResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the seat counter and roster version of each course and the course counter of each student in step with the
+ * {@code course_enrollment} table. Capacity is enforced by conditional updates on those counters, so an enrollment
+ * never loads either side of the relationship and concurrent enrollments cannot overbook a course.
+ */
+@Service
+public class EnrollmentService {
+	public static final int MAX_COURSES_PER_STUDENT = 5;
+	public static final int MAX_STUDENTS_PER_COURSE = 50;
+	public static final int MAX_BATCH_ENROLLMENT_SIZE = 500;
+	/**
+	 * Enrollment attempts by result, one per student in batch enrollments.
+	 */
+	public static final String ENROLLMENTS_METRIC = "school.enrollments";
+
+	@Autowired
+	private CourseRepository courseRepository;
+
+	@Autowired
+	private StudentRepository studentRepository;
+
+	@Autowired
+	private EnrollmentBatchRepository enrollmentBatchRepository;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Transactional
+	public EnrollmentResult enroll(long courseId, long studentId) {
+		return recorded(tryEnroll(courseId, studentId));
+	}
+
+	private EnrollmentResult tryEnroll(long courseId, long studentId) {
+		if (this.courseRepository.reserveSeat(courseId, MAX_STUDENTS_PER_COURSE) == 0) {
+			return rejectionReason(courseId, studentId);
+		}
+
+		if (this.studentRepository.reserveCourseSlot(studentId, MAX_COURSES_PER_STUDENT) == 0) {
+			TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+			return rejectionReason(courseId, studentId);
+		}
+
+		if (this.courseRepository.insertEnrollment(courseId, studentId) == 0) {
+			TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+			return EnrollmentResult.ALREADY_ENROLLED;
+		}
+
+		return EnrollmentResult.ENROLLED;
+	}
+
+	/**
+	 * Enrolls a group of students in one course with a fixed number of statements, whatever the size of the group.
+	 * The course row and the students' rows are locked up front, seats are handed out in request order, and every
+	 * accepted enrollment is written in a single JDBC batch.
+	 *
+	 * @return the outcome for each distinct student ID, or empty if the course does not exist
+	 */
+	@Transactional
+	public Optional<List<StudentEnrollmentResult>> enrollAll(long courseId, List<Long> studentIds) {
+		final Optional<Integer> enrolledStudentsCount = this.courseRepository.lockEnrolledStudentsCount(courseId);
+		if (enrolledStudentsCount.isEmpty()) {
+			return Optional.empty();
+		}
+
+		final Set<Long> distinctStudentIds = new LinkedHashSet<>(studentIds);
+		distinctStudentIds.remove(null);
+		if (distinctStudentIds.isEmpty()) {
+			return Optional.of(List.of());
+		}
+
+		final Map<Long, Integer> courseLoads = this.studentRepository.lockCourseLoads(distinctStudentIds).stream()
+				.collect(Collectors.toMap(StudentCourseLoad::getId, StudentCourseLoad::getEnrolledCoursesCount));
+		final Set<Long> alreadyEnrolled = new HashSet<>(
+				this.courseRepository.findEnrolledStudentIds(courseId, distinctStudentIds));
+
+		int freeSeats = MAX_STUDENTS_PER_COURSE - enrolledStudentsCount.get();
+		final List<Long> accepted = new ArrayList<>();
+		final List<StudentEnrollmentResult> results = new ArrayList<>(distinctStudentIds.size());
+		for (Long studentId : distinctStudentIds) {
+			final EnrollmentResult result;
+			final Integer courseLoad = courseLoads.get(studentId);
+			if (courseLoad == null) {
+				result = EnrollmentResult.STUDENT_NOT_FOUND;
+			} else if (alreadyEnrolled.contains(studentId)) {
+				result = EnrollmentResult.ALREADY_ENROLLED;
+			} else if (courseLoad >= MAX_COURSES_PER_STUDENT) {
+				result = EnrollmentResult.STUDENT_COURSE_LIMIT_REACHED;
+			} else if (freeSeats <= 0) {
+				result = EnrollmentResult.COURSE_FULL;
+			} else {
+				result = EnrollmentResult.ENROLLED;
+				accepted.add(studentId);
+				freeSeats--;
+			}
+			results.add(new StudentEnrollmentResult(studentId, recorded(result)));
+		}
+
+		if (!accepted.isEmpty()) {
+			this.enrollmentBatchRepository.insertEnrollments(courseId, accepted);
+			this.studentRepository.takeCourseSlots(accepted);
+			this.courseRepository.takeSeats(courseId, accepted.size());
+		}
+
+		return Optional.of(results);
+	}
+
+	/**
+	 * Applies enrollments queued for one course together, in the order they arrived. A student queued more than once is
+	 * enrolled by their first request, and the later ones report {@link EnrollmentResult#ALREADY_ENROLLED}.
+	 *
+	 * @return the outcome of each request, in the order given
+	 * @see EnrollmentQueue
+	 */
+	@Transactional
+	public List<EnrollmentResult> enrollQueued(long courseId, List<Long> studentIds) {
+		final Optional<List<StudentEnrollmentResult>> outcomes = enrollAll(courseId, studentIds);
+		if (outcomes.isEmpty()) {
+			return studentIds.stream().map(studentId -> recorded(EnrollmentResult.COURSE_NOT_FOUND)).toList();
+		}
+
+		final Map<Long, EnrollmentResult> resultsByStudent = outcomes.get().stream()
+				.collect(Collectors.toMap(StudentEnrollmentResult::studentId, StudentEnrollmentResult::result));
+		final Set<Long> seen = new HashSet<>();
+		final List<EnrollmentResult> results = new ArrayList<>(studentIds.size());
+		for (Long studentId : studentIds) {
+			final EnrollmentResult result = resultsByStudent.getOrDefault(studentId, EnrollmentResult.STUDENT_NOT_FOUND);
+			if (seen.add(studentId)) {
+				results.add(result);
+			} else {
+				results.add(recorded(result == EnrollmentResult.ENROLLED ? EnrollmentResult.ALREADY_ENROLLED : result));
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Saves changes to a student. Rosters list student details, so the roster of every course they are enrolled in
+	 * changes with them.
+	 */
+	@Transactional
+	public void updateStudent(Student student) {
+		this.studentRepository.save(student);
+		this.courseRepository.touchRostersOf(student.getId());
+	}
+
+	@Transactional
+	public void deleteStudent(long studentId) {
+		this.courseRepository.releaseSeatsHeldBy(studentId);
+		this.studentRepository.deleteById(studentId);
+	}
+
+	@Transactional
+	public void deleteCourse(long courseId) {
+		this.studentRepository.releaseCourseSlotsHeldIn(courseId);
+		this.courseRepository.deleteById(courseId);
+	}
+
+	private EnrollmentResult recorded(EnrollmentResult result) {
+		this.meterRegistry.counter(ENROLLMENTS_METRIC, "result", result.name().toLowerCase(Locale.ROOT)).increment();
+		return result;
+	}
+
+	/**
+	 * Only runs when a conditional update did not apply, to tell the caller why. Checks are made in the same order
+	 * clients have always seen them reported. A student already in the course is told so, as before the counters,
+	 * even when the course is full or they have reached their limit.
+	 */
+	private EnrollmentResult rejectionReason(long courseId, long studentId) {
+		if (this.courseRepository.findViewById(courseId).isEmpty()) {
+			return EnrollmentResult.COURSE_NOT_FOUND;
+		}
+
+		final Optional<Integer> enrolledCoursesCount = this.studentRepository.findEnrolledCoursesCountById(studentId);
+		if (enrolledCoursesCount.isEmpty()) {
+			return EnrollmentResult.STUDENT_NOT_FOUND;
+		}
+
+		if (!this.courseRepository.findEnrolledStudentIds(courseId, List.of(studentId)).isEmpty()) {
+			return EnrollmentResult.ALREADY_ENROLLED;
+		}
+
+		return enrolledCoursesCount.get() >= MAX_COURSES_PER_STUDENT ?
+				EnrollmentResult.STUDENT_COURSE_LIMIT_REACHED :
+				EnrollmentResult.COURSE_FULL;
+	}
+}
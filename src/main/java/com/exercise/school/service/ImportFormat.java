@@ -0,0 +1,115 @@
+package com.exercise.school.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public enum ImportFormat {
+	/**
+	 * Comma separated values with a header row naming the fields. Fields may be wrapped in double quotes, with
+	 * embedded quotes doubled. A record has to fit on one line.
+	 */
+	CSV(new MediaType("text", "csv"), true) {
+		@Override
+		<T> RowParser<T> parser(String header, ObjectMapper objectMapper, Class<T> rowType) {
+			final List<String> columns = parseCsvLine(header);
+			return line -> {
+				final List<String> fields = parseCsvLine(line);
+				if (fields.size() != columns.size()) {
+					throw new IllegalArgumentException(
+							"Expected " + columns.size() + " fields but found " + fields.size());
+				}
+
+				final Map<String, String> row = new LinkedHashMap<>();
+				for (int i = 0; i < columns.size(); i++) {
+					row.put(columns.get(i).trim(), fields.get(i));
+				}
+				return objectMapper.convertValue(row, rowType);
+			};
+		}
+	},
+
+	/**
+	 * One JSON object per line.
+	 */
+	NDJSON(new MediaType("application", "x-ndjson"), false) {
+		@Override
+		<T> RowParser<T> parser(String header, ObjectMapper objectMapper, Class<T> rowType) {
+			return line -> objectMapper.readValue(line, rowType);
+		}
+	};
+
+	private final MediaType mediaType;
+	private final boolean headerRow;
+
+	ImportFormat(MediaType mediaType, boolean headerRow) {
+		this.mediaType = mediaType;
+		this.headerRow = headerRow;
+	}
+
+	public static Optional<ImportFormat> fromContentType(String contentType) {
+		if (contentType == null) {
+			return Optional.empty();
+		}
+
+		final MediaType requested = MediaType.parseMediaType(contentType);
+		return Arrays.stream(values())
+				.filter(format -> format.mediaType.isCompatibleWith(requested))
+				.findFirst();
+	}
+
+	boolean hasHeaderRow() {
+		return headerRow;
+	}
+
+	/**
+	 * @param header the header row, or {@code null} for formats that do not have one
+	 */
+	abstract <T> RowParser<T> parser(String header, ObjectMapper objectMapper, Class<T> rowType);
+
+	@FunctionalInterface
+	interface RowParser<T> {
+		T parse(String line) throws JsonProcessingException;
+	}
+
+	static List<String> parseCsvLine(String line) {
+		final List<String> fields = new ArrayList<>();
+		final StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+
+		for (int i = 0; i < line.length(); i++) {
+			final char c = line.charAt(i);
+			if (quoted) {
+				if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+					field.append('"');
+					i++;
+				} else if (c == '"') {
+					quoted = false;
+				} else {
+					field.append(c);
+				}
+			} else if (c == '"' && field.length() == 0) {
+				quoted = true;
+			} else if (c == ',') {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else {
+				field.append(c);
+			}
+		}
+
+		if (quoted) {
+			throw new IllegalArgumentException("Unterminated quoted field");
+		}
+
+		fields.add(field.toString());
+		return fields;
+	}
+}
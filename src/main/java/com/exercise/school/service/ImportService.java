@@ -0,0 +1,316 @@
+package com.exercise.school.service;
+
+import com.exercise.school.database.model.Course;
+import com.exercise.school.database.model.Student;
+import com.exercise.school.database.repository.CourseRepository;
+import com.exercise.school.database.repository.StudentRepository;
+import com.exercise.school.dto.CourseDto;
+import com.exercise.school.dto.ImportProgress;
+import com.exercise.school.dto.ImportResult;
+import com.exercise.school.dto.ImportRowError;
+import com.exercise.school.dto.StudentDto;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Loads students and courses from a request body one line at a time. Rows are validated and written in chunks, each
+ * chunk in its own transaction with JDBC batching, and the persistence context is cleared between chunks, so memory
+ * use does not grow with the size of the upload. A chunk that clashes with rows written at the same time, such as a
+ * student registered with the same email address, is written again one row at a time so that only the clashing rows
+ * are rejected.
+ * <p>
+ * Callers that want to follow a long import can have its progress written as it goes: one {@link ImportProgress} line
+ * after every chunk, then the {@link ImportResult} as the last line.
+ */
+@Slf4j
+@Service
+public class ImportService {
+	/**
+	 * Asked for in the Accept header of an import to follow its progress.
+	 */
+	public static final MediaType PROGRESS_MEDIA_TYPE = new MediaType("application", "x-ndjson");
+
+	private static final int CHUNK_SIZE = 500;
+	private static final int MAX_REPORTED_ERRORS = 1000;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private StudentRepository studentRepository;
+
+	@Autowired
+	private CourseRepository courseRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	public ImportResult importStudents(InputStream body, Charset charset, ImportFormat format) {
+		return importStudents(body, charset, format, progress -> {
+		});
+	}
+
+	/**
+	 * Imports students, writing the progress to {@code output} as it goes.
+	 */
+	public void importStudents(InputStream body, Charset charset, ImportFormat format, OutputStream output) {
+		writeProgress(output, listener -> importStudents(body, charset, format, listener));
+	}
+
+	public ImportResult importCourses(InputStream body, Charset charset, ImportFormat format) {
+		return importCourses(body, charset, format, progress -> {
+		});
+	}
+
+	/**
+	 * Imports courses, writing the progress to {@code output} as it goes.
+	 */
+	public void importCourses(InputStream body, Charset charset, ImportFormat format, OutputStream output) {
+		writeProgress(output, listener -> importCourses(body, charset, format, listener));
+	}
+
+	/**
+	 * @return whether the Accept header of an import asks for its progress
+	 */
+	public static boolean reportsProgress(String accept) {
+		return accept != null && MediaType.parseMediaTypes(accept).stream()
+				.anyMatch(mediaType -> mediaType.equalsTypeAndSubtype(PROGRESS_MEDIA_TYPE));
+	}
+
+	private ImportResult importStudents(InputStream body, Charset charset, ImportFormat format,
+										Consumer<ImportProgress> listener) {
+		return importRows("students", body, charset, format, StudentDto.class, ImportService::validateStudent,
+				this::writeStudents, "A student with this email has already been registered", listener);
+	}
+
+	private ImportResult importCourses(InputStream body, Charset charset, ImportFormat format,
+									   Consumer<ImportProgress> listener) {
+		return importRows("courses", body, charset, format, CourseDto.class, ImportService::validateCourse,
+				this::writeCourses, "Conflicts with a course written at the same time", listener);
+	}
+
+	private void writeProgress(OutputStream output, Function<Consumer<ImportProgress>, ImportResult> importer) {
+		final Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+		final Consumer<ImportProgress> listener = progress -> writeLine(writer, progress);
+		writeLine(writer, importer.apply(listener));
+	}
+
+	/**
+	 * Flushes every line, so that the client sees it while the import goes on.
+	 */
+	private void writeLine(Writer writer, Object line) {
+		try {
+			writer.write(this.objectMapper.writeValueAsString(line));
+			writer.write('\n');
+			writer.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static String validateStudent(StudentDto student) {
+		if (isBlank(student.getFirstName()) || isBlank(student.getLastName()) || isBlank(student.getEmailAddress())) {
+			return "firstName, lastName and emailAddress are required";
+		}
+		return null;
+	}
+
+	private static String validateCourse(CourseDto course) {
+		return isBlank(course.getName()) ? "name is required" : null;
+	}
+
+	private static boolean isBlank(String value) {
+		return value == null || value.isBlank();
+	}
+
+	/**
+	 * Skips rows whose email address is already registered, or appears earlier in the same chunk. Earlier chunks are
+	 * already committed, so the lookup also catches duplicates across chunks.
+	 */
+	private List<ImportRowError> writeStudents(List<ImportRow<StudentDto>> chunk) {
+		final Set<String> emailAddresses = chunk.stream()
+				.map(row -> row.value().getEmailAddress())
+				.collect(Collectors.toSet());
+		final Set<String> registered = new HashSet<>(this.studentRepository.findEmailAddressesIn(emailAddresses));
+
+		final List<ImportRowError> rejected = new ArrayList<>();
+		final List<Student> students = new ArrayList<>(chunk.size());
+		for (ImportRow<StudentDto> row : chunk) {
+			if (registered.add(row.value().getEmailAddress())) {
+				students.add(row.value().toModel());
+			} else {
+				rejected.add(new ImportRowError(row.line(), "A student with this email has already been registered"));
+			}
+		}
+
+		this.studentRepository.saveAll(students);
+		return rejected;
+	}
+
+	private List<ImportRowError> writeCourses(List<ImportRow<CourseDto>> chunk) {
+		final List<Course> courses = chunk.stream()
+				.map(row -> row.value().toModel())
+				.collect(Collectors.toList());
+
+		this.courseRepository.saveAll(courses);
+		return List.of();
+	}
+
+	/**
+	 * @param conflictMessage what a row is rejected with when it clashes with a row written at the same time
+	 */
+	private <T> ImportResult importRows(String kind, InputStream body, Charset charset, ImportFormat format,
+										Class<T> rowType, Function<T, String> validator, ChunkWriter<T> writer,
+										String conflictMessage, Consumer<ImportProgress> listener) {
+		final Tally tally = new Tally();
+
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, charset))) {
+			long lineNumber = 0;
+			String header = null;
+			if (format.hasHeaderRow()) {
+				header = reader.readLine();
+				lineNumber++;
+				if (header == null) {
+					return tally.toResult();
+				}
+			}
+
+			final ImportFormat.RowParser<T> parser = format.parser(header, this.objectMapper, rowType);
+			final List<ImportRow<T>> chunk = new ArrayList<>(CHUNK_SIZE);
+
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				if (line.isBlank()) {
+					continue;
+				}
+
+				tally.rowsRead++;
+				try {
+					final T row = parser.parse(line);
+					final String problem = validator.apply(row);
+					if (problem == null) {
+						chunk.add(new ImportRow<>(lineNumber, row));
+					} else {
+						tally.reject(new ImportRowError(lineNumber, problem));
+					}
+				} catch (JsonProcessingException | IllegalArgumentException e) {
+					tally.reject(new ImportRowError(lineNumber, "Malformed row"));
+				}
+
+				if (chunk.size() == CHUNK_SIZE) {
+					writeChunk(kind, chunk, writer, conflictMessage, tally, listener);
+				}
+			}
+
+			if (!chunk.isEmpty()) {
+				writeChunk(kind, chunk, writer, conflictMessage, tally, listener);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		log.info("Import of {} finished: {} rows read, {} imported, {} rejected",
+				kind, tally.rowsRead, tally.imported, tally.rejected);
+		return tally.toResult();
+	}
+
+	private <T> void writeChunk(String kind, List<ImportRow<T>> chunk, ChunkWriter<T> writer, String conflictMessage,
+								Tally tally, Consumer<ImportProgress> listener) {
+		List<ImportRowError> rejected;
+		try {
+			rejected = this.transactionTemplate.execute(status -> writer.write(chunk));
+		} catch (DataIntegrityViolationException e) {
+			log.info("Importing {}: a chunk clashed with rows written at the same time, writing it row by row", kind);
+			rejected = writeRowByRow(chunk, writer, conflictMessage);
+		} finally {
+			this.entityManager.clear();
+		}
+
+		tally.imported += chunk.size() - rejected.size();
+		rejected.forEach(tally::reject);
+		chunk.clear();
+
+		log.info("Importing {}: {} rows read, {} imported, {} rejected so far",
+				kind, tally.rowsRead, tally.imported, tally.rejected);
+		listener.accept(tally.toProgress());
+	}
+
+	private <T> List<ImportRowError> writeRowByRow(List<ImportRow<T>> chunk, ChunkWriter<T> writer,
+												   String conflictMessage) {
+		final List<ImportRowError> rejected = new ArrayList<>();
+		for (ImportRow<T> row : chunk) {
+			try {
+				rejected.addAll(this.transactionTemplate.execute(status -> writer.write(List.of(row))));
+			} catch (DataIntegrityViolationException e) {
+				rejected.add(new ImportRowError(row.line(), conflictMessage));
+			} finally {
+				this.entityManager.clear();
+			}
+		}
+		return rejected;
+	}
+
+	@FunctionalInterface
+	private interface ChunkWriter<T> {
+		/**
+		 * @return the rows that were not written
+		 */
+		List<ImportRowError> write(List<ImportRow<T>> chunk);
+	}
+
+	private record ImportRow<T>(long line, T value) {
+	}
+
+	private static class Tally {
+		private final List<ImportRowError> errors = new ArrayList<>();
+		private long rowsRead;
+		private long imported;
+		private long rejected;
+
+		void reject(ImportRowError error) {
+			this.rejected++;
+			if (this.errors.size() < MAX_REPORTED_ERRORS) {
+				this.errors.add(error);
+			}
+		}
+
+		ImportProgress toProgress() {
+			return new ImportProgress(rowsRead, imported, rejected);
+		}
+
+		ImportResult toResult() {
+			return new ImportResult(rowsRead, imported, rejected, List.copyOf(errors), rejected > errors.size());
+		}
+	}
+}
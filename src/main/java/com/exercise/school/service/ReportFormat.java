@@ -0,0 +1,74 @@
+package com.exercise.school.service;
+
+import com.exercise.school.dto.EnrollmentReportRow;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Optional;
+
+public enum ReportFormat {
+	NDJSON("ndjson", new MediaType("application", "x-ndjson")) {
+		@Override
+		void writeHeader(Writer writer) {
+		}
+
+		@Override
+		void writeRow(Writer writer, ObjectMapper objectMapper, EnrollmentReportRow row) throws IOException {
+			writer.write(objectMapper.writeValueAsString(row));
+			writer.write('\n');
+		}
+	},
+
+	CSV("csv", new MediaType("text", "csv")) {
+		@Override
+		void writeHeader(Writer writer) throws IOException {
+			writer.write("courseId,courseName,studentId,firstName,lastName,emailAddress\n");
+		}
+
+		@Override
+		void writeRow(Writer writer, ObjectMapper objectMapper, EnrollmentReportRow row) throws IOException {
+			writer.write(Long.toString(row.courseId()));
+			writer.write(',');
+			writer.write(csvField(row.courseName()));
+			writer.write(',');
+			writer.write(Long.toString(row.studentId()));
+			writer.write(',');
+			writer.write(csvField(row.firstName()));
+			writer.write(',');
+			writer.write(csvField(row.lastName()));
+			writer.write(',');
+			writer.write(csvField(row.emailAddress()));
+			writer.write('\n');
+		}
+	};
+
+	private final String parameter;
+	private final MediaType mediaType;
+
+	ReportFormat(String parameter, MediaType mediaType) {
+		this.parameter = parameter;
+		this.mediaType = mediaType;
+	}
+
+	public static Optional<ReportFormat> fromParameter(String parameter) {
+		return Arrays.stream(values()).filter(format -> format.parameter.equals(parameter)).findFirst();
+	}
+
+	public MediaType getMediaType() {
+		return mediaType;
+	}
+
+	abstract void writeHeader(Writer writer) throws IOException;
+
+	abstract void writeRow(Writer writer, ObjectMapper objectMapper, EnrollmentReportRow row) throws IOException;
+
+	private static String csvField(String value) {
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+			return value;
+		}
+		return '"' + value.replace("\"", "\"\"") + '"';
+	}
+}
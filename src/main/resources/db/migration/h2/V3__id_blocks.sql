@@ -0,0 +1,12 @@
+-- Student and course IDs are handed out in blocks of 50 from a sequence each, rather than one at a time from the
+-- shared hibernate_sequence. The blocks start past every ID that sequence handed out, and past any ID inserted
+-- without it.
+CREATE SEQUENCE course_id_seq START WITH 1 INCREMENT BY 50;
+ALTER SEQUENCE course_id_seq RESTART WITH (SELECT GREATEST(
+    (SELECT current_value + 1 FROM information_schema.sequences WHERE sequence_name = 'HIBERNATE_SEQUENCE'),
+    (SELECT COALESCE(MAX(id), 0) + 1 FROM course)));
+
+CREATE SEQUENCE student_id_seq START WITH 1 INCREMENT BY 50;
+ALTER SEQUENCE student_id_seq RESTART WITH (SELECT GREATEST(
+    (SELECT current_value + 1 FROM information_schema.sequences WHERE sequence_name = 'HIBERNATE_SEQUENCE'),
+    (SELECT COALESCE(MAX(id), 0) + 1 FROM student)));
@@ -0,0 +1,9 @@
+-- Keyset pagination walks these in sort order, with the ID breaking ties.
+CREATE INDEX idx_course_name ON course (name, id);
+CREATE INDEX idx_student_last_name ON student (last_name, id);
+
+-- Registration looks students up by email address, and no two students may share one.
+CREATE UNIQUE INDEX uk_student_email_address ON student (email_address);
+
+-- The primary key serves lookups by course. This index serves lookups by student, including the "no courses" filter.
+CREATE INDEX idx_course_enrollment_student ON course_enrollment (student_id, course_id);
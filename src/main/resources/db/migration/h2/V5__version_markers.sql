@@ -0,0 +1,6 @@
+-- Bumped by Hibernate on every update of the row, and used as the ETag of single students and courses.
+ALTER TABLE student ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE course ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+
+-- Bumped by every write that changes the students listed in a course, and used as the ETag of its roster.
+ALTER TABLE course ADD COLUMN roster_version BIGINT NOT NULL DEFAULT 0;
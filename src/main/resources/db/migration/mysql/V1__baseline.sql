@@ -0,0 +1,26 @@
+-- Schema as created by Hibernate before migrations were introduced. Existing databases are baselined at this version.
+CREATE TABLE hibernate_sequence (next_val BIGINT) ENGINE = InnoDB;
+INSERT INTO hibernate_sequence VALUES (1);
+
+CREATE TABLE course (
+    id   BIGINT       NOT NULL,
+    name VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE student (
+    id            BIGINT       NOT NULL,
+    email_address VARCHAR(255) NOT NULL,
+    first_name    VARCHAR(255) NOT NULL,
+    last_name     VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE course_enrollment (
+    student_id BIGINT NOT NULL,
+    course_id  BIGINT NOT NULL,
+    PRIMARY KEY (course_id, student_id)
+) ENGINE = InnoDB;
+
+ALTER TABLE course_enrollment ADD CONSTRAINT FKmdu3eh7r8fvaemtwyps4dtqoh FOREIGN KEY (course_id) REFERENCES course (id);
+ALTER TABLE course_enrollment ADD CONSTRAINT FKc5aniwy1axq8343gtpm50sdlj FOREIGN KEY (student_id) REFERENCES student (id);
@@ -0,0 +1,8 @@
+-- Enrollment capacity is enforced with conditional updates on these counters, kept in step with course_enrollment.
+ALTER TABLE course ADD COLUMN enrolled_students_count INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE student ADD COLUMN enrolled_courses_count INTEGER NOT NULL DEFAULT 0;
+
+UPDATE course c SET c.enrolled_students_count =
+    (SELECT COUNT(*) FROM course_enrollment e WHERE e.course_id = c.id);
+UPDATE student s SET s.enrolled_courses_count =
+    (SELECT COUNT(*) FROM course_enrollment e WHERE e.student_id = s.id);
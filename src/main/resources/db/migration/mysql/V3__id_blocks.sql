@@ -0,0 +1,12 @@
+-- Student and course IDs are handed out in blocks of 50 from a table each, rather than one at a time from the shared
+-- hibernate_sequence. The blocks start past every ID that sequence handed out, and past any ID inserted without it.
+-- Instances of earlier versions still take IDs from hibernate_sequence, so none may run once this has been applied.
+CREATE TABLE course_id_seq (next_val BIGINT) ENGINE = InnoDB;
+INSERT INTO course_id_seq SELECT GREATEST(
+    (SELECT COALESCE(MAX(next_val), 1) FROM hibernate_sequence),
+    (SELECT COALESCE(MAX(id), 0) + 1 FROM course));
+
+CREATE TABLE student_id_seq (next_val BIGINT) ENGINE = InnoDB;
+INSERT INTO student_id_seq SELECT GREATEST(
+    (SELECT COALESCE(MAX(next_val), 1) FROM hibernate_sequence),
+    (SELECT COALESCE(MAX(id), 0) + 1 FROM student));
@@ -0,0 +1,96 @@
+package com.exercise.school.perf;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH result files, benchmark by benchmark and parameter set by parameter set. A benchmark has regressed
+ * when its score is worse than the baseline by more than the threshold: lower for throughput, higher for the time
+ * modes.
+ * <p>
+ * Can be run on its own to compare two earlier runs:
+ * {@code mvn -P perf test-compile exec:exec -Dperf.main=com.exercise.school.perf.BenchmarkComparison
+ * -Dperf.args="baseline.json results.json 10"}
+ */
+public final class BenchmarkComparison {
+	private final double thresholdPercent;
+	private final List<String> lines = new ArrayList<>();
+	private int regressions;
+
+	private BenchmarkComparison(double thresholdPercent) {
+		this.thresholdPercent = thresholdPercent;
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: BenchmarkComparison <baseline.json> <results.json> [threshold percent]");
+			System.exit(2);
+		}
+
+		final double threshold = args.length > 2 ? Double.parseDouble(args[2]) : BenchmarkRunner.DEFAULT_THRESHOLD;
+		final BenchmarkComparison comparison = compare(Path.of(args[0]), Path.of(args[1]), threshold);
+		comparison.print();
+		System.exit(comparison.hasRegressions() ? 1 : 0);
+	}
+
+	public static BenchmarkComparison compare(Path baseline, Path results, double thresholdPercent) throws IOException {
+		final Map<String, JsonNode> baselineScores = read(baseline);
+		final BenchmarkComparison comparison = new BenchmarkComparison(thresholdPercent);
+		read(results).forEach((key, result) -> comparison.add(key, baselineScores.get(key), result));
+		return comparison;
+	}
+
+	public boolean hasRegressions() {
+		return regressions > 0;
+	}
+
+	public void print() {
+		lines.forEach(System.out::println);
+		System.out.printf(Locale.ROOT, "%d regression(s) over %.1f%%%n", regressions, thresholdPercent);
+	}
+
+	private void add(String key, JsonNode baseline, JsonNode result) {
+		final double score = result.at("/primaryMetric/score").asDouble();
+		final String unit = result.at("/primaryMetric/scoreUnit").asText();
+		if (baseline == null) {
+			lines.add(String.format(Locale.ROOT, "  NEW  %-90s %12.3f %s", key, score, unit));
+			return;
+		}
+
+		final double baselineScore = baseline.at("/primaryMetric/score").asDouble();
+		final boolean higherIsBetter = "thrpt".equals(result.get("mode").asText());
+		final double changePercent = (score - baselineScore) / baselineScore * 100;
+		final double worsePercent = higherIsBetter ? -changePercent : changePercent;
+		final boolean regressed = worsePercent > thresholdPercent;
+		if (regressed) {
+			regressions++;
+		}
+
+		lines.add(String.format(Locale.ROOT, "%5s %-90s %12.3f -> %12.3f %s (%+.1f%%)",
+				regressed ? "WORSE" : "", key, baselineScore, score, unit, changePercent));
+	}
+
+	/**
+	 * @return the results in the file by benchmark name, mode and parameters
+	 */
+	private static Map<String, JsonNode> read(Path file) throws IOException {
+		final Map<String, JsonNode> results = new LinkedHashMap<>();
+		for (JsonNode result : new ObjectMapper().readTree(file.toFile())) {
+			final Map<String, String> params = new TreeMap<>();
+			result.path("params").fields().forEachRemaining(param -> params.put(param.getKey(), param.getValue().asText()));
+			final String key = result.get("benchmark").asText() + " " + result.get("mode").asText() +
+					(params.isEmpty() ? "" : " " + params);
+			results.put(key, result);
+		}
+		return results;
+	}
+}
@@ -0,0 +1,68 @@
+package com.exercise.school.perf;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the JMH benchmarks and writes the results as JSON, by default to {@code target/benchmarks/results.json}.
+ * Besides the usual JMH options and benchmark patterns, it takes:
+ * <ul>
+ *     <li>{@code --results=<file>} to write the results elsewhere</li>
+ *     <li>{@code --baseline=<file>} to compare the results with an earlier run, failing when a benchmark got worse by
+ *     more than the threshold</li>
+ *     <li>{@code --threshold=<percent>} for that comparison, {@value DEFAULT_THRESHOLD} by default</li>
+ * </ul>
+ * For example: {@code mvn -P perf test-compile exec:exec -Dperf.args="--baseline=baseline.json ListingBenchmark"}
+ */
+public final class BenchmarkRunner {
+	static final double DEFAULT_THRESHOLD = 10;
+
+	private static final String RESULTS = "--results=";
+	private static final String BASELINE = "--baseline=";
+	private static final String THRESHOLD = "--threshold=";
+
+	private BenchmarkRunner() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		Path results = Path.of("target", "benchmarks", "results.json");
+		Path baseline = null;
+		double threshold = DEFAULT_THRESHOLD;
+		final List<String> jmhArgs = new ArrayList<>();
+		for (String arg : args) {
+			if (arg.startsWith(RESULTS)) {
+				results = Path.of(arg.substring(RESULTS.length()));
+			} else if (arg.startsWith(BASELINE)) {
+				baseline = Path.of(arg.substring(BASELINE.length()));
+			} else if (arg.startsWith(THRESHOLD)) {
+				threshold = Double.parseDouble(arg.substring(THRESHOLD.length()));
+			} else {
+				jmhArgs.add(arg);
+			}
+		}
+
+		if (results.getParent() != null) {
+			Files.createDirectories(results.getParent());
+		}
+		new Runner(new OptionsBuilder()
+				.parent(new CommandLineOptions(jmhArgs.toArray(String[]::new)))
+				.resultFormat(ResultFormatType.JSON)
+				.result(results.toString())
+				.build())
+				.run();
+		System.out.println("Results written to " + results.toAbsolutePath());
+
+		if (baseline != null) {
+			final BenchmarkComparison comparison = BenchmarkComparison.compare(baseline, results, threshold);
+			comparison.print();
+			System.exit(comparison.hasRegressions() ? 1 : 0);
+		}
+	}
+}
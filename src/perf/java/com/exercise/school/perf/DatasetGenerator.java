@@ -0,0 +1,242 @@
+package com.exercise.school.perf;
+
+import com.exercise.school.service.EnrollmentService;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.DatabaseMetaData;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * Fills the {@code student}, {@code course} and {@code course_enrollment} tables directly, in JDBC batches, with
+ * data shaped like a busy term: a few popular courses taken by many students and filled to capacity, and a long tail
+ * of quiet ones. The same seed always produces the same rows.
+ * <p>
+ * IDs are reserved from the ID sequences before anything is written, so the application keeps handing out IDs after
+ * the generated ones. On MySQL the reservation locks the sequence row, so the application can run while the tables are
+ * being filled. H2 cannot move a sequence past a block atomically, so there the application must not create students
+ * or courses until the generator has started writing. Works with H2 and MySQL.
+ * <p>
+ * Can be run on its own against any database the application can use, for example:
+ * {@code mvn -P perf test-compile exec:exec -Dperf.main=com.exercise.school.perf.DatasetGenerator
+ * -Dperf.args="--students=1000000 --courses=20000 --spring.datasource.url=jdbc:mysql://localhost:3306/school?rewriteBatchedStatements=true
+ * --spring.datasource.driver-class-name=com.mysql.jdbc.Driver --spring.datasource.username=... --spring.datasource.password=..."}
+ */
+public class DatasetGenerator {
+	private static final String[] FIRST_NAMES = {"Ada", "Alan", "Grace", "Linus", "Barbara", "Dennis", "Frances",
+			"Edsger", "Margaret", "Donald", "Radia", "Ken", "Katherine", "Niklaus", "Hedy", "Tony", "Sophie", "John",
+			"Shafi", "Leslie"};
+	private static final String[] LAST_NAMES = {"Lovelace", "Turing", "Hopper", "Torvalds", "Liskov", "Ritchie",
+			"Allen", "Dijkstra", "Hamilton", "Knuth", "Perlman", "Thompson", "Johnson", "Wirth", "Lamarr", "Hoare",
+			"Wilson", "Backus", "Goldwasser", "Lamport"};
+	private static final String[] SUBJECTS = {"Algebra", "Biology", "Chemistry", "Databases", "Economics", "French",
+			"Geometry", "History", "Literature", "Music", "Philosophy", "Physics", "Statistics", "Compilers"};
+	/**
+	 * Share of students wanting to take 0, 1, ... up to the maximum number of courses.
+	 */
+	private static final double[] COURSE_LOAD_SHARES = {0.10, 0.15, 0.20, 0.25, 0.15, 0.15};
+	/**
+	 * Attempts at a popular course, then at any course, before a student gives up on a seat.
+	 */
+	private static final int ATTEMPTS = 3;
+
+	/**
+	 * @param enroll whether to enroll students, or leave every course empty
+	 */
+	public record Options(int students, int courses, boolean enroll, long seed, int batchSize) {
+		public static Options of(int students, int courses, boolean enroll) {
+			return new Options(students, courses, enroll, 42, 1_000);
+		}
+	}
+
+	/**
+	 * The generated rows: students and courses have consecutive IDs starting at the first ones.
+	 */
+	public record Dataset(long firstStudentId, int students, long firstCourseId, int courses, long enrollments) {
+		public List<Long> studentIds() {
+			return ids(firstStudentId, students);
+		}
+
+		public List<Long> courseIds() {
+			return ids(firstCourseId, courses);
+		}
+
+		private static List<Long> ids(long first, int count) {
+			return LongStream.range(first, first + count).boxed().collect(Collectors.toList());
+		}
+	}
+
+	private final JdbcTemplate jdbcTemplate;
+	private final TransactionTemplate transactionTemplate;
+	private final boolean mysql;
+
+	public DatasetGenerator(ConfigurableApplicationContext context) {
+		this.jdbcTemplate = context.getBean(JdbcTemplate.class);
+		this.transactionTemplate = context.getBean(TransactionTemplate.class);
+		this.mysql = "MySQL".equals(databaseProductName(jdbcTemplate));
+	}
+
+	public static void main(String[] args) {
+		int students = 100_000;
+		int courses = 2_000;
+		boolean enroll = true;
+		long seed = 42;
+		int batchSize = 1_000;
+		final List<String> applicationArgs = new ArrayList<>();
+		for (String arg : args) {
+			final String value = arg.substring(arg.indexOf('=') + 1);
+			if (arg.startsWith("--students=")) {
+				students = Integer.parseInt(value);
+			} else if (arg.startsWith("--courses=")) {
+				courses = Integer.parseInt(value);
+			} else if (arg.startsWith("--enroll=")) {
+				enroll = Boolean.parseBoolean(value);
+			} else if (arg.startsWith("--seed=")) {
+				seed = Long.parseLong(value);
+			} else if (arg.startsWith("--batch-size=")) {
+				batchSize = Integer.parseInt(value);
+			} else {
+				applicationArgs.add(arg);
+			}
+		}
+
+		try (ConfigurableApplicationContext context = PerfApplication.start(WebApplicationType.NONE,
+				applicationArgs.toArray(String[]::new))) {
+			final long start = System.nanoTime();
+			final Dataset dataset = new DatasetGenerator(context)
+					.generate(new Options(students, courses, enroll, seed, batchSize));
+			System.out.printf(Locale.ROOT, "Generated %d students from ID %d, %d courses from ID %d and %d enrollments in %s%n",
+					dataset.students(), dataset.firstStudentId(), dataset.courses(), dataset.firstCourseId(),
+					dataset.enrollments(), Duration.ofNanos(System.nanoTime() - start));
+		}
+	}
+
+	public Dataset generate(Options options) {
+		final Random random = new Random(options.seed());
+		final long firstCourseId = reserveIds("course_id_seq", options.courses());
+		final long firstStudentId = reserveIds("student_id_seq", options.students());
+
+		for (int start = 0; start < options.courses(); start += options.batchSize()) {
+			final List<Object[]> rows = new ArrayList<>(options.batchSize());
+			for (int i = start; i < Math.min(options.courses(), start + options.batchSize()); i++) {
+				rows.add(new Object[]{firstCourseId + i,
+						String.format(Locale.ROOT, "%s %d", SUBJECTS[random.nextInt(SUBJECTS.length)], 100 + i)});
+			}
+			inTransaction(() -> jdbcTemplate.batchUpdate("INSERT INTO course (id, name, enrolled_students_count, " +
+					"version, roster_version) VALUES (?, ?, 0, 0, 0)", rows));
+		}
+
+		final int[] seatsTaken = new int[options.courses()];
+		long enrollments = 0;
+		for (int start = 0; start < options.students(); start += options.batchSize()) {
+			final List<Object[]> studentRows = new ArrayList<>(options.batchSize());
+			final List<Object[]> enrollmentRows = new ArrayList<>();
+			for (int i = start; i < Math.min(options.students(), start + options.batchSize()); i++) {
+				final long studentId = firstStudentId + i;
+				final String firstName = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+				final String lastName = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+				final List<Integer> courses = options.enroll() ? chooseCourses(random, seatsTaken) : List.of();
+				studentRows.add(new Object[]{studentId, firstName, lastName,
+						(firstName + "." + lastName + "." + studentId + "@example.com").toLowerCase(Locale.ROOT),
+						courses.size()});
+				courses.forEach(course -> enrollmentRows.add(new Object[]{firstCourseId + course, studentId}));
+			}
+
+			inTransaction(() -> {
+				jdbcTemplate.batchUpdate("INSERT INTO student (id, first_name, last_name, email_address, " +
+						"enrolled_courses_count, version) VALUES (?, ?, ?, ?, ?, 0)", studentRows);
+				jdbcTemplate.batchUpdate("INSERT INTO course_enrollment (course_id, student_id) VALUES (?, ?)",
+						enrollmentRows);
+			});
+			enrollments += enrollmentRows.size();
+		}
+
+		for (int start = 0; start < options.courses(); start += options.batchSize()) {
+			final List<Object[]> rows = new ArrayList<>(options.batchSize());
+			for (int i = start; i < Math.min(options.courses(), start + options.batchSize()); i++) {
+				if (seatsTaken[i] > 0) {
+					rows.add(new Object[]{seatsTaken[i], firstCourseId + i});
+				}
+			}
+			inTransaction(() -> jdbcTemplate.batchUpdate(
+					"UPDATE course SET enrolled_students_count = ? WHERE id = ?", rows));
+		}
+
+		return new Dataset(firstStudentId, options.students(), firstCourseId, options.courses(), enrollments);
+	}
+
+	/**
+	 * Tries popular courses first, favouring the lowest indexes: cubing a uniform draw sends half of the attempts to
+	 * the first eighth of the courses. Once those are full, falls back to courses picked uniformly.
+	 *
+	 * @return the indexes of the courses the next student is enrolled in
+	 */
+	private static List<Integer> chooseCourses(Random random, int[] seatsTaken) {
+		final double load = random.nextDouble();
+		int wanted = 0;
+		double cumulativeShare = COURSE_LOAD_SHARES[0];
+		while (load >= cumulativeShare && wanted < COURSE_LOAD_SHARES.length - 1) {
+			cumulativeShare += COURSE_LOAD_SHARES[++wanted];
+		}
+
+		final List<Integer> chosen = new ArrayList<>(wanted);
+		for (int attempt = 0; chosen.size() < wanted && attempt < 2 * ATTEMPTS * wanted; attempt++) {
+			final double draw = random.nextDouble();
+			final int course = attempt < ATTEMPTS * wanted ?
+					(int) (seatsTaken.length * draw * draw * draw) :
+					(int) (seatsTaken.length * draw);
+			if (seatsTaken[course] < EnrollmentService.MAX_STUDENTS_PER_COURSE && !chosen.contains(course)) {
+				seatsTaken[course]++;
+				chosen.add(course);
+			}
+		}
+		return chosen;
+	}
+
+	/**
+	 * Takes a block of {@code count} IDs from a sequence and moves the sequence past it. H2 uses real sequences, MySQL
+	 * a table holding the next value. On H2 a block taken by the application between reading and restarting the
+	 * sequence would overlap the reserved one, since nothing locks a sequence there.
+	 *
+	 * @return the first ID of the block
+	 */
+	private long reserveIds(String sequence, int count) {
+		return Objects.requireNonNull(transactionTemplate.execute(status -> {
+			if (mysql) {
+				final long next = Objects.requireNonNull(jdbcTemplate.queryForObject(
+						"SELECT next_val FROM " + sequence + " FOR UPDATE", Long.class));
+				jdbcTemplate.update("UPDATE " + sequence + " SET next_val = ?", next + count);
+				return next;
+			}
+
+			final long next = Objects.requireNonNull(jdbcTemplate.queryForObject(
+					"SELECT NEXT VALUE FOR " + sequence, Long.class));
+			jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + (next + count));
+			return next;
+		}));
+	}
+
+	private void inTransaction(Runnable work) {
+		transactionTemplate.executeWithoutResult(status -> work.run());
+	}
+
+	private static String databaseProductName(JdbcTemplate jdbcTemplate) {
+		try {
+			return JdbcUtils.extractDatabaseMetaData(Objects.requireNonNull(jdbcTemplate.getDataSource()),
+					DatabaseMetaData::getDatabaseProductName);
+		} catch (MetaDataAccessException e) {
+			throw new IllegalStateException("Could not tell which database to fill", e);
+		}
+	}
+}
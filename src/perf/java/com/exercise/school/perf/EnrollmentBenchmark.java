@@ -0,0 +1,107 @@
+package com.exercise.school.perf;
+
+import com.exercise.school.controller.CourseController;
+import com.exercise.school.database.model.Course;
+import com.exercise.school.database.model.Student;
+import com.exercise.school.database.repository.CourseRepository;
+import com.exercise.school.database.repository.StudentRepository;
+import com.exercise.school.dto.EnrollmentRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enrolls one student in a course holding {@link #courseFillLevel} students, through the controller. A full course
+ * measures the rejection path, which runs the extra lookups that explain why.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EnrollmentBenchmark {
+	@Param({"0", "25", "49", "50"})
+	public int courseFillLevel;
+
+	private ConfigurableApplicationContext context;
+	private CourseController courseController;
+	private JdbcTemplate jdbcTemplate;
+	private long courseId;
+	private long studentId;
+	private EnrollmentRequest request;
+
+	@Setup(Level.Trial)
+	public void start() {
+		context = PerfApplication.start(WebApplicationType.NONE);
+		courseController = context.getBean(CourseController.class);
+		jdbcTemplate = context.getBean(JdbcTemplate.class);
+		final CourseRepository courseRepository = context.getBean(CourseRepository.class);
+		final StudentRepository studentRepository = context.getBean(StudentRepository.class);
+
+		final Course course = new Course();
+		course.setName("Benchmark course");
+		course.setEnrolledStudentsCount(courseFillLevel);
+		courseRepository.save(course);
+		courseId = course.getId();
+
+		final List<Student> enrolled = new ArrayList<>();
+		for (int i = 0; i < courseFillLevel; i++) {
+			final Student student = new Student();
+			student.setFirstName("Enrolled");
+			student.setLastName("Student " + i);
+			student.setEmailAddress("enrolled." + i + "@example.com");
+			student.setEnrolledCourses(Set.of(course));
+			student.setEnrolledCoursesCount(1);
+			enrolled.add(student);
+		}
+		studentRepository.saveAll(enrolled);
+
+		final Student candidate = new Student();
+		candidate.setFirstName("Candidate");
+		candidate.setLastName("Student");
+		candidate.setEmailAddress("candidate@example.com");
+		studentRepository.save(candidate);
+		studentId = candidate.getId();
+		request = new EnrollmentRequest(studentId);
+	}
+
+	/**
+	 * Takes the candidate back out of the course, so every invocation enrolls against the same fill level.
+	 */
+	@Setup(Level.Invocation)
+	public void withdrawCandidate() {
+		jdbcTemplate.update("DELETE FROM course_enrollment WHERE course_id = ? AND student_id = ?", courseId, studentId);
+		jdbcTemplate.update("UPDATE course SET enrolled_students_count = ? WHERE id = ?", courseFillLevel, courseId);
+		jdbcTemplate.update("UPDATE student SET enrolled_courses_count = 0 WHERE id = ?", studentId);
+	}
+
+	@TearDown(Level.Trial)
+	public void stop() {
+		context.close();
+	}
+
+	@Benchmark
+	public ResponseEntity<Object> enrollInCourse() {
+		return courseController.enrollInCourse(courseId, request);
+	}
+}
@@ -0,0 +1,92 @@
+package com.exercise.school.perf;
+
+import com.exercise.school.controller.CourseController;
+import com.exercise.school.controller.StudentController;
+import com.exercise.school.database.repository.CourseRepository;
+import com.exercise.school.database.repository.StudentRepository;
+import com.exercise.school.dto.CourseView;
+import com.exercise.school.dto.StudentView;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lists students and courses page by page, at the first page and deep into the table, and runs the queries behind the
+ * students-with-no-courses and courses-with-no-students reports, over a generated term of 10,000 students and 10,000
+ * courses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListingBenchmark {
+	private static final int ROWS = 10_000;
+	private static final int PAGE_SIZE = 100;
+
+	/**
+	 * The first page, and one at an offset of 9,000 rows.
+	 */
+	@Param({"0", "90"})
+	public int page;
+
+	private ConfigurableApplicationContext context;
+	private StudentController studentController;
+	private CourseController courseController;
+	private StudentRepository studentRepository;
+	private CourseRepository courseRepository;
+
+	@Setup(Level.Trial)
+	public void start() {
+		context = PerfApplication.start(WebApplicationType.NONE);
+		studentController = context.getBean(StudentController.class);
+		courseController = context.getBean(CourseController.class);
+		studentRepository = context.getBean(StudentRepository.class);
+		courseRepository = context.getBean(CourseRepository.class);
+
+		new DatasetGenerator(context).generate(DatasetGenerator.Options.of(ROWS, ROWS, true));
+	}
+
+	@TearDown(Level.Trial)
+	public void stop() {
+		context.close();
+	}
+
+	@Benchmark
+	public ResponseEntity<Object> getStudents() {
+		return studentController.getStudents(false, page, PAGE_SIZE, "id", null, null);
+	}
+
+	@Benchmark
+	public ResponseEntity<Object> getCourses() {
+		return courseController.getCourses(false, page, PAGE_SIZE, "id", null, null, null);
+	}
+
+	@Benchmark
+	public Page<StudentView> findStudentsWithNoCourses() {
+		return studentRepository.findStudentsWithNoCourses(PageRequest.of(page, PAGE_SIZE));
+	}
+
+	@Benchmark
+	public Page<CourseView> findCoursesWithNoStudents() {
+		return courseRepository.findCoursesWithNoStudents(PageRequest.of(page, PAGE_SIZE));
+	}
+}
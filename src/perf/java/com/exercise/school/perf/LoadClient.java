@@ -0,0 +1,105 @@
+package com.exercise.school.perf;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends the load test's requests to the running application and tells how each one went. Course choices are skewed
+ * towards the first courses, so popular courses fill up the way they do on registration day.
+ */
+public class LoadClient {
+	public enum Outcome {
+		OK,
+		/**
+		 * The application refused the request for a business reason, such as a full course.
+		 */
+		REJECTED,
+		/**
+		 * The application turned the request away because it was overloaded, and asked to try again later.
+		 */
+		SHED,
+		ERROR
+	}
+
+	private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+	private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(TIMEOUT).build();
+	private final AtomicLong registrations = new AtomicLong();
+	private final String baseUri;
+	private final List<Long> studentIds;
+	private final List<Long> courseIds;
+
+	public LoadClient(int port, List<Long> studentIds, List<Long> courseIds) {
+		this.baseUri = "http://localhost:" + port;
+		this.studentIds = studentIds;
+		this.courseIds = courseIds;
+	}
+
+	public Outcome send(LoadOperation operation) {
+		final ThreadLocalRandom random = ThreadLocalRandom.current();
+		try {
+			return switch (operation) {
+				case GET_STUDENT -> expect(get("/students/" + pick(studentIds, random)), 200);
+				case LIST_COURSES -> expect(get("/courses?page=" + random.nextInt(Math.max(1, courseIds.size() / 10))), 200);
+				case LIST_ROSTER -> expect(get("/courses/" + popularCourse(random) + "/students"), 200);
+				case REGISTER -> {
+					final long n = registrations.incrementAndGet();
+					yield expect(post("/students", String.format(
+							"{\"firstName\": \"Load\", \"lastName\": \"Student %d\", \"emailAddress\": \"load.%d@example.com\"}",
+							n, n)), 201);
+				}
+				case ENROLL -> {
+					final int status = post("/courses/" + popularCourse(random) + "/enroll",
+							"{\"studentId\": " + pick(studentIds, random) + "}");
+					yield switch (status) {
+						case 400 -> Outcome.REJECTED;
+						case 202 -> Outcome.OK;
+						default -> expect(status, 201);
+					};
+				}
+			};
+		} catch (Exception e) {
+			return Outcome.ERROR;
+		}
+	}
+
+	private int get(String path) throws Exception {
+		return send(HttpRequest.newBuilder(URI.create(baseUri + path)).GET());
+	}
+
+	private int post(String path, String body) throws Exception {
+		return send(HttpRequest.newBuilder(URI.create(baseUri + path))
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString(body)));
+	}
+
+	private int send(HttpRequest.Builder request) throws Exception {
+		return httpClient.send(request.timeout(TIMEOUT).header("Accept", "application/json").build(),
+				HttpResponse.BodyHandlers.discarding()).statusCode();
+	}
+
+	private static Outcome expect(int status, int expected) {
+		if (status == 503) {
+			return Outcome.SHED;
+		}
+		return status == expected ? Outcome.OK : Outcome.ERROR;
+	}
+
+	private static long pick(List<Long> ids, ThreadLocalRandom random) {
+		return ids.get(random.nextInt(ids.size()));
+	}
+
+	/**
+	 * Cubing a uniform draw sends half of the choices to the first eighth of the courses.
+	 */
+	private long popularCourse(ThreadLocalRandom random) {
+		final double draw = random.nextDouble();
+		return courseIds.get((int) (courseIds.size() * draw * draw * draw));
+	}
+}
@@ -0,0 +1,29 @@
+package com.exercise.school.perf;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * The requests the load test mixes, by the name used in {@code --mix}.
+ */
+public enum LoadOperation {
+	GET_STUDENT("get-student"),
+	LIST_COURSES("list-courses"),
+	LIST_ROSTER("roster"),
+	REGISTER("register"),
+	ENROLL("enroll");
+
+	private final String parameter;
+
+	LoadOperation(String parameter) {
+		this.parameter = parameter;
+	}
+
+	public static Optional<LoadOperation> fromParameter(String parameter) {
+		return Arrays.stream(values()).filter(operation -> operation.parameter.equals(parameter)).findFirst();
+	}
+
+	public String getParameter() {
+		return parameter;
+	}
+}
@@ -0,0 +1,100 @@
+package com.exercise.school.perf;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Settings of a load test run, read from {@code --name=value} arguments. Unset options keep the defaults below.
+ *
+ * @param openLoop     whether requests are sent at {@link #rate} whatever the response times, rather than by
+ *                     {@link #clients} clients each waiting for its previous response
+ * @param clients      client threads; in open-loop mode, the most requests in flight at once
+ * @param rate         requests per second in open-loop mode
+ * @param bulkhead     how many operations the application runs at once: {@code off} for no cap, {@code pool} for as
+ *                     many as the connection pool has connections, or a number
+ * @param enrollment   how the application applies enrollments: {@code sync}, or {@code async} through its queue
+ * @param limits       whether the application sheds load: {@code off}, or {@code adaptive} concurrency limits
+ * @param dbLatency    time added to every database request, to load the application as a slow database would
+ * @param mix          relative weight of each operation
+ * @param students     students registered before the run
+ * @param courses      courses registered before the run
+ * @param enrolled     whether students are already enrolled when the run starts, rather than on registration day
+ * @param maxErrorRate share of failed requests above which the run fails
+ */
+public record LoadOptions(boolean openLoop, int clients, double rate, String bulkhead, String enrollment, String limits,
+						  Duration dbLatency, Duration warmup, Duration duration, Map<LoadOperation, Integer> mix, int students,
+						  int courses, boolean enrolled, double maxErrorRate) {
+	public static LoadOptions parse(String... args) {
+		boolean openLoop = false;
+		int clients = 50;
+		double rate = 500;
+		String bulkhead = "off";
+		String enrollment = "sync";
+		String limits = "off";
+		Duration dbLatency = Duration.ZERO;
+		Duration warmup = Duration.ofSeconds(5);
+		Duration duration = Duration.ofSeconds(30);
+		Map<LoadOperation, Integer> mix = parseMix("get-student=40,list-courses=15,roster=10,register=10,enroll=25");
+		int students = 2_000;
+		int courses = 100;
+		boolean enrolled = false;
+		double maxErrorRate = 0.01;
+
+		for (String arg : args) {
+			final int separator = arg.indexOf('=');
+			if (!arg.startsWith("--") || separator < 0) {
+				throw new IllegalArgumentException("Expected --name=value, got " + arg);
+			}
+
+			final String value = arg.substring(separator + 1);
+			switch (arg.substring(2, separator)) {
+				case "mode" -> openLoop = switch (value) {
+					case "open" -> true;
+					case "closed" -> false;
+					default -> throw new IllegalArgumentException("Unknown mode " + value);
+				};
+				case "clients" -> clients = Integer.parseInt(value);
+				case "rate" -> rate = Double.parseDouble(value);
+				case "bulkhead" -> bulkhead = switch (value) {
+					case "off", "pool" -> value;
+					default -> String.valueOf(Integer.parseInt(value));
+				};
+				case "enrollment" -> enrollment = switch (value) {
+					case "sync", "async" -> value;
+					default -> throw new IllegalArgumentException("Unknown enrollment " + value);
+				};
+				case "limits" -> limits = switch (value) {
+					case "off", "adaptive" -> value;
+					default -> throw new IllegalArgumentException("Unknown limits " + value);
+				};
+				case "db-latency" -> dbLatency = Duration.parse(value);
+				case "warmup" -> warmup = Duration.parse(value);
+				case "duration" -> duration = Duration.parse(value);
+				case "mix" -> mix = parseMix(value);
+				case "students" -> students = Integer.parseInt(value);
+				case "courses" -> courses = Integer.parseInt(value);
+				case "enrolled" -> enrolled = Boolean.parseBoolean(value);
+				case "max-error-rate" -> maxErrorRate = Double.parseDouble(value);
+				default -> throw new IllegalArgumentException("Unknown option " + arg);
+			}
+		}
+
+		return new LoadOptions(openLoop, clients, rate, bulkhead, enrollment, limits, dbLatency, warmup, duration, mix, students, courses,
+				enrolled, maxErrorRate);
+	}
+
+	/**
+	 * @param mix weights such as {@code get-student=70,enroll=30}
+	 */
+	private static Map<LoadOperation, Integer> parseMix(String mix) {
+		final Map<LoadOperation, Integer> weights = new EnumMap<>(LoadOperation.class);
+		for (String entry : mix.split(",")) {
+			final String[] parts = entry.trim().split("=");
+			final LoadOperation operation = LoadOperation.fromParameter(parts[0])
+					.orElseThrow(() -> new IllegalArgumentException("Unknown operation " + parts[0]));
+			weights.put(operation, Integer.parseInt(parts[1]));
+		}
+		return weights;
+	}
+}
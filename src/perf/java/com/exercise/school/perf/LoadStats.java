@@ -0,0 +1,90 @@
+package com.exercise.school.perf;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and outcomes of the requests sent during one phase of a load test, by operation. Latencies leave out the
+ * requests the application shed, which are answered at once and would hide how long the others took.
+ */
+public class LoadStats {
+	private static final long HIGHEST_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+	private final Map<LoadOperation, ConcurrentHistogram> latencies = new EnumMap<>(LoadOperation.class);
+	private final Map<LoadOperation, Map<LoadClient.Outcome, LongAdder>> outcomes = new EnumMap<>(LoadOperation.class);
+
+	public LoadStats() {
+		for (LoadOperation operation : LoadOperation.values()) {
+			latencies.put(operation, new ConcurrentHistogram(HIGHEST_LATENCY_MICROS, 3));
+			final Map<LoadClient.Outcome, LongAdder> counts = new EnumMap<>(LoadClient.Outcome.class);
+			for (LoadClient.Outcome outcome : LoadClient.Outcome.values()) {
+				counts.put(outcome, new LongAdder());
+			}
+			outcomes.put(operation, counts);
+		}
+	}
+
+	public void record(LoadOperation operation, LoadClient.Outcome outcome, long latencyNanos) {
+		if (outcome != LoadClient.Outcome.SHED) {
+			latencies.get(operation).recordValue(Math.min(HIGHEST_LATENCY_MICROS, TimeUnit.NANOSECONDS.toMicros(latencyNanos)));
+		}
+		outcomes.get(operation).get(outcome).increment();
+	}
+
+	public long count(LoadClient.Outcome outcome) {
+		return outcomes.values().stream().mapToLong(counts -> counts.get(outcome).sum()).sum();
+	}
+
+	public long total() {
+		return outcomes.values().stream()
+				.flatMap(counts -> counts.values().stream())
+				.mapToLong(LongAdder::sum)
+				.sum();
+	}
+
+	public void print(Duration elapsed) {
+		final Histogram all = new Histogram(HIGHEST_LATENCY_MICROS, 3);
+		System.out.printf(Locale.ROOT, "%-14s %9s %9s %9s %9s %9s %9s %9s %9s %9s%n",
+				"operation", "requests", "ok", "rejected", "shed", "errors", "p50 ms", "p95 ms", "p99 ms", "max ms");
+		latencies.forEach((operation, histogram) -> {
+			final Map<LoadClient.Outcome, LongAdder> counts = outcomes.get(operation);
+			final long requests = counts.values().stream().mapToLong(LongAdder::sum).sum();
+			if (requests > 0) {
+				all.add(histogram);
+				printRow(operation.getParameter(), histogram, requests, counts.get(LoadClient.Outcome.OK).sum(),
+						counts.get(LoadClient.Outcome.REJECTED).sum(), counts.get(LoadClient.Outcome.SHED).sum(),
+						counts.get(LoadClient.Outcome.ERROR).sum());
+			}
+		});
+		printRow("all", all, total(), count(LoadClient.Outcome.OK), count(LoadClient.Outcome.REJECTED),
+				count(LoadClient.Outcome.SHED), count(LoadClient.Outcome.ERROR));
+
+		final double seconds = elapsed.toNanos() / 1e9;
+		System.out.printf(Locale.ROOT, "Throughput %.1f requests/s, shed rate %.2f%%, error rate %.2f%%%n",
+				total() / seconds, total() == 0 ? 0 : 100.0 * count(LoadClient.Outcome.SHED) / total(), errorRate() * 100);
+	}
+
+	public double errorRate() {
+		final long total = total();
+		return total == 0 ? 0 : (double) count(LoadClient.Outcome.ERROR) / total;
+	}
+
+	private static void printRow(String name, Histogram histogram, long requests, long ok, long rejected, long shed,
+								 long errors) {
+		System.out.printf(Locale.ROOT, "%-14s %9d %9d %9d %9d %9d %9.1f %9.1f %9.1f %9.1f%n",
+				name, requests, ok, rejected, shed, errors,
+				millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(95)),
+				millis(histogram.getValueAtPercentile(99)), millis(histogram.getMaxValue()));
+	}
+
+	private static double millis(long micros) {
+		return micros / 1000.0;
+	}
+}
@@ -0,0 +1,154 @@
+package com.exercise.school.perf;
+
+import com.exercise.school.service.EnrollmentService;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Starts the application on a random port against an in-memory H2 database, fills it with generated students and
+ * courses, and sends it a mix of reads, registrations and enrollments from many client threads. Prints latency
+ * percentiles, throughput and error rates by operation, then checks that no course or student went over its enrollment
+ * limit. Exits with 1 when the error rate is too high or a limit was broken.
+ * <p>
+ * In closed-loop mode each client sends its next request as soon as the previous one is answered. In open-loop mode
+ * requests are sent at a fixed rate whatever the response times, and latency is measured from when each request was
+ * due, so time spent queueing behind a slow server is counted.
+ * <p>
+ * Running the same load with {@code --bulkhead=off} and {@code --bulkhead=pool} compares letting every request reach
+ * the connection pool with queueing them in the application.
+ * <p>
+ * {@code mvn -P perf test-compile exec:exec -Dperf.main=com.exercise.school.perf.LoadTest
+ * -Dperf.args="--mode=open --rate=800 --duration=PT1M"}; see {@link LoadOptions} for the options.
+ */
+public final class LoadTest {
+	private LoadTest() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		final LoadOptions options = LoadOptions.parse(args);
+		final List<String> properties = new ArrayList<>(List.of("--school.enrollment.mode=" + options.enrollment(),
+				"--school.limits.enabled=" + options.limits().equals("adaptive")));
+		if (!options.bulkhead().equals("off")) {
+			properties.add("--school.threads.max-concurrent-operations=" +
+					(options.bulkhead().equals("pool") ? "0" : options.bulkhead()));
+		}
+		if (!options.dbLatency().isZero()) {
+			properties.add("--perf.db-latency=" + options.dbLatency());
+		}
+		final ConfigurableApplicationContext context = PerfApplication.start(WebApplicationType.SERVLET,
+				properties.toArray(String[]::new));
+		boolean passed;
+		try {
+			final DatasetGenerator.Dataset dataset = new DatasetGenerator(context)
+					.generate(DatasetGenerator.Options.of(options.students(), options.courses(), options.enrolled()));
+			final LoadClient client = new LoadClient(((WebServerApplicationContext) context).getWebServer().getPort(),
+					dataset.studentIds(), dataset.courseIds());
+			final List<LoadOperation> mix = weighted(options.mix());
+
+			System.out.printf("Warming up for %s%n", options.warmup());
+			run(options, options.warmup(), client, mix, new LoadStats());
+
+			System.out.printf("Running %s %s with bulkhead %s, %s enrollment and limits %s%n", options.openLoop() ?
+					"open loop at " + options.rate() + " requests/s with up to " + options.clients() + " in flight" :
+					"closed loop with " + options.clients() + " clients", "for " + options.duration(),
+					options.bulkhead(), options.enrollment(), options.limits());
+			final LoadStats stats = new LoadStats();
+			final long start = System.nanoTime();
+			run(options, options.duration(), client, mix, stats);
+			stats.print(Duration.ofNanos(System.nanoTime() - start));
+
+			final boolean withinLimits = checkEnrollmentLimits(context.getBean(JdbcTemplate.class));
+			passed = withinLimits && stats.errorRate() <= options.maxErrorRate();
+		} finally {
+			context.close();
+		}
+		System.exit(passed ? 0 : 1);
+	}
+
+	private static void run(LoadOptions options, Duration duration, LoadClient client, List<LoadOperation> mix,
+							LoadStats stats) throws InterruptedException {
+		final ExecutorService clients = Executors.newFixedThreadPool(options.clients());
+		final long end = System.nanoTime() + duration.toNanos();
+		if (options.openLoop()) {
+			final long interval = (long) (TimeUnit.SECONDS.toNanos(1) / options.rate());
+			for (long due = System.nanoTime(); due < end; due += interval) {
+				LockSupport.parkNanos(due - System.nanoTime());
+				final long scheduled = due;
+				clients.execute(() -> send(client, mix, stats, scheduled));
+			}
+		} else {
+			for (int i = 0; i < options.clients(); i++) {
+				clients.execute(() -> {
+					while (System.nanoTime() < end) {
+						send(client, mix, stats, System.nanoTime());
+					}
+				});
+			}
+		}
+
+		clients.shutdown();
+		if (!clients.awaitTermination(1, TimeUnit.MINUTES)) {
+			clients.shutdownNow();
+		}
+	}
+
+	private static void send(LoadClient client, List<LoadOperation> mix, LoadStats stats, long start) {
+		final LoadOperation operation = mix.get(ThreadLocalRandom.current().nextInt(mix.size()));
+		final LoadClient.Outcome outcome = client.send(operation);
+		stats.record(operation, outcome, System.nanoTime() - start);
+	}
+
+	/**
+	 * @return each operation repeated by its weight, to draw from uniformly
+	 */
+	private static List<LoadOperation> weighted(Map<LoadOperation, Integer> mix) {
+		final List<LoadOperation> operations = new ArrayList<>();
+		mix.forEach((operation, weight) -> {
+			for (int i = 0; i < weight; i++) {
+				operations.add(operation);
+			}
+		});
+		return operations;
+	}
+
+	/**
+	 * Checks the enrollment table against the limits, and the seat and course counters against the enrollment table.
+	 *
+	 * @return whether everything is in order
+	 */
+	private static boolean checkEnrollmentLimits(JdbcTemplate jdbcTemplate) {
+		final long overfullCourses = count(jdbcTemplate, "SELECT COUNT(*) FROM (SELECT course_id FROM course_enrollment " +
+				"GROUP BY course_id HAVING COUNT(*) > ?) overfull", EnrollmentService.MAX_STUDENTS_PER_COURSE);
+		final long overloadedStudents = count(jdbcTemplate, "SELECT COUNT(*) FROM (SELECT student_id FROM " +
+				"course_enrollment GROUP BY student_id HAVING COUNT(*) > ?) overloaded",
+				EnrollmentService.MAX_COURSES_PER_STUDENT);
+		final long courseCountersOff = count(jdbcTemplate, "SELECT COUNT(*) FROM course c WHERE " +
+				"c.enrolled_students_count <> (SELECT COUNT(*) FROM course_enrollment e WHERE e.course_id = c.id)");
+		final long studentCountersOff = count(jdbcTemplate, "SELECT COUNT(*) FROM student s WHERE " +
+				"s.enrolled_courses_count <> (SELECT COUNT(*) FROM course_enrollment e WHERE e.student_id = s.id)");
+
+		System.out.printf("Enrollment limits: %d courses over %d students, %d students over %d courses, " +
+						"%d course and %d student counters out of step%n",
+				overfullCourses, EnrollmentService.MAX_STUDENTS_PER_COURSE,
+				overloadedStudents, EnrollmentService.MAX_COURSES_PER_STUDENT,
+				courseCountersOff, studentCountersOff);
+		return overfullCourses + overloadedStudents + courseCountersOff + studentCountersOff == 0;
+	}
+
+	private static long count(JdbcTemplate jdbcTemplate, String sql, Object... args) {
+		final Long count = jdbcTemplate.queryForObject(sql, Long.class, args);
+		return count == null ? 0 : count;
+	}
+}
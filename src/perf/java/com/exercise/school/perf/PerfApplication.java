@@ -0,0 +1,53 @@
+package com.exercise.school.perf;
+
+import com.exercise.school.SchoolApplication;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Starts the application against a private in-memory H2 database for the performance tooling. Request profiling is
+ * off and logging is quiet, so neither ends up in the measurements. Setting {@code perf.db-latency} slows the database
+ * down, see {@link SlowDatabase}.
+ */
+public final class PerfApplication {
+	private static final List<String> DEFAULTS = List.of(
+			"--spring.datasource.driver-class-name=org.h2.Driver",
+			"--spring.datasource.url=jdbc:h2:mem:perf;DB_CLOSE_DELAY=-1",
+			"--spring.datasource.username=sa",
+			"--spring.datasource.password=sa",
+			"--spring.r2dbc.url=r2dbc:h2:mem:///perf?options=DB_CLOSE_DELAY=-1",
+			"--spring.r2dbc.username=sa",
+			"--spring.r2dbc.password=sa",
+			"--server.port=0",
+			"--school.profiling.enabled=false",
+			"--logging.level.root=WARN"
+	);
+
+	private PerfApplication() {
+	}
+
+	/**
+	 * @param args extra {@code --name=value} properties, which replace the defaults of the same name, such as the
+	 *             datasource settings to use another database
+	 */
+	public static ConfigurableApplicationContext start(WebApplicationType webApplicationType, String... args) {
+		final List<String> properties = new ArrayList<>(List.of(args));
+		for (String property : DEFAULTS) {
+			final String name = property.substring(0, property.indexOf('=') + 1);
+			if (properties.stream().noneMatch(arg -> arg.startsWith(name))) {
+				properties.add(property);
+			}
+		}
+
+		return new SpringApplicationBuilder(SchoolApplication.class, SlowDatabase.class)
+				.web(webApplicationType)
+				.bannerMode(Banner.Mode.OFF)
+				.logStartupInfo(false)
+				.run(properties.toArray(String[]::new));
+	}
+}
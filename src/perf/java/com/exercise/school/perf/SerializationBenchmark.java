@@ -0,0 +1,59 @@
+package com.exercise.school.perf;
+
+import com.exercise.school.database.repository.StudentSortKey;
+import com.exercise.school.dto.StudentPagedResponse;
+import com.exercise.school.dto.StudentView;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes a page of students as JSON, the way the message converter does for list responses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+	@Param({"10", "100"})
+	public int pageSize;
+
+	private ObjectMapper objectMapper;
+	private StudentPagedResponse response;
+
+	@Setup
+	public void buildPage() {
+		objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+		final List<StudentView> students = new ArrayList<>(pageSize);
+		for (int i = 0; i < pageSize; i++) {
+			students.add(new StudentView(i + 1, "First " + i, "Last " + i, "student." + i + "@example.com", 0));
+		}
+		response = new StudentPagedResponse(new PageImpl<>(students, PageRequest.of(0, pageSize), 10_000),
+				StudentSortKey.ID::cursorOf);
+	}
+
+	@Benchmark
+	public byte[] writePagedResponse() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(response);
+	}
+}
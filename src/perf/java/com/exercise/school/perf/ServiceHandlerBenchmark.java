@@ -0,0 +1,80 @@
+package com.exercise.school.perf;
+
+import com.exercise.school.controller.ServiceHandler;
+import com.exercise.school.controller.ServiceOperation;
+import com.exercise.school.dto.HttpResponse;
+import com.exercise.school.dto.StudentView;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The fixed cost every operation pays for going through {@link ServiceHandler}: the response builder, the request
+ * timer and the conversion to a response entity. {@link #buildResponse()} is the builder alone, for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServiceHandlerBenchmark {
+	private static final String E_TAG = HttpResponse.strongETag(1, 0);
+
+	private ServiceHandler serviceHandler;
+	private StudentView student;
+
+	@Setup
+	public void createHandler() {
+		serviceHandler = new ServiceHandler();
+		inject("meterRegistry", new SimpleMeterRegistry());
+		inject("slowRequestThreshold", Duration.ofMillis(500));
+		student = new StudentView(1, "First", "Last", "student@example.com", 0);
+	}
+
+	@Benchmark
+	public ResponseEntity<Object> buildResponse() {
+		return HttpResponse.builder()
+				.statusCode(HttpStatus.OK)
+				.responseBody(student)
+				.build()
+				.toResponseEntity();
+	}
+
+	@Benchmark
+	public ResponseEntity<Object> processService() {
+		return serviceHandler.processService(ServiceOperation.GET_STUDENT,
+				responseBuilder -> responseBuilder.responseBody(student));
+	}
+
+	@Benchmark
+	public ResponseEntity<Object> processServiceWithMatchingETag() {
+		return serviceHandler.processService(ServiceOperation.GET_STUDENT, E_TAG,
+				responseBuilder -> {
+					if (!responseBuilder.eTagMatches(E_TAG)) {
+						responseBuilder.responseBody(student);
+					}
+				});
+	}
+
+	private void inject(String fieldName, Object value) {
+		final Field field = ReflectionUtils.findField(ServiceHandler.class, fieldName);
+		ReflectionUtils.makeAccessible(field);
+		ReflectionUtils.setField(field, serviceHandler, value);
+	}
+}
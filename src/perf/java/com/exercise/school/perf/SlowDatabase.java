@@ -0,0 +1,62 @@
+package com.exercise.school.perf;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Makes the database answer each request {@code perf.db-latency} later. Every connection taken from the pool waits that
+ * long before it is handed out, and stays taken meanwhile, so the pool runs dry the way it does when the real database
+ * slows down. Waiting takes no CPU, so the database rather than the machine running the test becomes the bottleneck.
+ */
+@Configuration
+@ConditionalOnProperty("perf.db-latency")
+public class SlowDatabase {
+	@Bean
+	public static BeanPostProcessor slowDatabasePostProcessor(Environment environment) {
+		final Duration latency = environment.getRequiredProperty("perf.db-latency", Duration.class);
+		return new BeanPostProcessor() {
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				return bean instanceof DataSource dataSource && !(bean instanceof SlowDataSource) ?
+						new SlowDataSource(dataSource, latency) : bean;
+			}
+		};
+	}
+
+	private static class SlowDataSource extends DelegatingDataSource implements AutoCloseable {
+		private final Duration latency;
+
+		SlowDataSource(DataSource targetDataSource, Duration latency) {
+			super(targetDataSource);
+			this.latency = latency;
+		}
+
+		@Override
+		public Connection getConnection() throws SQLException {
+			final Connection connection = super.getConnection();
+			try {
+				TimeUnit.NANOSECONDS.sleep(latency.toNanos());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return connection;
+		}
+
+		@Override
+		public void close() throws Exception {
+			if (getTargetDataSource() instanceof AutoCloseable closeable) {
+				closeable.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,165 @@
+package com.exercise.school.api;
+
+import com.exercise.school.SchoolApplication;
+import com.exercise.school.database.model.Course;
+import com.exercise.school.database.model.Student;
+import com.exercise.school.database.repository.CourseRepository;
+import com.exercise.school.database.repository.StudentRepository;
+import com.exercise.school.service.EnrollmentLocks;
+import io.restassured.RestAssured;
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Runs on Tomcat's platform threads, with the bulkhead turned on by its cap alone.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(
+		classes = SchoolApplication.class,
+		webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+		properties = {
+				"school.threads.max-concurrent-operations=1",
+				"school.threads.queue-timeout=PT0.2S"
+		}
+)
+public class BulkheadApiTest {
+	private static final long IN_FLIGHT_TIMEOUT_MILLIS = 10_000;
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private StudentRepository studentRepository;
+
+	@Autowired
+	private CourseRepository courseRepository;
+
+	@Autowired
+	private EnrollmentLocks enrollmentLocks;
+
+	private Course course;
+
+	private Student student;
+
+	@BeforeEach
+	public void setupAndCleanDatabase() {
+		RestAssured.port = port;
+		RestAssured.requestSpecification = new RequestSpecBuilder()
+				.setPort(port)
+				.setContentType(ContentType.JSON)
+				.setAccept(ContentType.JSON)
+				.build();
+
+		studentRepository.deleteAll();
+		courseRepository.deleteAll();
+
+		course = new Course();
+		course.setName("Math");
+		courseRepository.save(course);
+		student = new Student();
+		student.setFirstName("First");
+		student.setLastName("Last");
+		student.setEmailAddress("Email");
+		studentRepository.save(student);
+	}
+
+	/**
+	 * This test runs its own server, and a new request specification keeps the port of the previous one. The port is
+	 * therefore set explicitly above, and the specification dropped so that the next test class starts clean.
+	 */
+	@AfterEach
+	public void resetRequestSpecification() {
+		RestAssured.reset();
+	}
+
+	@Test
+	public void should_serveOneRequestAfterAnother() {
+		given().get("/courses/" + course.getId()).then().statusCode(200);
+		given().get("/courses/" + course.getId()).then().statusCode(200);
+		given().get("/students/" + student.getId()).then().statusCode(200);
+	}
+
+	@Nested
+	class given_theOnlySlotTaken {
+		private final CountDownLatch release = new CountDownLatch(1);
+
+		private CompletableFuture<Void> courseLock;
+
+		private CompletableFuture<Integer> enrollment;
+
+		/**
+		 * Holds the course lock, so that an enrollment stays in flight and keeps the only slot.
+		 */
+		@BeforeEach
+		public void takeTheSlot() throws Exception {
+			CountDownLatch locked = new CountDownLatch(1);
+			courseLock = CompletableFuture.runAsync(() -> enrollmentLocks.callLocked(course.getId(), List.of(), () -> {
+				locked.countDown();
+				try {
+					return release.await(IN_FLIGHT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return false;
+				}
+			}));
+			assertThat(locked.await(IN_FLIGHT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS), equalTo(true));
+
+			enrollment = CompletableFuture.supplyAsync(() -> given().body(Map.of("studentId", student.getId()))
+					.post("/courses/" + course.getId() + "/enroll")
+					.statusCode());
+			// Requests are let in until the enrollment has taken the slot
+			long deadline = System.currentTimeMillis() + IN_FLIGHT_TIMEOUT_MILLIS;
+			int status = 200;
+			while (status != 503 && System.currentTimeMillis() < deadline) {
+				status = given().get("/courses/" + course.getId()).statusCode();
+			}
+			assertThat(status, equalTo(503));
+		}
+
+		@AfterEach
+		public void releaseTheSlot() throws Exception {
+			release.countDown();
+			courseLock.get(IN_FLIGHT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+			enrollment.get(IN_FLIGHT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+		}
+
+		@Test
+		public void should_turnAwayRequestsThatWaitedTooLong() {
+			given().get("/courses/" + course.getId())
+					.then()
+					.statusCode(503)
+					.header("Retry-After", "1")
+					.body("message", equalTo("Too many requests in progress, try again later"));
+		}
+
+		@Test
+		public void should_letTheNextRequestInOnceTheSlotIsFree() throws Exception {
+			release.countDown();
+			assertThat(enrollment.get(IN_FLIGHT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS), equalTo(201));
+
+			given().get("/courses/" + course.getId() + "/students")
+					.then()
+					.statusCode(200)
+					.body("content[0].id", equalTo((int) student.getId()));
+		}
+	}
+}
@@ -1,14 +1,21 @@
 package com.exercise.school.api;
 
 import com.exercise.school.SchoolApplication;
+import com.exercise.school.controller.ServiceHandler;
 import com.exercise.school.database.model.Course;
 import com.exercise.school.database.model.Student;
 import com.exercise.school.database.repository.CourseRepository;
 import com.exercise.school.database.repository.StudentRepository;
+import com.exercise.school.dto.PageCursor;
+import com.exercise.school.service.EnrollmentLocks;
+import com.exercise.school.service.EnrollmentService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import io.restassured.RestAssured;
 import io.restassured.builder.RequestSpecBuilder;
 import io.restassured.http.ContentType;
 import org.hamcrest.Matchers;
+import org.json.JSONArray;
 import org.json.JSONObject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
@@ -24,12 +31,23 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.exercise.school.api.QueryCount.runsAtMost;
+import static com.exercise.school.api.QueryCount.runsExactly;
+import static com.exercise.school.controller.ServiceHandler.SERVER_TIMING_HEADER;
 import static io.restassured.RestAssured.given;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.blankOrNullString;
+import static org.hamcrest.Matchers.emptyString;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
 
 @ExtendWith(SpringExtension.class)
@@ -47,6 +65,9 @@ public class CourseApiTest {
 	@Autowired
 	private CourseRepository courseRepository;
 
+	@Autowired
+	private MeterRegistry meterRegistry;
+
 	@BeforeEach
 	public void setupAndCleanDatabase() {
 		RestAssured.port = port;
@@ -73,6 +94,7 @@ public class CourseApiTest {
 					.then()
 					.assertThat()
 					.statusCode(201)
+					.header(SERVER_TIMING_HEADER, runsAtMost(2))
 					.body("id", not(blankOrNullString()))
 					.body("name", equalTo("Course"));
 
@@ -81,6 +103,33 @@ public class CourseApiTest {
 		}
 	}
 
+	@Nested
+	class given_importCourses {
+		@Test
+		public void should_importValidRowsAndReportRejectedOnes() {
+			String body = String.join("\n",
+					"name",
+					"Chemistry",
+					"\"Math, advanced\"",
+					"\"\"");
+
+			given()
+					.contentType("text/csv")
+					.body(body)
+					.post("/courses/import")
+					.then()
+					.assertThat()
+					.statusCode(200)
+					.header(SERVER_TIMING_HEADER, runsAtMost(2))
+					.body("rowsRead", equalTo(3))
+					.body("imported", equalTo(2))
+					.body("errors[0].line", equalTo(4))
+					.body("errors[0].message", equalTo("name is required"));
+
+			assertThat(courseRepository.findAll(), hasSize(2));
+		}
+	}
+
 	@Nested
 	class given_listCourses {
 		@Nested
@@ -91,6 +140,7 @@ public class CourseApiTest {
 						.then()
 						.assertThat()
 						.statusCode(200)
+						.header(SERVER_TIMING_HEADER, runsExactly(1))
 						.extract()
 						.path("content");
 
@@ -126,6 +176,7 @@ public class CourseApiTest {
 							.then()
 							.assertThat()
 							.statusCode(200)
+							.header(SERVER_TIMING_HEADER, runsExactly(1))
 							.extract()
 							.path("content");
 
@@ -136,6 +187,161 @@ public class CourseApiTest {
 				}
 			}
 
+			@Nested
+			class andTotalIsNotWanted {
+				@Test
+				public void should_leaveTheTotalOut() {
+					given().get("/courses?noStudentsOnly=true&total=none")
+							.then()
+							.assertThat()
+							.statusCode(200)
+							.header(SERVER_TIMING_HEADER, runsExactly(1))
+							.body("content.name", equalTo(List.of("Math")))
+							.body("pagination.last", equalTo(true))
+							.body("pagination.totalElements", nullValue());
+				}
+
+				@Test
+				public void should_return400ForAnUnknownMode() {
+					given().get("/courses?total=some")
+							.then()
+							.assertThat()
+							.statusCode(400)
+							.header(SERVER_TIMING_HEADER, runsExactly(0));
+				}
+			}
+
+			@Nested
+			class andCursorIsSupplied {
+				@Test
+				public void should_returnTheRowsAfterTheCursor() {
+					String nextCursor = given().get("/courses?sort=name&size=1&noStudentsOnly=false")
+							.then()
+							.assertThat()
+							.statusCode(200)
+							.header(SERVER_TIMING_HEADER, runsExactly(2))
+							.body("content.name", equalTo(List.of("Chemistry")))
+							.extract()
+							.path("pagination.nextCursor");
+
+					given().get("/courses?sort=name&size=1&noStudentsOnly=false&after=" + nextCursor)
+							.then()
+							.assertThat()
+							.statusCode(200)
+							.header(SERVER_TIMING_HEADER, runsExactly(1))
+							.body("content.name", equalTo(List.of("Math")))
+							.body("pagination.last", equalTo(true));
+				}
+
+				@Test
+				public void should_applyTheNoStudentsOnlyFilter() {
+					String cursor = new PageCursor("id", 0, null).encode();
+
+					given().get("/courses?noStudentsOnly=true&after=" + cursor)
+							.then()
+							.assertThat()
+							.statusCode(200)
+							.header(SERVER_TIMING_HEADER, runsExactly(1))
+							.body("content.name", equalTo(List.of("Math")));
+				}
+
+				@Test
+				public void should_return400WhenTheCursorIsMalformed() {
+					given().get("/courses?after=not-a-cursor")
+							.then()
+							.assertThat()
+							.statusCode(400)
+							.header(SERVER_TIMING_HEADER, runsExactly(0));
+				}
+			}
+
+			@Nested
+			class andTheClientHoldsTheCurrentList {
+				@Test
+				public void should_return304UntilACourseIsAdded() throws Exception {
+					String eTag = given().get("/courses").then().statusCode(200).extract().header("ETag");
+
+					given().header("If-None-Match", eTag).get("/courses").then().statusCode(304);
+
+					JSONObject parameters = new JSONObject();
+					parameters.put("name", "Physics");
+					given().body(parameters.toString()).post("/courses").then().statusCode(201);
+
+					given()
+							.header("If-None-Match", eTag)
+							.get("/courses")
+							.then()
+							.statusCode(200)
+							.body("content.name", equalTo(List.of("Chemistry", "Math", "Physics")));
+				}
+
+				@Test
+				public void should_return304AfterAnEnrollmentIntoAListedCourse() {
+					String eTag = given().get("/courses").then().statusCode(200).extract().header("ETag");
+
+					enrollInMath();
+
+					given().header("If-None-Match", eTag).get("/courses").then().statusCode(304);
+				}
+
+				@Test
+				public void should_return200WhenTheOnlyCourseWithNoStudentsGetsOne() {
+					String eTag = given().get("/courses?noStudentsOnly=true").then().statusCode(200).extract().header("ETag");
+
+					enrollInMath();
+
+					given()
+							.header("If-None-Match", eTag)
+							.get("/courses?noStudentsOnly=true")
+							.then()
+							.statusCode(200)
+							.body("content", hasSize(0));
+				}
+
+				@Test
+				public void should_return304ForACursorPageUntilItChanges() {
+					String cursor = new PageCursor("id", 0, null).encode();
+					String eTag = given().get("/courses?after=" + cursor).then().statusCode(200).extract().header("ETag");
+
+					given().header("If-None-Match", eTag).get("/courses?after=" + cursor).then().statusCode(304);
+
+					Course math = courseRepository.findAll().stream()
+							.filter(course -> course.getName().equals("Math"))
+							.findFirst()
+							.orElseThrow();
+					given()
+							.body(Map.of("name", "Algebra"))
+							.put("/courses/" + math.getId())
+							.then()
+							.statusCode(200);
+
+					given()
+							.header("If-None-Match", eTag)
+							.get("/courses?after=" + cursor)
+							.then()
+							.statusCode(200)
+							.body("content.name", equalTo(List.of("Chemistry", "Algebra")));
+				}
+
+				private void enrollInMath() {
+					Course math = courseRepository.findAll().stream()
+							.filter(course -> course.getName().equals("Math"))
+							.findFirst()
+							.orElseThrow();
+					Student student = new Student();
+					student.setFirstName("Other");
+					student.setLastName("Student");
+					student.setEmailAddress("Other email");
+					studentRepository.save(student);
+
+					given()
+							.body(Map.of("studentId", student.getId()))
+							.post("/courses/" + math.getId() + "/enroll")
+							.then()
+							.statusCode(201);
+				}
+			}
+
 			@Nested
 			class andNoStudentsOnlyParameterIsNotSupplied {
 				@Test
@@ -144,6 +350,7 @@ public class CourseApiTest {
 							.then()
 							.assertThat()
 							.statusCode(200)
+							.header(SERVER_TIMING_HEADER, runsExactly(1))
 							.extract()
 							.path("content");
 
@@ -180,11 +387,48 @@ public class CourseApiTest {
 						.get("/courses/" + id)
 						.then()
 						.statusCode(200)
+						.header(SERVER_TIMING_HEADER, runsExactly(1))
 						.extract()
 						.as(Course.class);
 
 				assertThat(course.getName(), equalTo("Math"));
 			}
+
+			@Test
+			public void should_return304UntilTheCourseChanges() throws Exception {
+				Course course = new Course();
+				course.setName("Math");
+				courseRepository.save(course);
+
+				String eTag = given()
+						.get("/courses/" + course.getId())
+						.then()
+						.statusCode(200)
+						.extract()
+						.header("ETag");
+
+				given()
+						.header("If-None-Match", eTag)
+						.get("/courses/" + course.getId())
+						.then()
+						.statusCode(304)
+						.header(SERVER_TIMING_HEADER, runsExactly(0))
+						.header("ETag", equalTo(eTag))
+						.body(emptyString());
+
+				JSONObject request = new JSONObject();
+				request.put("name", "Algebra");
+				given().body(request.toString()).put("/courses/" + course.getId()).then().statusCode(200);
+
+				given()
+						.header("If-None-Match", eTag)
+						.get("/courses/" + course.getId())
+						.then()
+						.statusCode(200)
+						.header(SERVER_TIMING_HEADER, runsExactly(1))
+						.header("ETag", not(equalTo(eTag)))
+						.body("name", equalTo("Algebra"));
+			}
 		}
 
 		@Nested
@@ -194,7 +438,8 @@ public class CourseApiTest {
 				given()
 						.get("/courses/901132212")
 						.then()
-						.statusCode(404);
+						.statusCode(404)
+						.header(SERVER_TIMING_HEADER, runsExactly(1));
 			}
 		}
 	}
@@ -218,20 +463,112 @@ public class CourseApiTest {
 
 				long id = course.getId();
 
-				List<Student> students = List.of(
-						given()
-								.get("/courses/" + id + "/students")
-								.then()
-								.statusCode(200)
-								.extract()
-								.as(Student[].class)
-				);
+				List<Student> students = given()
+						.get("/courses/" + id + "/students")
+						.then()
+						.statusCode(200)
+						.header(SERVER_TIMING_HEADER, runsExactly(2))
+						.extract()
+						.jsonPath()
+						.getList("content", Student.class);
 
 				assertThat(students.size(), equalTo(1));
 				assertThat(students.get(0).getFirstName(), equalTo("First"));
 				assertThat(students.get(0).getLastName(), equalTo("Last"));
 				assertThat(students.get(0).getEmailAddress(), equalTo("Email"));
 			}
+
+			@Test
+			public void should_return304UntilAStudentJoinsOrChanges() throws Exception {
+				Course course = new Course();
+				course.setName("Course");
+				courseRepository.save(course);
+
+				Student student = new Student();
+				student.setFirstName("First");
+				student.setLastName("Last");
+				student.setEmailAddress("Email");
+				studentRepository.save(student);
+
+				String emptyRosterETag = given().get("/courses/" + course.getId() + "/students").header("ETag");
+				given()
+						.header("If-None-Match", emptyRosterETag)
+						.get("/courses/" + course.getId() + "/students")
+						.then()
+						.statusCode(304)
+						.header(SERVER_TIMING_HEADER, runsExactly(1));
+
+				JSONObject enrollment = new JSONObject();
+				enrollment.put("studentId", student.getId());
+				given().body(enrollment.toString()).post("/courses/" + course.getId() + "/enroll").then().statusCode(201);
+
+				String rosterETag = given()
+						.header("If-None-Match", emptyRosterETag)
+						.get("/courses/" + course.getId() + "/students")
+						.then()
+						.statusCode(200)
+						.body("content.firstName", equalTo(List.of("First")))
+						.extract()
+						.header("ETag");
+
+				JSONObject update = new JSONObject();
+				update.put("firstName", "Renamed");
+				update.put("lastName", "Last");
+				update.put("emailAddress", "Email");
+				given().body(update.toString()).put("/students/" + student.getId()).then().statusCode(200);
+
+				given()
+						.header("If-None-Match", rosterETag)
+						.get("/courses/" + course.getId() + "/students")
+						.then()
+						.statusCode(200)
+						.body("content.firstName", equalTo(List.of("Renamed")));
+			}
+		}
+
+		@Nested
+		class when_courseHasMoreStudentsThanFitInOnePage {
+			@Test
+			public void should_pageThroughTheStudentsInIdOrder() {
+				Course course = new Course();
+				course.setName("Course");
+				courseRepository.save(course);
+
+				for (int i = 0; i < 3; i++) {
+					Student student = new Student();
+					student.setFirstName("First " + i);
+					student.setLastName("Last " + i);
+					student.setEmailAddress("Email " + i);
+					student.setEnrolledCourses(Set.of(course));
+					studentRepository.save(student);
+				}
+
+				String nextCursor = given()
+						.get("/courses/" + course.getId() + "/students?size=2")
+						.then()
+						.statusCode(200)
+						.header(SERVER_TIMING_HEADER, runsExactly(3))
+						.body("content.firstName", equalTo(List.of("First 0", "First 1")))
+						.body("pagination.totalElements", equalTo(3))
+						.body("pagination.last", equalTo(false))
+						.extract()
+						.path("pagination.nextCursor");
+
+				given()
+						.get("/courses/" + course.getId() + "/students?size=2&after=" + nextCursor)
+						.then()
+						.statusCode(200)
+						.header(SERVER_TIMING_HEADER, runsExactly(2))
+						.body("content.firstName", equalTo(List.of("First 2")))
+						.body("pagination.last", equalTo(true));
+
+				given()
+						.get("/courses/" + course.getId() + "/students?size=2&page=1")
+						.then()
+						.statusCode(200)
+						.header(SERVER_TIMING_HEADER, runsExactly(2))
+						.body("content.firstName", equalTo(List.of("First 2")));
+			}
 		}
 
 		@Nested
@@ -241,7 +578,8 @@ public class CourseApiTest {
 				given()
 						.get("/courses/901132212/students")
 						.then()
-						.statusCode(404);
+						.statusCode(404)
+						.header(SERVER_TIMING_HEADER, runsExactly(1));
 			}
 		}
 	}
@@ -268,11 +606,56 @@ public class CourseApiTest {
 						.put("/courses/" + id)
 						.then()
 						.statusCode(200)
+						.header(SERVER_TIMING_HEADER, runsExactly(2))
 						.extract()
 						.path("name");
 
 				assertThat(updatedName, equalTo("Math"));
 			}
+
+			@Test
+			public void should_return412WhenTheETagIsStale() throws Exception {
+				Course course = new Course();
+				course.setName("Mathe");
+				courseRepository.save(course);
+
+				String eTag = given().get("/courses/" + course.getId()).then().extract().header("ETag");
+				course.setName("Maths");
+				courseRepository.save(course);
+
+				JSONObject request = new JSONObject();
+				request.put("name", "Math");
+
+				given()
+						.header("If-Match", eTag)
+						.body(request.toString())
+						.put("/courses/" + course.getId())
+						.then()
+						.statusCode(412);
+
+				assertThat(courseRepository.findById(course.getId()).orElseThrow().getName(), equalTo("Maths"));
+			}
+
+			@Test
+			public void should_return412WhenTheETagIsWeak() throws Exception {
+				Course course = new Course();
+				course.setName("Mathe");
+				courseRepository.save(course);
+
+				String eTag = given().get("/courses/" + course.getId()).then().extract().header("ETag");
+
+				JSONObject request = new JSONObject();
+				request.put("name", "Math");
+
+				given()
+						.header("If-Match", "W/" + eTag)
+						.body(request.toString())
+						.put("/courses/" + course.getId())
+						.then()
+						.statusCode(412);
+
+				assertThat(courseRepository.findById(course.getId()).orElseThrow().getName(), equalTo("Mathe"));
+			}
 		}
 
 		@Nested
@@ -286,7 +669,8 @@ public class CourseApiTest {
 						.body(request.toString())
 						.put("/courses/901132212")
 						.then()
-						.statusCode(404);
+						.statusCode(404)
+						.header(SERVER_TIMING_HEADER, runsExactly(1));
 			}
 		}
 	}
@@ -306,7 +690,51 @@ public class CourseApiTest {
 				given()
 						.delete("/courses/" + id)
 						.then()
-						.statusCode(204);
+						.statusCode(204)
+						.header(SERVER_TIMING_HEADER, runsExactly(5));
+			}
+
+			@Test
+			public void should_stopServingTheCachedCourse() {
+				Course course = new Course();
+				course.setName("Math");
+				courseRepository.save(course);
+
+				long id = course.getId();
+
+				given().get("/courses/" + id).then().statusCode(200);
+				given().delete("/courses/" + id).then().statusCode(204);
+				given().get("/courses/" + id).then().statusCode(404);
+			}
+
+			@Test
+			public void should_releaseTheCourseSlotsOfEnrolledStudents() throws Exception {
+				Course course = new Course();
+				course.setName("Math");
+				courseRepository.save(course);
+
+				Student student = new Student();
+				student.setFirstName("First");
+				student.setLastName("Last");
+				student.setEmailAddress("Email");
+				studentRepository.save(student);
+
+				JSONObject request = new JSONObject();
+				request.put("studentId", student.getId());
+
+				given()
+						.body(request.toString())
+						.post("/courses/" + course.getId() + "/enroll")
+						.then()
+						.statusCode(201);
+
+				given()
+						.delete("/courses/" + course.getId())
+						.then()
+						.statusCode(204)
+						.header(SERVER_TIMING_HEADER, runsExactly(5));
+
+				assertThat(studentRepository.findById(student.getId()).orElseThrow().getEnrolledCoursesCount(), equalTo(0));
 			}
 		}
 
@@ -318,7 +746,8 @@ public class CourseApiTest {
 				given()
 						.delete("/courses/901132212")
 						.then()
-						.statusCode(404);
+						.statusCode(404)
+						.header(SERVER_TIMING_HEADER, runsExactly(1));
 			}
 		}
 	}
@@ -337,7 +766,8 @@ public class CourseApiTest {
 						.body(request.toString())
 						.post("/courses/901132212/enroll")
 						.then()
-						.statusCode(404);
+						.statusCode(404)
+						.header(SERVER_TIMING_HEADER, runsExactly(2));
 			}
 		}
 
@@ -358,7 +788,8 @@ public class CourseApiTest {
 						.body(request.toString())
 						.post("/courses/" + id + "/enroll")
 						.then()
-						.statusCode(404);
+						.statusCode(404)
+						.header(SERVER_TIMING_HEADER, runsExactly(4));
 			}
 		}
 
@@ -382,6 +813,7 @@ public class CourseApiTest {
 					student.setLastName("Last");
 					student.setEmailAddress("Email");
 					student.setEnrolledCourses(new HashSet<>(courses.subList(0, 5)));
+					student.setEnrolledCoursesCount(5);
 					studentRepository.save(student);
 
 					JSONObject request = new JSONObject();
@@ -392,6 +824,7 @@ public class CourseApiTest {
 							.post("/courses/" + courses.get(5).getId() + "/enroll")
 							.then()
 							.statusCode(400)
+							.header(SERVER_TIMING_HEADER, runsExactly(5))
 							.body("message", equalTo("Student has exceeded maximum allowed courses"));
 				}
 			}
@@ -403,6 +836,7 @@ public class CourseApiTest {
 				public void should_return400() throws Exception {
 					Course course = new Course();
 					course.setName("Course");
+					course.setEnrolledStudentsCount(50);
 					courseRepository.save(course);
 
 					List<Student> students = new ArrayList<>();
@@ -423,12 +857,24 @@ public class CourseApiTest {
 					JSONObject request = new JSONObject();
 					request.put("studentId", students.get(50).getId());
 
+					long rejectedBefore = courseFullRequests();
+
 					given()
 							.body(request.toString())
 							.post("/courses/" + course.getId() + "/enroll")
 							.then()
 							.statusCode(400)
+							.header(SERVER_TIMING_HEADER, runsExactly(4))
 							.body("message", equalTo("The course is full"));
+
+					assertThat(courseFullRequests(), equalTo(rejectedBefore + 1));
+				}
+
+				private long courseFullRequests() {
+					Timer timer = meterRegistry.find(ServiceHandler.REQUESTS_METRIC)
+							.tags("operation", "enroll", "outcome", "course_full")
+							.timer();
+					return timer == null ? 0 : timer.count();
 				}
 			}
 
@@ -453,9 +899,343 @@ public class CourseApiTest {
 							.body(request.toString())
 							.post("/courses/" + course.getId() + "/enroll")
 							.then()
+							.statusCode(201)
+							.header(SERVER_TIMING_HEADER, runsExactly(3));
+
+					assertThat(courseRepository.findById(course.getId()).orElseThrow().getEnrolledStudentsCount(), equalTo(1));
+					assertThat(studentRepository.findById(student.getId()).orElseThrow().getEnrolledCoursesCount(), equalTo(1));
+					assertThat(given().get("/courses/" + course.getId() + "/students").path("content"), hasSize(1));
+				}
+			}
+
+			@Nested
+			class and_studentIsAlreadyEnrolled {
+				@Test
+				public void should_return201WithoutTakingAnotherSeat() throws Exception {
+					Course course = new Course();
+					course.setName("Course");
+					courseRepository.save(course);
+
+					Student student = new Student();
+					student.setFirstName("First");
+					student.setLastName("Last");
+					student.setEmailAddress("Email");
+					studentRepository.save(student);
+
+					JSONObject request = new JSONObject();
+					request.put("studentId", student.getId());
+
+					for (int i = 0; i < 2; i++) {
+						given()
+								.body(request.toString())
+								.post("/courses/" + course.getId() + "/enroll")
+								.then()
+								.statusCode(201);
+					}
+
+					assertThat(courseRepository.findById(course.getId()).orElseThrow().getEnrolledStudentsCount(), equalTo(1));
+					assertThat(studentRepository.findById(student.getId()).orElseThrow().getEnrolledCoursesCount(), equalTo(1));
+				}
+
+				@Test
+				public void should_return201EvenWhenTheCourseIsFull() throws Exception {
+					Course course = new Course();
+					course.setName("Course");
+					course.setEnrolledStudentsCount(50);
+					courseRepository.save(course);
+
+					Student student = new Student();
+					student.setFirstName("First");
+					student.setLastName("Last");
+					student.setEmailAddress("Email");
+					student.setEnrolledCourses(Set.of(course));
+					student.setEnrolledCoursesCount(1);
+					studentRepository.save(student);
+
+					JSONObject request = new JSONObject();
+					request.put("studentId", student.getId());
+
+					given()
+							.body(request.toString())
+							.post("/courses/" + course.getId() + "/enroll")
+							.then()
+							.statusCode(201);
+
+					assertThat(courseRepository.findById(course.getId()).orElseThrow().getEnrolledStudentsCount(), equalTo(50));
+				}
+
+				@Test
+				public void should_return201EvenWhenTheStudentHasReachedTheirLimit() throws Exception {
+					List<Course> courses = new ArrayList<>();
+					for (int i = 0; i < 5; i++) {
+						Course course = new Course();
+						course.setName("Course " + i);
+						course.setEnrolledStudentsCount(1);
+						courseRepository.save(course);
+						courses.add(course);
+					}
+
+					Student student = new Student();
+					student.setFirstName("First");
+					student.setLastName("Last");
+					student.setEmailAddress("Email");
+					student.setEnrolledCourses(new HashSet<>(courses));
+					student.setEnrolledCoursesCount(5);
+					studentRepository.save(student);
+
+					JSONObject request = new JSONObject();
+					request.put("studentId", student.getId());
+
+					given()
+							.body(request.toString())
+							.post("/courses/" + courses.get(0).getId() + "/enroll")
+							.then()
 							.statusCode(201);
+
+					assertThat(courseRepository.findById(courses.get(0).getId()).orElseThrow().getEnrolledStudentsCount(), equalTo(1));
+					assertThat(studentRepository.findById(student.getId()).orElseThrow().getEnrolledCoursesCount(), equalTo(5));
+				}
+			}
+
+			@Nested
+			class and_oneStudentMoreThanSeatsEnrollsInParallel {
+				@Test
+				public void should_enrollExactlyAsManyStudentsAsThereAreSeats() throws Exception {
+					Course course = new Course();
+					course.setName("Course");
+					courseRepository.save(course);
+
+					List<Student> students = new ArrayList<>();
+					for (int i = 0; i <= EnrollmentService.MAX_STUDENTS_PER_COURSE; i++) {
+						Student student = new Student();
+						student.setFirstName("First" + i);
+						student.setLastName("Last" + i);
+						student.setEmailAddress("Email" + i);
+						students.add(student);
+					}
+					studentRepository.saveAll(students);
+
+					List<Integer> statusCodes = inParallel(students.stream()
+							.map(student -> (Callable<Integer>) () -> enroll(course, student))
+							.toList());
+
+					assertThat(statusCodes.stream().filter(statusCode -> statusCode == 201).count(),
+							equalTo((long) EnrollmentService.MAX_STUDENTS_PER_COURSE));
+					assertThat(statusCodes.stream().filter(statusCode -> statusCode == 400).count(), equalTo(1L));
+					assertThat(courseRepository.findById(course.getId()).orElseThrow().getEnrolledStudentsCount(),
+							equalTo(EnrollmentService.MAX_STUDENTS_PER_COURSE));
+					assertThat(given().get("/courses/" + course.getId() + "/students?size=100").path("content"),
+							hasSize(EnrollmentService.MAX_STUDENTS_PER_COURSE));
 				}
 			}
+
+			@Nested
+			class and_studentEnrollsInOneCourseMoreThanAllowedInParallel {
+				@Test
+				public void should_enrollStudentInExactlyAsManyCoursesAsAllowed() throws Exception {
+					List<Course> courses = new ArrayList<>();
+					for (int i = 0; i <= EnrollmentService.MAX_COURSES_PER_STUDENT; i++) {
+						Course course = new Course();
+						course.setName("Course " + i);
+						courses.add(course);
+					}
+					courseRepository.saveAll(courses);
+
+					Student student = new Student();
+					student.setFirstName("First");
+					student.setLastName("Last");
+					student.setEmailAddress("Email");
+					studentRepository.save(student);
+
+					List<Integer> statusCodes = inParallel(courses.stream()
+							.map(course -> (Callable<Integer>) () -> enroll(course, student))
+							.toList());
+
+					assertThat(statusCodes.stream().filter(statusCode -> statusCode == 201).count(),
+							equalTo((long) EnrollmentService.MAX_COURSES_PER_STUDENT));
+					assertThat(statusCodes.stream().filter(statusCode -> statusCode == 400).count(), equalTo(1L));
+					assertThat(studentRepository.findById(student.getId()).orElseThrow().getEnrolledCoursesCount(),
+							equalTo(EnrollmentService.MAX_COURSES_PER_STUDENT));
+					assertThat(courses.stream()
+									.mapToInt(course -> courseRepository.findById(course.getId()).orElseThrow()
+											.getEnrolledStudentsCount())
+									.sum(),
+							equalTo(EnrollmentService.MAX_COURSES_PER_STUDENT));
+				}
+			}
+
+			private int enroll(Course course, Student student) {
+				return given()
+						.body(Map.of("studentId", student.getId()))
+						.post("/courses/" + course.getId() + "/enroll")
+						.statusCode();
+			}
+
+			/**
+			 * Releases every request at once, so that they all race for the counters rather than trickle in.
+			 */
+			private List<Integer> inParallel(List<Callable<Integer>> requests) throws Exception {
+				ExecutorService executor = Executors.newFixedThreadPool(requests.size());
+				CountDownLatch start = new CountDownLatch(1);
+				try {
+					List<Future<Integer>> statusCodes = new ArrayList<>();
+					for (Callable<Integer> request : requests) {
+						statusCodes.add(executor.submit(() -> {
+							start.await();
+							return request.call();
+						}));
+					}
+					start.countDown();
+					List<Integer> results = new ArrayList<>();
+					for (Future<Integer> statusCode : statusCodes) {
+						results.add(statusCode.get(30, TimeUnit.SECONDS));
+					}
+					return results;
+				} finally {
+					executor.shutdown();
+				}
+			}
+
+			@Nested
+			class and_moreStudentsThanSeatsEnrollAtOnce {
+				@Test
+				public void should_fillCourseExactlyOnce() throws Exception {
+					Course course = new Course();
+					course.setName("Course");
+					courseRepository.save(course);
+
+					List<Student> students = new ArrayList<>();
+					for (int i = 0; i < EnrollmentService.MAX_STUDENTS_PER_COURSE + 10; i++) {
+						Student student = new Student();
+						student.setFirstName("First" + i);
+						student.setLastName("Last" + i);
+						student.setEmailAddress("Email" + i);
+						students.add(student);
+					}
+					studentRepository.saveAll(students);
+					long lockAcquisitionsBefore = meterRegistry.get(EnrollmentLocks.WAIT_METRIC).timer().count();
+
+					ExecutorService executor = Executors.newFixedThreadPool(20);
+					List<Future<Integer>> statusCodes = new ArrayList<>();
+					try {
+						for (Student student : students) {
+							statusCodes.add(executor.submit(() -> given()
+									.body(Map.of("studentId", student.getId()))
+									.post("/courses/" + course.getId() + "/enroll")
+									.statusCode()));
+						}
+						int enrolled = 0;
+						for (Future<Integer> statusCode : statusCodes) {
+							enrolled += statusCode.get() == 201 ? 1 : 0;
+							assertThat(statusCode.get(), Matchers.oneOf(201, 400));
+						}
+						assertThat(enrolled, equalTo(EnrollmentService.MAX_STUDENTS_PER_COURSE));
+					} finally {
+						executor.shutdown();
+					}
+
+					assertThat(courseRepository.findById(course.getId()).orElseThrow().getEnrolledStudentsCount(),
+							equalTo(EnrollmentService.MAX_STUDENTS_PER_COURSE));
+					assertThat(meterRegistry.get(EnrollmentLocks.WAIT_METRIC).timer().count() - lockAcquisitionsBefore,
+							equalTo((long) students.size()));
+				}
+			}
+		}
+	}
+
+	@Nested
+	class given_batchEnrollInCourse {
+		@Nested
+		class when_courseDoesNotExist {
+			@Test
+			public void should_return404() throws Exception {
+				JSONObject request = new JSONObject();
+				request.put("studentIds", new JSONArray(List.of(100)));
+
+				given()
+						.body(request.toString())
+						.post("/courses/901132212/enroll/batch")
+						.then()
+						.statusCode(404)
+						.header(SERVER_TIMING_HEADER, runsExactly(1));
+			}
+		}
+
+		@Nested
+		class when_tooManyStudentsAreSent {
+			@Test
+			public void should_return400() throws Exception {
+				Course course = new Course();
+				course.setName("Course");
+				courseRepository.save(course);
+
+				List<Long> studentIds = new ArrayList<>();
+				for (long i = 0; i <= EnrollmentService.MAX_BATCH_ENROLLMENT_SIZE; i++) {
+					studentIds.add(i);
+				}
+
+				JSONObject request = new JSONObject();
+				request.put("studentIds", new JSONArray(studentIds));
+
+				given()
+						.body(request.toString())
+						.post("/courses/" + course.getId() + "/enroll/batch")
+						.then()
+						.statusCode(400)
+						.header(SERVER_TIMING_HEADER, runsExactly(0));
+			}
+		}
+
+		@Nested
+		class when_courseExists {
+			@Test
+			public void should_returnTheOutcomeForEachStudent() throws Exception {
+				Course course = new Course();
+				course.setName("Course");
+				course.setEnrolledStudentsCount(48);
+				courseRepository.save(course);
+
+				List<Student> students = new ArrayList<>();
+				for (int i = 0; i < 4; i++) {
+					Student student = new Student();
+					student.setFirstName("First " + i);
+					student.setLastName("Last " + i);
+					student.setEmailAddress("Email " + i);
+					student.setEnrolledCoursesCount(i == 1 ? 5 : 0);
+					studentRepository.save(student);
+					students.add(student);
+				}
+
+				JSONObject request = new JSONObject();
+				request.put("studentIds", new JSONArray(List.of(
+						students.get(0).getId(),
+						students.get(1).getId(),
+						901132212L,
+						students.get(2).getId(),
+						students.get(3).getId(),
+						students.get(0).getId()
+				)));
+
+				List<Map<String, Object>> results = given()
+						.body(request.toString())
+						.post("/courses/" + course.getId() + "/enroll/batch")
+						.then()
+						.statusCode(200)
+						.header(SERVER_TIMING_HEADER, runsExactly(6))
+						.extract()
+						.path("");
+
+				assertThat(results, hasSize(5));
+				assertThat(results.get(0).get("result"), equalTo("ENROLLED"));
+				assertThat(results.get(1).get("result"), equalTo("STUDENT_COURSE_LIMIT_REACHED"));
+				assertThat(results.get(2).get("result"), equalTo("STUDENT_NOT_FOUND"));
+				assertThat(results.get(3).get("result"), equalTo("ENROLLED"));
+				assertThat(results.get(4).get("result"), equalTo("COURSE_FULL"));
+
+				assertThat(courseRepository.findById(course.getId()).orElseThrow().getEnrolledStudentsCount(), equalTo(50));
+				assertThat(studentRepository.findById(students.get(0).getId()).orElseThrow().getEnrolledCoursesCount(), equalTo(1));
+				assertThat(studentRepository.findById(students.get(3).getId()).orElseThrow().getEnrolledCoursesCount(), equalTo(0));
+			}
 		}
 	}
 }
\ No newline at end of file
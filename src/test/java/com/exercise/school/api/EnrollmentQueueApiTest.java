@@ -0,0 +1,270 @@
+package com.exercise.school.api;
+
+import com.exercise.school.SchoolApplication;
+import com.exercise.school.database.model.Course;
+import com.exercise.school.database.model.Student;
+import com.exercise.school.database.repository.CourseRepository;
+import com.exercise.school.database.repository.StudentRepository;
+import com.exercise.school.service.EnrollmentService;
+import io.restassured.RestAssured;
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.http.ContentType;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(
+		classes = SchoolApplication.class,
+		webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+		properties = "school.enrollment.mode=async"
+)
+public class EnrollmentQueueApiTest {
+	private static final long OUTCOME_TIMEOUT_MILLIS = 10_000;
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private StudentRepository studentRepository;
+
+	@Autowired
+	private CourseRepository courseRepository;
+
+	@SpyBean
+	private EnrollmentService enrollmentService;
+
+	private Course course;
+
+	@BeforeEach
+	public void setupAndCleanDatabase() {
+		RestAssured.port = port;
+		RestAssured.requestSpecification = new RequestSpecBuilder()
+				.setContentType(ContentType.JSON)
+				.setAccept(ContentType.JSON)
+				.build();
+
+		studentRepository.deleteAll();
+		courseRepository.deleteAll();
+
+		course = new Course();
+		course.setName("Math");
+		courseRepository.save(course);
+	}
+
+	private Student newStudent(int i) {
+		Student student = new Student();
+		student.setFirstName("First" + i);
+		student.setLastName("Last" + i);
+		student.setEmailAddress("Email" + i);
+		return studentRepository.save(student);
+	}
+
+	/**
+	 * @return the location of the queued request
+	 */
+	private static String enroll(long courseId, long studentId) throws Exception {
+		JSONObject request = new JSONObject();
+		request.put("studentId", studentId);
+
+		return given()
+				.body(request.toString())
+				.post("/courses/" + courseId + "/enroll")
+				.then()
+				.statusCode(202)
+				.body("status", equalTo("QUEUED"))
+				.extract()
+				.header("Location");
+	}
+
+	/**
+	 * Waits for the queued request to be applied.
+	 *
+	 * @return its result
+	 */
+	private static String outcomeOf(String location) throws InterruptedException {
+		assertThat(statusOf(location), equalTo("COMPLETED"));
+		return given().get(location).then().extract().path("result");
+	}
+
+	/**
+	 * Waits for the queued request to leave the queue.
+	 *
+	 * @return its status
+	 */
+	private static String statusOf(String location) throws InterruptedException {
+		final long deadline = System.currentTimeMillis() + OUTCOME_TIMEOUT_MILLIS;
+		while (System.currentTimeMillis() < deadline) {
+			String status = given().get(location).then().statusCode(200).extract().path("status");
+			if (!status.equals("QUEUED")) {
+				return status;
+			}
+			Thread.sleep(20);
+		}
+		throw new AssertionError("Enrollment still queued after " + OUTCOME_TIMEOUT_MILLIS + " ms: " + location);
+	}
+
+	@Nested
+	class given_enrollInCourse {
+		@Nested
+		class when_studentCanEnroll {
+			@Test
+			public void should_queueAndThenEnrollStudent() throws Exception {
+				Student student = newStudent(1);
+
+				String location = enroll(course.getId(), student.getId());
+
+				assertThat(location, containsString("/courses/" + course.getId() + "/enroll/requests/"));
+				assertThat(outcomeOf(location), equalTo("ENROLLED"));
+				given()
+						.get("/courses/" + course.getId() + "/students")
+						.then()
+						.statusCode(200)
+						.body("content[0].id", equalTo((int) student.getId()));
+			}
+		}
+
+		@Nested
+		class when_studentIsQueuedTwice {
+			@Test
+			public void should_reportSecondRequestAsAlreadyEnrolled() throws Exception {
+				Student student = newStudent(1);
+
+				String first = enroll(course.getId(), student.getId());
+				String second = enroll(course.getId(), student.getId());
+
+				assertThat(outcomeOf(first), equalTo("ENROLLED"));
+				assertThat(outcomeOf(second), equalTo("ALREADY_ENROLLED"));
+			}
+		}
+
+		@Nested
+		class when_moreStudentsThanSeatsAreQueued {
+			@Test
+			public void should_giveSeatsInArrivalOrder() throws Exception {
+				List<String> locations = new ArrayList<>();
+				for (int i = 0; i <= EnrollmentService.MAX_STUDENTS_PER_COURSE; i++) {
+					locations.add(enroll(course.getId(), newStudent(i).getId()));
+				}
+
+				for (int i = 0; i < EnrollmentService.MAX_STUDENTS_PER_COURSE; i++) {
+					assertThat(outcomeOf(locations.get(i)), equalTo("ENROLLED"));
+				}
+				assertThat(outcomeOf(locations.get(EnrollmentService.MAX_STUDENTS_PER_COURSE)), equalTo("COURSE_FULL"));
+			}
+		}
+
+		@Nested
+		class when_theFirstAttemptLosesAConflict {
+			/**
+			 * Mocks are only reset on their own after tests of the class that declares them, not of nested classes.
+			 */
+			@AfterEach
+			public void resetEnrollmentService() {
+				reset(enrollmentService);
+			}
+
+			@Test
+			public void should_applyTheEnrollmentsAgain() throws Exception {
+				Student student = newStudent(1);
+				doThrow(new CannotAcquireLockException("Deadlock found when trying to get lock"))
+						.doCallRealMethod()
+						.when(enrollmentService).enrollQueued(anyLong(), anyList());
+
+				String location = enroll(course.getId(), student.getId());
+
+				assertThat(outcomeOf(location), equalTo("ENROLLED"));
+				verify(enrollmentService, times(2)).enrollQueued(anyLong(), anyList());
+			}
+		}
+
+		@Nested
+		class when_applyingFailsWithAnError {
+			/**
+			 * Mocks are only reset on their own after tests of the class that declares them, not of nested classes.
+			 */
+			@AfterEach
+			public void resetEnrollmentService() {
+				reset(enrollmentService);
+			}
+
+			@Test
+			public void should_failThoseEnrollmentsAndKeepApplyingLaterOnes() throws Exception {
+				Student first = newStudent(1);
+				Student second = newStudent(2);
+				doThrow(new StackOverflowError())
+						.doCallRealMethod()
+						.when(enrollmentService).enrollQueued(anyLong(), anyList());
+
+				String failed = enroll(course.getId(), first.getId());
+				assertThat(statusOf(failed), equalTo("FAILED"));
+
+				String later = enroll(course.getId(), second.getId());
+				assertThat(outcomeOf(later), equalTo("ENROLLED"));
+			}
+		}
+
+		@Nested
+		class when_courseDoesNotExist {
+			@Test
+			public void should_reportCourseNotFound() throws Exception {
+				Student student = newStudent(1);
+
+				String location = enroll(course.getId() + 1000, student.getId());
+
+				assertThat(outcomeOf(location), equalTo("COURSE_NOT_FOUND"));
+			}
+		}
+	}
+
+	@Nested
+	class given_getQueuedEnrollment {
+		@Nested
+		class when_requestIsUnknown {
+			@Test
+			public void should_return404() {
+				given()
+						.get("/courses/" + course.getId() + "/enroll/requests/" + UUID.randomUUID())
+						.then()
+						.statusCode(404);
+			}
+		}
+
+		@Nested
+		class when_requestBelongsToAnotherCourse {
+			@Test
+			public void should_return404() throws Exception {
+				String location = enroll(course.getId(), newStudent(1).getId());
+
+				given()
+						.get(location.replace("/courses/" + course.getId() + "/", "/courses/" + (course.getId() + 1) + "/"))
+						.then()
+						.statusCode(404);
+			}
+		}
+	}
+}
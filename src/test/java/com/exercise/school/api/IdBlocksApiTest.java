@@ -0,0 +1,174 @@
+package com.exercise.school.api;
+
+import com.exercise.school.SchoolApplication;
+import io.restassured.RestAssured;
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Runs a second instance of the application next to the one under test, both on the same database, the way several
+ * instances share one database in production.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(
+		classes = SchoolApplication.class,
+		webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+		properties = "spring.datasource.url=" + IdBlocksApiTest.URL
+)
+public class IdBlocksApiTest {
+	static final String URL = "jdbc:h2:mem:shared;DB_CLOSE_DELAY=-1";
+
+	private static final int STUDENTS_PER_INSTANCE = 120;
+
+	private static ServletWebServerApplicationContext otherInstance;
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	public void setup() {
+		if (otherInstance == null) {
+			otherInstance = (ServletWebServerApplicationContext) new SpringApplicationBuilder(SchoolApplication.class)
+					.run("--server.port=0", "--spring.datasource.url=" + URL);
+		}
+		jdbcTemplate.update("DELETE FROM course_enrollment");
+		jdbcTemplate.update("DELETE FROM student");
+		jdbcTemplate.update("DELETE FROM course");
+
+		RestAssured.requestSpecification = new RequestSpecBuilder()
+				.setContentType(ContentType.JSON)
+				.setAccept(ContentType.JSON)
+				.build();
+	}
+
+	/**
+	 * Requests here name their port, and the specification is dropped so that the next test class starts clean.
+	 */
+	@AfterEach
+	public void resetRequestSpecification() {
+		RestAssured.reset();
+	}
+
+	@AfterAll
+	public static void stopOtherInstance() {
+		if (otherInstance != null) {
+			otherInstance.close();
+			otherInstance = null;
+		}
+	}
+
+	@Nested
+	class given_twoInstancesOnTheSameDatabase {
+		@Test
+		public void should_neverHandOutTheSameStudentIdTwice() throws Exception {
+			final int otherPort = otherInstance.getWebServer().getPort();
+			final List<Callable<Long>> registrations = new ArrayList<>();
+			for (int i = 0; i < STUDENTS_PER_INSTANCE; i++) {
+				registrations.add(register(port, "first" + i));
+				registrations.add(register(otherPort, "second" + i));
+			}
+
+			final List<Long> ids = inParallel(registrations);
+
+			assertThat(new HashSet<>(ids).size(), equalTo(2 * STUDENTS_PER_INSTANCE));
+			assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM student", Long.class),
+					equalTo(2L * STUDENTS_PER_INSTANCE));
+		}
+
+		@Test
+		public void should_neverHandOutTheSameCourseIdTwice() throws Exception {
+			final int otherPort = otherInstance.getWebServer().getPort();
+			final List<Callable<Long>> creations = new ArrayList<>();
+			for (int i = 0; i < STUDENTS_PER_INSTANCE; i++) {
+				creations.add(create(port, "First " + i));
+				creations.add(create(otherPort, "Second " + i));
+			}
+
+			final List<Long> ids = inParallel(creations);
+
+			assertThat(new HashSet<>(ids).size(), equalTo(2 * STUDENTS_PER_INSTANCE));
+			assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM course", Long.class),
+					equalTo(2L * STUDENTS_PER_INSTANCE));
+		}
+	}
+
+	private Callable<Long> register(int port, String name) {
+		return () -> given()
+				.port(port)
+				.body(Map.of("firstName", name, "lastName", "Student", "emailAddress", name + "@mail.com"))
+				.post("/students")
+				.then()
+				.statusCode(201)
+				.extract()
+				.<Number>path("id")
+				.longValue();
+	}
+
+	private Callable<Long> create(int port, String name) {
+		return () -> given()
+				.port(port)
+				.body(Map.of("name", name))
+				.post("/courses")
+				.then()
+				.statusCode(201)
+				.extract()
+				.<Number>path("id")
+				.longValue();
+	}
+
+	/**
+	 * Holds every call until all of them are ready, so that both instances take their blocks at the same time.
+	 */
+	private static List<Long> inParallel(List<Callable<Long>> calls) throws Exception {
+		final ExecutorService executor = Executors.newFixedThreadPool(16);
+		try {
+			final CountDownLatch start = new CountDownLatch(1);
+			final List<Future<Long>> futures = new ArrayList<>();
+			for (Callable<Long> call : calls) {
+				futures.add(executor.submit(() -> {
+					start.await();
+					return call.call();
+				}));
+			}
+			start.countDown();
+			final List<Long> ids = new ArrayList<>();
+			for (Future<Long> future : futures) {
+				ids.add(future.get(30, TimeUnit.SECONDS));
+			}
+			return ids;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,233 @@
+package com.exercise.school.api;
+
+import com.exercise.school.SchoolApplication;
+import com.exercise.school.configuration.ApplicationConcurrencyLimitsConfig;
+import com.exercise.school.controller.ServiceHandler;
+import com.exercise.school.database.model.Course;
+import com.exercise.school.database.model.Student;
+import com.exercise.school.database.repository.CourseRepository;
+import com.exercise.school.database.repository.StudentRepository;
+import com.exercise.school.service.EnrollmentLocks;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.restassured.RestAssured;
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(
+		classes = SchoolApplication.class,
+		webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+		properties = {
+				"school.limits.enabled=true",
+				"school.limits.enrollment.initial-limit=1",
+				"school.limits.enrollment.min-limit=1",
+				"school.limits.enrollment.max-limit=1",
+				"school.limits.write.latency-target=PT0S"
+		}
+)
+public class LoadSheddingApiTest {
+	private static final long IN_FLIGHT_TIMEOUT_MILLIS = 10_000;
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private StudentRepository studentRepository;
+
+	@Autowired
+	private CourseRepository courseRepository;
+
+	@Autowired
+	private EnrollmentLocks enrollmentLocks;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	private Course course;
+
+	private Student firstStudent;
+
+	private Student secondStudent;
+
+	@BeforeEach
+	public void setupAndCleanDatabase() {
+		RestAssured.port = port;
+		RestAssured.requestSpecification = new RequestSpecBuilder()
+				.setPort(port)
+				.setContentType(ContentType.JSON)
+				.setAccept(ContentType.JSON)
+				.build();
+
+		studentRepository.deleteAll();
+		courseRepository.deleteAll();
+
+		course = new Course();
+		course.setName("Math");
+		courseRepository.save(course);
+		firstStudent = newStudent(1);
+		secondStudent = newStudent(2);
+	}
+
+	/**
+	 * This test runs its own server, and a new request specification keeps the port of the previous one. The port is
+	 * therefore set explicitly above, and the specification dropped so that the next test class starts clean.
+	 */
+	@AfterEach
+	public void resetRequestSpecification() {
+		RestAssured.reset();
+	}
+
+	private Student newStudent(int i) {
+		Student student = new Student();
+		student.setFirstName("First" + i);
+		student.setLastName("Last" + i);
+		student.setEmailAddress("Email" + i);
+		return studentRepository.save(student);
+	}
+
+	private int enroll(Student student) {
+		return given().body(Map.of("studentId", student.getId()))
+				.post("/courses/" + course.getId() + "/enroll")
+				.statusCode();
+	}
+
+	@Nested
+	class given_enrollmentsAtTheirLimit {
+		private final CountDownLatch release = new CountDownLatch(1);
+
+		private CompletableFuture<Void> courseLock;
+
+		private CompletableFuture<Integer> firstEnrollment;
+
+		/**
+		 * Holds the course lock, so that the first enrollment stays in flight and takes the only enrollment slot.
+		 */
+		@BeforeEach
+		public void fillTheLimit() throws Exception {
+			CountDownLatch locked = new CountDownLatch(1);
+			courseLock = CompletableFuture.runAsync(() -> enrollmentLocks.callLocked(course.getId(), List.of(), () -> {
+				locked.countDown();
+				try {
+					return release.await(IN_FLIGHT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return false;
+				}
+			}));
+			assertThat(locked.await(IN_FLIGHT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS), equalTo(true));
+
+			firstEnrollment = CompletableFuture.supplyAsync(() -> enroll(firstStudent));
+			long deadline = System.currentTimeMillis() + IN_FLIGHT_TIMEOUT_MILLIS;
+			while (enrollmentsInFlight() < 1 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			assertThat(enrollmentsInFlight(), equalTo(1.0));
+		}
+
+		@AfterEach
+		public void releaseTheLimit() throws Exception {
+			release.countDown();
+			courseLock.get(IN_FLIGHT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+			firstEnrollment.get(IN_FLIGHT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+		}
+
+		private double enrollmentsInFlight() {
+			return meterRegistry.get(ApplicationConcurrencyLimitsConfig.IN_FLIGHT_METRIC)
+					.tag("traffic", "enrollment")
+					.gauge()
+					.value();
+		}
+
+		@Test
+		public void should_turnFurtherEnrollmentsAwayAtOnce() {
+			Counter shed = meterRegistry.counter(ServiceHandler.SHED_METRIC, "operation", "enroll", "traffic", "enrollment");
+			double shedBefore = shed.count();
+
+			given().body(Map.of("studentId", secondStudent.getId()))
+					.post("/courses/" + course.getId() + "/enroll")
+					.then()
+					.statusCode(503)
+					.header("Retry-After", "1")
+					.body("message", equalTo("Too many requests in progress, try again later"));
+
+			assertThat(shed.count() - shedBefore, equalTo(1.0));
+		}
+
+		@Test
+		public void should_keepServingReads() {
+			given().get("/courses/" + course.getId())
+					.then()
+					.statusCode(200);
+		}
+
+		@Test
+		public void should_acceptEnrollmentsOnceTheLimitFreesUp() throws Exception {
+			release.countDown();
+			assertThat(firstEnrollment.get(IN_FLIGHT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS), equalTo(201));
+
+			assertThat(enroll(secondStudent), equalTo(201));
+		}
+	}
+
+	/**
+	 * Every write is slower than the target of zero set above.
+	 */
+	@Nested
+	class given_writesSlowerThanTheirTarget {
+		private double writeLimit() {
+			return meterRegistry.get(ApplicationConcurrencyLimitsConfig.LIMIT_METRIC)
+					.tag("traffic", "write")
+					.gauge()
+					.value();
+		}
+
+		@Test
+		public void should_leaveTheWriteLimitAloneAfterAnImport() {
+			double limitBefore = writeLimit();
+
+			given()
+					.contentType("text/csv")
+					.body("firstName,lastName,emailAddress\nJane,Doe,jane.doe@mail.com")
+					.post("/students/import")
+					.then()
+					.statusCode(200)
+					.body("imported", equalTo(1));
+
+			assertThat(writeLimit(), equalTo(limitBefore));
+		}
+
+		@Test
+		public void should_shrinkTheWriteLimitAfterASlowRegistration() {
+			double limitBefore = writeLimit();
+
+			given()
+					.body(Map.of("firstName", "Jane", "lastName", "Doe", "emailAddress", "jane.doe@mail.com"))
+					.post("/students")
+					.then()
+					.statusCode(201);
+
+			assertThat(writeLimit(), lessThan(limitBefore));
+		}
+	}
+}
@@ -0,0 +1,122 @@
+package com.exercise.school.api;
+
+import com.exercise.school.SchoolApplication;
+import io.restassured.RestAssured;
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.List;
+import java.util.Map;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Runs the MySQL migrations from an empty schema, the way {@code docker compose} starts the application, and has
+ * Hibernate validate the result with the MySQL dialect. H2 stands in for MySQL in its compatibility mode.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(
+		classes = SchoolApplication.class,
+		webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+		properties = {
+				"spring.datasource.url=" + MySqlSchemaApiTest.URL,
+				"spring.flyway.locations=classpath:db/migration/mysql",
+				"spring.jpa.database-platform=org.hibernate.dialect.MySQL57Dialect"
+		}
+)
+public class MySqlSchemaApiTest {
+	static final String URL = "jdbc:h2:mem:mysql;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	public void setup() {
+		RestAssured.port = port;
+		RestAssured.requestSpecification = new RequestSpecBuilder()
+				.setPort(port)
+				.setContentType(ContentType.JSON)
+				.setAccept(ContentType.JSON)
+				.build();
+	}
+
+	/**
+	 * This test runs its own server, and a new request specification keeps the port of the previous one. The port is
+	 * therefore set explicitly above, and the specification dropped so that the next test class starts clean.
+	 */
+	@AfterEach
+	public void resetRequestSpecification() {
+		RestAssured.reset();
+	}
+
+	@Nested
+	class given_anEmptySchema {
+		@Test
+		public void should_applyEveryMigration() {
+			List<Map<String, Object>> history = jdbcTemplate.queryForList("SELECT \"version\", \"success\" " +
+					"FROM \"flyway_schema_history\" WHERE \"version\" IS NOT NULL ORDER BY \"installed_rank\"");
+
+			assertThat(history.stream().map(row -> row.get("version")).toList(), equalTo(List.of("1", "2", "3", "4", "5")));
+			assertThat(history.stream().allMatch(row -> Boolean.TRUE.equals(row.get("success"))), equalTo(true));
+		}
+
+		@Test
+		public void should_enrollAStudentWithIdsFromTheBlockTables() {
+			long studentId = given()
+					.body(Map.of("firstName", "First", "lastName", "Last", "emailAddress", "first@mail.com"))
+					.post("/students")
+					.then()
+					.statusCode(201)
+					.extract()
+					.<Number>path("id")
+					.longValue();
+			long courseId = given()
+					.body(Map.of("name", "Math"))
+					.post("/courses")
+					.then()
+					.statusCode(201)
+					.extract()
+					.<Number>path("id")
+					.longValue();
+
+			given()
+					.body(Map.of("studentId", studentId))
+					.post("/courses/" + courseId + "/enroll")
+					.then()
+					.statusCode(201);
+
+			assertThat(jdbcTemplate.queryForObject("SELECT next_val FROM student_id_seq", Long.class),
+					equalTo(studentId + 50));
+			assertThat(jdbcTemplate.queryForObject("SELECT enrolled_students_count FROM course WHERE id = ?",
+					Integer.class, courseId), equalTo(1));
+		}
+
+		@Test
+		public void should_rejectASecondStudentWithTheSameEmailAddress() {
+			Map<String, String> student = Map.of("firstName", "Other", "lastName", "Student", "emailAddress", "same");
+			given().body(student).post("/students").then().statusCode(201);
+
+			given()
+					.body(student)
+					.post("/students")
+					.then()
+					.statusCode(400)
+					.body("emailAddress", equalTo("same"));
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package com.exercise.school.api;
+
+import com.exercise.school.SchoolApplication;
+import com.exercise.school.controller.OperationBulkhead;
+import com.exercise.school.database.model.Course;
+import com.exercise.school.database.repository.CourseRepository;
+import com.exercise.school.database.repository.StudentRepository;
+import io.restassured.RestAssured;
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Sizes the bulkhead to the connection pool, which only settles its size once it has started.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(
+		classes = SchoolApplication.class,
+		webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+		properties = {
+				"school.threads.max-concurrent-operations=0",
+				"spring.datasource.hikari.maximum-pool-size=4"
+		}
+)
+public class PoolSizedBulkheadApiTest {
+	private static final int REQUESTS = 40;
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private StudentRepository studentRepository;
+
+	@Autowired
+	private CourseRepository courseRepository;
+
+	@Autowired
+	private OperationBulkhead operationBulkhead;
+
+	private Course course;
+
+	@BeforeEach
+	public void setupAndCleanDatabase() {
+		RestAssured.port = port;
+		RestAssured.requestSpecification = new RequestSpecBuilder()
+				.setPort(port)
+				.setContentType(ContentType.JSON)
+				.setAccept(ContentType.JSON)
+				.build();
+
+		studentRepository.deleteAll();
+		courseRepository.deleteAll();
+
+		course = new Course();
+		course.setName("Math");
+		courseRepository.save(course);
+	}
+
+	/**
+	 * This test runs its own server, and a new request specification keeps the port of the previous one. The port is
+	 * therefore set explicitly above, and the specification dropped so that the next test class starts clean.
+	 */
+	@AfterEach
+	public void resetRequestSpecification() {
+		RestAssured.reset();
+	}
+
+	@Test
+	public void should_runAsManyOperationsAsThePoolHasConnections() {
+		assertThat(operationBulkhead.getMaxConcurrentOperations(), equalTo(4));
+	}
+
+	@Test
+	public void should_serveMoreRequestsThanThePoolHasConnections() throws Exception {
+		final List<CompletableFuture<Integer>> requests = new ArrayList<>();
+		for (int i = 0; i < REQUESTS; i++) {
+			requests.add(CompletableFuture.supplyAsync(() -> given().get("/courses/" + course.getId()).statusCode()));
+		}
+
+		for (CompletableFuture<Integer> request : requests) {
+			assertThat(request.get(10, TimeUnit.SECONDS), equalTo(200));
+		}
+	}
+}
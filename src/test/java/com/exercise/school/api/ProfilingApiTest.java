@@ -0,0 +1,128 @@
+package com.exercise.school.api;
+
+import com.exercise.school.SchoolApplication;
+import com.exercise.school.database.model.Course;
+import com.exercise.school.database.model.Student;
+import com.exercise.school.database.repository.CourseRepository;
+import com.exercise.school.database.repository.StudentRepository;
+import io.restassured.RestAssured;
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.http.ContentType;
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.hamcrest.Matchers.nullValue;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(
+		classes = SchoolApplication.class,
+		webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT
+)
+public class ProfilingApiTest {
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private StudentRepository studentRepository;
+
+	@Autowired
+	private CourseRepository courseRepository;
+
+	private Course course;
+
+	@BeforeEach
+	public void setupAndCleanDatabase() {
+		RestAssured.port = port;
+		RestAssured.requestSpecification = new RequestSpecBuilder()
+				.setContentType(ContentType.JSON)
+				.setAccept(ContentType.JSON)
+				.build();
+
+		studentRepository.deleteAll();
+		courseRepository.deleteAll();
+
+		course = new Course();
+		course.setName("Math");
+		courseRepository.save(course);
+
+		Student student = new Student();
+		student.setFirstName("First");
+		student.setLastName("Last");
+		student.setEmailAddress("Email");
+		student.setEnrolledCourses(Set.of(course));
+		studentRepository.save(student);
+	}
+
+	@Nested
+	class given_profilingIsEnabled {
+		@Nested
+		class when_anEndpointReadsProjections {
+			@Test
+			public void should_reportTheStatementsAndRowsButNoEntities() {
+				given()
+						.get("/courses/" + course.getId() + "/students")
+						.then()
+						.statusCode(200)
+						.header("Server-Timing", matchesPattern(".*db;dur=[0-9.]+;desc=\"[1-9][0-9]* statements\".*"))
+						.header("Server-Timing", containsString("rows;desc=\"2 rows fetched\""))
+						.header("Server-Timing", containsString("entities;desc=\"0 entities loaded\""));
+			}
+		}
+
+		@Nested
+		class when_anEndpointLoadsEntities {
+			@Test
+			public void should_reportTheLoadedEntities() throws Exception {
+				JSONObject request = new JSONObject();
+				request.put("name", "Algebra");
+
+				given()
+						.body(request.toString())
+						.put("/courses/" + course.getId())
+						.then()
+						.statusCode(200)
+						.header("Server-Timing", containsString("entities;desc=\"1 entities loaded\""));
+			}
+		}
+
+		@Nested
+		class when_theResponseIsStreamed {
+			@Test
+			public void should_sendTheProfileAsATrailer() throws Exception {
+				given()
+						.get("/reports/enrollments")
+						.then()
+						.statusCode(200)
+						.header("Trailer", "Server-Timing")
+						.header("Server-Timing", nullValue());
+
+				// The HTTP client drops trailers, so the raw response is read instead
+				String response;
+				try (Socket socket = new Socket("localhost", port)) {
+					socket.getOutputStream().write(("GET /reports/enrollments HTTP/1.1\r\n" +
+							"Host: localhost\r\n" +
+							"TE: trailers\r\n" +
+							"Connection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+					response = new String(socket.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+				}
+				assertThat(response, matchesPattern("(?s).*\r\n0\r\nServer-Timing: app;dur=[0-9.]+, " +
+						"db;dur=[0-9.]+;desc=\"[1-9][0-9]* statements\", rows;desc=\"1 rows fetched\".*\r\n\r\n"));
+			}
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package com.exercise.school.api;
+
+import org.hamcrest.FeatureMatcher;
+import org.hamcrest.Matcher;
+
+import java.util.regex.Pattern;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+/**
+ * Matchers on the number of SQL statements an API call ran, as reported in its {@code Server-Timing} header. The test
+ * datasource is profiled, so every call handled through the service handler carries the header:
+ *
+ * <pre>
+ * given().get("/students").then().header(SERVER_TIMING_HEADER, runsExactly(2));
+ * </pre>
+ * <p>
+ * Statements that draw IDs from a sequence only run once per allocation block, so calls that insert rows are better
+ * bounded with {@link #runsAtMost(int)}.
+ */
+public final class QueryCount {
+	private static final Pattern STATEMENTS = Pattern.compile(".*desc=\"(\\d+) statements\".*");
+
+	private QueryCount() {
+	}
+
+	public static Matcher<String> runsExactly(int statements) {
+		return runs(equalTo(statements));
+	}
+
+	public static Matcher<String> runsAtMost(int statements) {
+		return runs(lessThanOrEqualTo(statements));
+	}
+
+	public static Matcher<String> runs(Matcher<Integer> statements) {
+		return new FeatureMatcher<>(statements, "Server-Timing header with a statement count of", "statements") {
+			@Override
+			protected Integer featureValueOf(String serverTiming) {
+				final java.util.regex.Matcher matcher = serverTiming == null ? null : STATEMENTS.matcher(serverTiming);
+				return matcher != null && matcher.matches() ? Integer.valueOf(matcher.group(1)) : null;
+			}
+		};
+	}
+}
@@ -0,0 +1,358 @@
+package com.exercise.school.api;
+
+import com.exercise.school.SchoolApplication;
+import com.exercise.school.controller.ServiceHandler;
+import com.exercise.school.database.model.Course;
+import com.exercise.school.database.model.Student;
+import com.exercise.school.database.repository.CourseRepository;
+import com.exercise.school.database.repository.StudentRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.restassured.RestAssured;
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.List;
+import java.util.Set;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.startsWith;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(
+		classes = SchoolApplication.class,
+		webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT
+)
+public class ReactiveCatalogApiTest {
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private StudentRepository studentRepository;
+
+	@Autowired
+	private CourseRepository courseRepository;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	private Course math;
+
+	private Student student1;
+
+	@BeforeEach
+	public void setupAndCleanDatabase() {
+		RestAssured.port = port;
+		RestAssured.requestSpecification = null;
+
+		studentRepository.deleteAll();
+		courseRepository.deleteAll();
+
+		math = new Course();
+		math.setName("Math");
+		courseRepository.save(math);
+
+		Course chemistry = new Course();
+		chemistry.setName("Chemistry");
+		courseRepository.save(chemistry);
+
+		student1 = new Student();
+		student1.setFirstName("First1");
+		student1.setLastName("Last1");
+		student1.setEmailAddress("Email1");
+		student1.setEnrolledCourses(Set.of(math, chemistry));
+		studentRepository.save(student1);
+
+		Student student2 = new Student();
+		student2.setFirstName("First2");
+		student2.setLastName("Last2");
+		student2.setEmailAddress("Email2");
+		student2.setEnrolledCourses(Set.of(math));
+		studentRepository.save(student2);
+
+		Student student3 = new Student();
+		student3.setFirstName("First3");
+		student3.setLastName("Last3");
+		student3.setEmailAddress("Email3");
+		studentRepository.save(student3);
+	}
+
+	private static void assertSameBody(String reactivePath, String servletPath) throws Exception {
+		String reactive = given().get(reactivePath).then().statusCode(200).extract().asString();
+		String servlet = given().get(servletPath).then().statusCode(200).extract().asString();
+		assertThat(OBJECT_MAPPER.readTree(reactive), equalTo(OBJECT_MAPPER.readTree(servlet)));
+	}
+
+	@Nested
+	class given_getStudents {
+		@Nested
+		class when_pageNumberIsGiven {
+			@Test
+			public void should_returnTheServletResponse() throws Exception {
+				assertSameBody("/reactive/students?page=1&size=2", "/students?page=1&size=2");
+			}
+		}
+
+		@Nested
+		class when_cursorIsGiven {
+			@Test
+			public void should_returnTheServletResponse() throws Exception {
+				String cursor = given()
+						.get("/students?size=1")
+						.then()
+						.statusCode(200)
+						.extract()
+						.path("pagination.nextCursor");
+
+				assertSameBody("/reactive/students?size=1&after=" + cursor, "/students?size=1&after=" + cursor);
+			}
+		}
+
+		@Nested
+		class when_cursorIsInvalid {
+			@Test
+			public void should_return400() {
+				given()
+						.get("/reactive/students?after=invalid")
+						.then()
+						.statusCode(400);
+			}
+		}
+
+		@Nested
+		class when_filteredAndCountedLikeTheServletEndpoint {
+			@Test
+			public void should_returnTheServletResponseForStudentsWithNoCourses() throws Exception {
+				assertSameBody("/reactive/students?noCoursesOnly=true", "/students?noCoursesOnly=true");
+			}
+
+			@Test
+			public void should_returnTheServletResponseWithoutTotal() throws Exception {
+				assertSameBody("/reactive/students?size=2&total=none", "/students?size=2&total=none");
+			}
+		}
+
+		@Nested
+		class when_sortedByAnythingButId {
+			@Test
+			public void should_return400() {
+				given()
+						.get("/reactive/students?sort=email")
+						.then()
+						.statusCode(400)
+						.body("message", equalTo("Only sorting by id is supported here"))
+						.body("sort", equalTo("email"));
+			}
+		}
+
+		@Nested
+		class when_anApproximateTotalIsAsked {
+			@Test
+			public void should_return400() {
+				given()
+						.get("/reactive/students?total=approximate")
+						.then()
+						.statusCode(400)
+						.body("message", equalTo("Approximate totals are not supported here"));
+			}
+		}
+	}
+
+	@Nested
+	class given_streamStudents {
+		@Test
+		public void should_streamOneJsonObjectPerStudent() throws Exception {
+			String body = given()
+					.get("/reactive/students/stream")
+					.then()
+					.statusCode(200)
+					.contentType(startsWith("application/x-ndjson"))
+					.extract()
+					.asString();
+
+			List<String> lines = body.lines().toList();
+			assertThat(lines.size(), equalTo(3));
+			assertThat(new JSONObject(lines.get(0)).getString("emailAddress"), equalTo("Email1"));
+			assertThat(new JSONObject(lines.get(2)).getString("emailAddress"), equalTo("Email3"));
+		}
+		@Test
+		public void should_timeTheStreamLikeAnyOtherOperation() {
+			Timer timer = meterRegistry.timer(ServiceHandler.REQUESTS_METRIC,
+					"operation", "catalog_stream_students", "outcome", "2xx", "exception", "none");
+			long streamsBefore = timer.count();
+
+			String body = given().get("/reactive/students/stream")
+					.then()
+					.statusCode(200)
+					.extract()
+					.asString();
+
+			assertThat(body.lines().count(), equalTo(3L));
+			assertThat(timer.count(), equalTo(streamsBefore + 1));
+		}
+	}
+
+	@Nested
+	class given_getStudentById {
+		@Nested
+		class when_studentExists {
+			@Test
+			public void should_returnTheServletResponse() throws Exception {
+				assertSameBody("/reactive/students/" + student1.getId(), "/students/" + student1.getId());
+			}
+		}
+
+		@Nested
+		class when_eTagMatches {
+			@Test
+			public void should_return304() {
+				String eTag = given()
+						.get("/reactive/students/" + student1.getId())
+						.then()
+						.statusCode(200)
+						.header("ETag", notNullValue())
+						.extract()
+						.header("ETag");
+
+				given()
+						.header("If-None-Match", eTag)
+						.get("/reactive/students/" + student1.getId())
+						.then()
+						.statusCode(304);
+			}
+		}
+
+		@Nested
+		class when_studentDoesNotExist {
+			@Test
+			public void should_return404() {
+				given()
+						.get("/reactive/students/" + (student1.getId() + 1000))
+						.then()
+						.statusCode(404);
+			}
+		}
+	}
+
+	@Nested
+	class given_getCourses {
+		@Test
+		public void should_returnTheServletResponse() throws Exception {
+			assertSameBody("/reactive/courses?size=1", "/courses?size=1");
+		}
+
+		@Test
+		public void should_returnTheServletResponseForCoursesWithNoStudents() throws Exception {
+			assertSameBody("/reactive/courses?noStudentsOnly=true", "/courses?noStudentsOnly=true");
+		}
+
+		@Test
+		public void should_sendTheServletETag() {
+			String eTag = given().get("/courses?size=1").then().statusCode(200).extract().header("ETag");
+
+			given()
+					.get("/reactive/courses?size=1")
+					.then()
+					.statusCode(200)
+					.header("ETag", equalTo(eTag));
+		}
+
+		@Test
+		public void should_return304WhenTheETagMatches() {
+			String eTag = given().get("/reactive/courses?size=1").then().statusCode(200).extract().header("ETag");
+
+			given()
+					.header("If-None-Match", eTag)
+					.get("/reactive/courses?size=1")
+					.then()
+					.statusCode(304);
+		}
+
+		@Test
+		public void should_return400ForAnUnknownSortKey() {
+			given()
+					.get("/reactive/courses?sort=size")
+					.then()
+					.statusCode(400)
+					.body("message", equalTo("Unknown sort key"));
+		}
+	}
+
+	@Nested
+	class given_streamCourses {
+		@Test
+		public void should_streamOneJsonObjectPerCourse() {
+			String body = given()
+					.get("/reactive/courses/stream")
+					.then()
+					.statusCode(200)
+					.extract()
+					.asString();
+
+			assertThat(body.lines().count(), equalTo(2L));
+		}
+	}
+
+	@Nested
+	class given_getCourseById {
+		@Test
+		public void should_returnTheServletResponse() throws Exception {
+			assertSameBody("/reactive/courses/" + math.getId(), "/courses/" + math.getId());
+		}
+	}
+
+	@Nested
+	class given_getCourseStudents {
+		@Nested
+		class when_courseExists {
+			@Test
+			public void should_returnTheServletResponse() throws Exception {
+				assertSameBody("/reactive/courses/" + math.getId() + "/students?size=1",
+						"/courses/" + math.getId() + "/students?size=1");
+			}
+		}
+
+		@Nested
+		class when_eTagMatches {
+			@Test
+			public void should_return304() {
+				String eTag = given()
+						.get("/courses/" + math.getId() + "/students")
+						.then()
+						.statusCode(200)
+						.extract()
+						.header("ETag");
+
+				given()
+						.header("If-None-Match", eTag)
+						.get("/reactive/courses/" + math.getId() + "/students")
+						.then()
+						.statusCode(304);
+			}
+		}
+
+		@Nested
+		class when_courseDoesNotExist {
+			@Test
+			public void should_return404() {
+				given()
+						.get("/reactive/courses/" + (math.getId() + 1000) + "/students")
+						.then()
+						.statusCode(404);
+			}
+		}
+	}
+}
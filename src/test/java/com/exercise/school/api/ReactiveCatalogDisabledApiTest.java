@@ -0,0 +1,48 @@
+package com.exercise.school.api;
+
+import com.exercise.school.SchoolApplication;
+import io.restassured.RestAssured;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import static io.restassured.RestAssured.given;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(
+		classes = SchoolApplication.class,
+		webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+		properties = "spring.r2dbc.url="
+)
+public class ReactiveCatalogDisabledApiTest {
+	@LocalServerPort
+	private int port;
+
+	@BeforeEach
+	public void setup() {
+		RestAssured.port = port;
+		RestAssured.requestSpecification = null;
+	}
+
+	/**
+	 * This test runs its own server, so the port is dropped for the next test class.
+	 */
+	@AfterEach
+	public void resetRequestSpecification() {
+		RestAssured.reset();
+	}
+
+	@Nested
+	class given_noReactiveConnection {
+		@Test
+		public void should_serveTheServletEndpointsOnly() {
+			given().get("/students").then().statusCode(200);
+			given().get("/reactive/students").then().statusCode(404);
+		}
+	}
+}
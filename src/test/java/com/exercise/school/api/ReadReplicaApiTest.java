@@ -0,0 +1,202 @@
+package com.exercise.school.api;
+
+import com.exercise.school.SchoolApplication;
+import com.exercise.school.configuration.ApplicationReadReplicaConfig;
+import com.exercise.school.database.model.Student;
+import com.exercise.school.database.repository.CourseRepository;
+import com.exercise.school.database.repository.StudentRepository;
+import com.exercise.school.database.routing.ReadWriteRoutingDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.restassured.RestAssured;
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.http.ContentType;
+import org.flywaydb.core.Flyway;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.List;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(
+		classes = SchoolApplication.class,
+		webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+		properties = {
+				"school.datasource.replicas[0].url=" + ReadReplicaApiTest.REPLICA_URL,
+				"school.datasource.replicas[0].username=sa",
+				"school.datasource.replicas[0].password=sa",
+				"school.datasource.lag-query=SELECT seconds FROM replication_lag",
+				"school.datasource.max-lag=PT5S",
+				// Checked by the tests themselves, so that a check never runs halfway through one
+				"school.datasource.check-interval=PT1H"
+		}
+)
+public class ReadReplicaApiTest {
+	static final String REPLICA_URL = "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1";
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private StudentRepository studentRepository;
+
+	@Autowired
+	private CourseRepository courseRepository;
+
+	@Autowired
+	private ApplicationReadReplicaConfig readReplicaConfig;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	/**
+	 * Stands in for replication: the tests write to the replica directly, so that a read shows where it was served.
+	 */
+	private JdbcTemplate replica;
+
+	private Student primaryStudent;
+
+	@BeforeEach
+	public void setupAndCleanDatabase() {
+		RestAssured.port = port;
+		RestAssured.requestSpecification = new RequestSpecBuilder()
+				.setPort(port)
+				.setContentType(ContentType.JSON)
+				.setAccept(ContentType.JSON)
+				.build();
+
+		studentRepository.deleteAll();
+		courseRepository.deleteAll();
+
+		Flyway.configure()
+				.dataSource(REPLICA_URL, "sa", "sa")
+				.locations("classpath:db/migration/h2")
+				.load()
+				.migrate();
+		replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", "sa"));
+		replica.update("DELETE FROM course_enrollment");
+		replica.update("DELETE FROM student");
+		replica.update("DELETE FROM course");
+		replica.update("CREATE TABLE IF NOT EXISTS replication_lag (seconds BIGINT)");
+		replica.update("DELETE FROM replication_lag");
+		replica.update("INSERT INTO replication_lag VALUES (0)");
+		readReplicaConfig.checkReplicas();
+
+		primaryStudent = new Student();
+		primaryStudent.setFirstName("Primary");
+		primaryStudent.setLastName("Student");
+		primaryStudent.setEmailAddress("primary@mail.com");
+		studentRepository.save(primaryStudent);
+		replica.update("INSERT INTO student (id, email_address, enrolled_courses_count, first_name, last_name) " +
+				"VALUES (1, 'replica@mail.com', 0, 'Replica', 'Student')");
+	}
+
+	/**
+	 * This test runs its own server, and a new request specification keeps the port of the previous one. The port is
+	 * therefore set explicitly above, and the specification dropped so that the next test class starts clean.
+	 */
+	@AfterEach
+	public void resetRequestSpecification() {
+		RestAssured.reset();
+	}
+
+	@Nested
+	class given_replicaInSync {
+		@Test
+		public void should_readFromTheReplica() {
+			given().get("/students")
+					.then()
+					.statusCode(200)
+					.body("content.firstName", equalTo(List.of("Replica")));
+		}
+
+		@Test
+		public void should_writeToThePrimary() throws Exception {
+			JSONObject request = new JSONObject();
+			request.put("firstName", "John");
+			request.put("lastName", "Doe");
+			request.put("emailAddress", "john.doe@mail.com");
+
+			given().body(request.toString())
+					.post("/students")
+					.then()
+					.statusCode(201);
+
+			assertThat(studentRepository.count(), equalTo(2L));
+			assertThat(replica.queryForObject("SELECT COUNT(*) FROM student", Long.class), equalTo(1L));
+		}
+	}
+
+	@Nested
+	class given_replicaLagging {
+		@BeforeEach
+		public void fallBehind() {
+			replica.update("UPDATE replication_lag SET seconds = 60");
+			readReplicaConfig.checkReplicas();
+		}
+
+		@Test
+		public void should_readFromThePrimary() {
+			double fallbacksBefore = meterRegistry.get(ReadWriteRoutingDataSource.FALLBACKS_METRIC).counter().count();
+
+			given().get("/students")
+					.then()
+					.statusCode(200)
+					.body("content.firstName", equalTo(List.of("Primary")));
+
+			assertThat(meterRegistry.get(ReadWriteRoutingDataSource.AVAILABLE_METRIC).gauge().value(), equalTo(0.0));
+			assertThat(meterRegistry.get(ReadWriteRoutingDataSource.FALLBACKS_METRIC).counter().count() > fallbacksBefore,
+					equalTo(true));
+		}
+
+		@Test
+		public void should_readFromTheReplicaOnceItCaughtUp() {
+			replica.update("UPDATE replication_lag SET seconds = 1");
+			readReplicaConfig.checkReplicas();
+
+			given().get("/students")
+					.then()
+					.statusCode(200)
+					.body("content.firstName", equalTo(List.of("Replica")));
+		}
+	}
+
+	@Nested
+	class given_replicaHoldingAnOlderCopy {
+		@BeforeEach
+		public void copyBeforeTheLatestWrite() {
+			replica.update("DELETE FROM student");
+			replica.update("INSERT INTO student (id, email_address, enrolled_courses_count, first_name, last_name) " +
+					"VALUES (?, 'primary@mail.com', 0, 'Stale', 'Student')", primaryStudent.getId());
+		}
+
+		@Test
+		public void should_notCacheWhatTheReplicaReturned() {
+			given().get("/students/" + primaryStudent.getId())
+					.then()
+					.statusCode(200)
+					.body("firstName", equalTo("Stale"));
+
+			replica.update("UPDATE replication_lag SET seconds = 60");
+			readReplicaConfig.checkReplicas();
+
+			given().get("/students/" + primaryStudent.getId())
+					.then()
+					.statusCode(200)
+					.body("firstName", equalTo("Primary"));
+		}
+	}
+}
@@ -0,0 +1,162 @@
+package com.exercise.school.api;
+
+import com.exercise.school.SchoolApplication;
+import com.exercise.school.controller.ServiceHandler;
+import com.exercise.school.database.model.Course;
+import com.exercise.school.database.model.Student;
+import com.exercise.school.database.repository.CourseRepository;
+import com.exercise.school.database.repository.StudentRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.restassured.RestAssured;
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.List;
+import java.util.Set;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.startsWith;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(
+		classes = SchoolApplication.class,
+		webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT
+)
+public class ReportApiTest {
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private StudentRepository studentRepository;
+
+	@Autowired
+	private CourseRepository courseRepository;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	private Course math;
+
+	private Course chemistry;
+
+	@BeforeEach
+	public void setupAndCleanDatabase() {
+		RestAssured.port = port;
+		RestAssured.requestSpecification = null;
+
+		studentRepository.deleteAll();
+		courseRepository.deleteAll();
+
+		math = new Course();
+		math.setName("Math");
+		courseRepository.save(math);
+
+		chemistry = new Course();
+		chemistry.setName("Chemistry, organic");
+		courseRepository.save(chemistry);
+
+		Student student1 = new Student();
+		student1.setFirstName("First1");
+		student1.setLastName("Last1");
+		student1.setEmailAddress("Email1");
+		student1.setEnrolledCourses(Set.of(math, chemistry));
+		studentRepository.save(student1);
+
+		Student student2 = new Student();
+		student2.setFirstName("First2");
+		student2.setLastName("Last2");
+		student2.setEmailAddress("Email2");
+		student2.setEnrolledCourses(Set.of(math));
+		studentRepository.save(student2);
+
+		Student student3 = new Student();
+		student3.setFirstName("First3");
+		student3.setLastName("Last3");
+		student3.setEmailAddress("Email3");
+		studentRepository.save(student3);
+	}
+
+	@Nested
+	class given_exportEnrollments {
+		@Nested
+		class when_formatIsNotSupplied {
+			@Test
+			public void should_streamOneJsonObjectPerEnrollment() throws Exception {
+				String body = given()
+						.get("/reports/enrollments")
+						.then()
+						.statusCode(200)
+						.contentType(startsWith("application/x-ndjson"))
+						.extract()
+						.asString();
+
+				List<String> lines = body.lines().toList();
+				assertThat(lines.size(), equalTo(3));
+
+				JSONObject first = new JSONObject(lines.get(0));
+				assertThat(first.getLong("courseId"), equalTo(math.getId()));
+				assertThat(first.getString("courseName"), equalTo("Math"));
+				assertThat(first.getString("firstName"), equalTo("First1"));
+				assertThat(new JSONObject(lines.get(1)).getString("firstName"), equalTo("First2"));
+				assertThat(new JSONObject(lines.get(2)).getString("courseName"), equalTo("Chemistry, organic"));
+			}
+
+			@Test
+			public void should_timeTheExportLikeAnyOtherOperation() {
+				Timer timer = meterRegistry.timer(ServiceHandler.REQUESTS_METRIC,
+						"operation", "export_enrollments", "outcome", "2xx", "exception", "none");
+				long exportsBefore = timer.count();
+
+				String body = given().get("/reports/enrollments")
+						.then()
+						.statusCode(200)
+						.extract()
+						.asString();
+
+				assertThat(body.lines().count(), equalTo(3L));
+				assertThat(timer.count(), equalTo(exportsBefore + 1));
+			}
+		}
+
+		@Nested
+		class when_formatIsCsv {
+			@Test
+			public void should_streamOneLinePerEnrollmentAfterTheHeader() {
+				String body = given()
+						.get("/reports/enrollments?format=csv")
+						.then()
+						.statusCode(200)
+						.contentType(startsWith("text/csv"))
+						.extract()
+						.asString();
+
+				List<String> lines = body.lines().toList();
+				assertThat(lines.size(), equalTo(4));
+				assertThat(lines.get(0), equalTo("courseId,courseName,studentId,firstName,lastName,emailAddress"));
+				assertThat(lines.get(3), startsWith(chemistry.getId() + ",\"Chemistry, organic\","));
+			}
+		}
+
+		@Nested
+		class when_formatIsUnknown {
+			@Test
+			public void should_return400() {
+				given()
+						.get("/reports/enrollments?format=xml")
+						.then()
+						.statusCode(400)
+						.body("message", equalTo("Unknown format"));
+			}
+		}
+	}
+}
@@ -0,0 +1,186 @@
+package com.exercise.school.api;
+
+import com.exercise.school.SchoolApplication;
+import io.restassured.RestAssured;
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.List;
+import java.util.Map;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+
+/**
+ * Starts the application against a database created by the version before migrations, where Hibernate generated the
+ * schema and handed out every ID from the shared {@code hibernate_sequence}.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(
+		classes = SchoolApplication.class,
+		webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+		properties = {
+				"spring.datasource.url=" + SchemaUpgradeApiTest.URL,
+				"spring.flyway.baseline-on-migrate=true",
+				"spring.flyway.baseline-version=1"
+		}
+)
+@ContextConfiguration(initializers = SchemaUpgradeApiTest.OriginalDatabase.class)
+public class SchemaUpgradeApiTest {
+	static final String URL = "jdbc:h2:mem:original;DB_CLOSE_DELAY=-1";
+
+	private static final long FULL_COURSE_ID = 1;
+	private static final long BUSY_STUDENT_ID = 57;
+	private static final long IMPORTED_STUDENT_ID = 1000;
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	/**
+	 * Creates the schema the way Hibernate did, then fills it the way the application did: six courses, then 51
+	 * students, all numbered by {@code hibernate_sequence}. The first 50 students take every seat of the first course
+	 * and the last one takes the other five courses. One more student was inserted by hand, with an ID the sequence
+	 * never reached.
+	 */
+	static class OriginalDatabase implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+		@Override
+		public void initialize(ConfigurableApplicationContext applicationContext) {
+			final JdbcTemplate original = new JdbcTemplate(new DriverManagerDataSource(URL, "sa", "sa"));
+			original.execute("create sequence hibernate_sequence start with 1 increment by 1");
+			original.execute("create table course (id bigint not null, name varchar(255) not null, primary key (id))");
+			original.execute("create table course_enrollment (student_id bigint not null, course_id bigint not null, " +
+					"primary key (course_id, student_id))");
+			original.execute("create table student (id bigint not null, email_address varchar(255) not null, " +
+					"first_name varchar(255) not null, last_name varchar(255) not null, primary key (id))");
+			original.execute("alter table course_enrollment add constraint FKmdu3eh7r8fvaemtwyps4dtqoh " +
+					"foreign key (course_id) references course");
+			original.execute("alter table course_enrollment add constraint FKc5aniwy1axq8343gtpm50sdlj " +
+					"foreign key (student_id) references student");
+
+			for (int i = 0; i < 6; i++) {
+				original.update("insert into course (id, name) values (next value for hibernate_sequence, ?)", "Course " + i);
+			}
+			for (int i = 0; i < 51; i++) {
+				original.update("insert into student (id, email_address, first_name, last_name) " +
+						"values (next value for hibernate_sequence, ?, ?, ?)", "email" + i, "First" + i, "Last" + i);
+			}
+			original.update("insert into course_enrollment (course_id, student_id) " +
+					"select ?, id from student where id < ?", FULL_COURSE_ID, BUSY_STUDENT_ID);
+			original.update("insert into course_enrollment (course_id, student_id) " +
+					"select id, ? from course where id <> ?", BUSY_STUDENT_ID, FULL_COURSE_ID);
+			original.update("insert into student (id, email_address, first_name, last_name) values (?, ?, ?, ?)",
+					IMPORTED_STUDENT_ID, "imported", "Imported", "Student");
+		}
+	}
+
+	@BeforeEach
+	public void setup() {
+		RestAssured.port = port;
+		RestAssured.requestSpecification = new RequestSpecBuilder()
+				.setPort(port)
+				.setContentType(ContentType.JSON)
+				.setAccept(ContentType.JSON)
+				.build();
+	}
+
+	/**
+	 * This test runs its own server, and a new request specification keeps the port of the previous one. The port is
+	 * therefore set explicitly above, and the specification dropped so that the next test class starts clean.
+	 */
+	@AfterEach
+	public void resetRequestSpecification() {
+		RestAssured.reset();
+	}
+
+	@Nested
+	class given_aDatabaseCreatedBeforeMigrations {
+		@Test
+		public void should_baselineItAndApplyEveryLaterMigration() {
+			List<Map<String, Object>> history = jdbcTemplate.queryForList("SELECT \"version\", \"type\", \"success\" " +
+					"FROM \"flyway_schema_history\" WHERE \"version\" IS NOT NULL ORDER BY \"installed_rank\"");
+
+			assertThat(history.get(0).get("type"), equalTo("BASELINE"));
+			assertThat(history.get(0).get("version"), equalTo("1"));
+			assertThat(history.stream().map(row -> row.get("version")).toList(), equalTo(List.of("1", "2", "3", "4", "5")));
+			assertThat(history.stream().allMatch(row -> Boolean.TRUE.equals(row.get("success"))), equalTo(true));
+		}
+
+		@Test
+		public void should_countTheEnrollmentsMadeBeforeTheUpgrade() {
+			given()
+					.body(Map.of("studentId", IMPORTED_STUDENT_ID))
+					.post("/courses/" + FULL_COURSE_ID + "/enroll")
+					.then()
+					.statusCode(400)
+					.body("message", equalTo("The course is full"));
+
+			long courseId = given()
+					.body(Map.of("name", "New course"))
+					.post("/courses")
+					.then()
+					.statusCode(201)
+					.extract()
+					.<Number>path("id")
+					.longValue();
+			given()
+					.body(Map.of("studentId", BUSY_STUDENT_ID))
+					.post("/courses/" + courseId + "/enroll")
+					.then()
+					.statusCode(400)
+					.body("message", equalTo("Student has exceeded maximum allowed courses"));
+		}
+
+		@Test
+		public void should_handOutIdsPastTheOnesInUse() {
+			long studentId = given()
+					.body(Map.of("firstName", "New", "lastName", "Student", "emailAddress", "new@mail.com"))
+					.post("/students")
+					.then()
+					.statusCode(201)
+					.extract()
+					.<Number>path("id")
+					.longValue();
+			long courseId = given()
+					.body(Map.of("name", "Another course"))
+					.post("/courses")
+					.then()
+					.statusCode(201)
+					.extract()
+					.<Number>path("id")
+					.longValue();
+
+			assertThat(studentId, greaterThan(IMPORTED_STUDENT_ID));
+			assertThat(courseId, greaterThanOrEqualTo(BUSY_STUDENT_ID + 1));
+		}
+
+		@Test
+		public void should_rejectASecondStudentWithTheSameEmailAddress() {
+			given()
+					.body(Map.of("firstName", "Other", "lastName", "Student", "emailAddress", "email0"))
+					.post("/students")
+					.then()
+					.statusCode(400)
+					.body("emailAddress", equalTo("email0"));
+		}
+	}
+}
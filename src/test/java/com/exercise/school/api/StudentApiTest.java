@@ -1,33 +1,53 @@
 package com.exercise.school.api;
 
 import com.exercise.school.SchoolApplication;
+import com.exercise.school.configuration.ApplicationCacheConfig;
 import com.exercise.school.database.model.Course;
 import com.exercise.school.database.model.Student;
 import com.exercise.school.database.repository.CourseRepository;
 import com.exercise.school.database.repository.StudentRepository;
+import com.exercise.school.dto.PageCursor;
+import com.exercise.school.dto.PaginationDto;
+import com.exercise.school.service.ApproximateCountCache;
+import com.github.benmanes.caffeine.cache.Cache;
 import io.restassured.RestAssured;
 import io.restassured.builder.RequestSpecBuilder;
 import io.restassured.http.ContentType;
 import org.hamcrest.Matchers;
 import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.cache.CacheManager;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import static com.exercise.school.api.QueryCount.runsAtMost;
+import static com.exercise.school.api.QueryCount.runsExactly;
+import static com.exercise.school.controller.ServiceHandler.SERVER_TIMING_HEADER;
 import static io.restassured.RestAssured.given;
+import static io.restassured.config.EncoderConfig.encoderConfig;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.reset;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.blankOrNullString;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
 
 @ExtendWith(SpringExtension.class)
@@ -40,16 +60,23 @@ public class StudentApiTest {
 	@LocalServerPort
 	private int port;
 
-	@Autowired
+	@SpyBean
 	private StudentRepository studentRepository;
 
 	@Autowired
 	private CourseRepository courseRepository;
 
+	@Autowired
+	private ApproximateCountCache approximateCountCache;
+
+	@Autowired
+	private CacheManager cacheManager;
+
 	@BeforeEach
 	public void setupAndCleanDatabase() {
 		RestAssured.port = port;
 		RestAssured.requestSpecification = new RequestSpecBuilder()
+				.setPort(port)
 				.setContentType(ContentType.JSON)
 				.setAccept(ContentType.JSON)
 				.build();
@@ -58,6 +85,15 @@ public class StudentApiTest {
 		courseRepository.deleteAll();
 	}
 
+	/**
+	 * This test runs its own server, and a new request specification keeps the port of the previous one. The port is
+	 * therefore set explicitly above, and the specification dropped so that the next test class starts clean.
+	 */
+	@AfterEach
+	public void resetRequestSpecification() {
+		RestAssured.reset();
+	}
+
 	@Nested
 	class given_registerStudent {
 		@Nested
@@ -77,6 +113,7 @@ public class StudentApiTest {
 							.then()
 							.assertThat()
 							.statusCode(201)
+							.header(SERVER_TIMING_HEADER, runsAtMost(3))
 							.body("id", not(blankOrNullString()))
 							.body("firstName", equalTo("John"))
 							.body("lastName", equalTo("Doe"))
@@ -108,6 +145,7 @@ public class StudentApiTest {
 							.then()
 							.assertThat()
 							.statusCode(400)
+							.header(SERVER_TIMING_HEADER, runsExactly(1))
 							.body("message", equalTo("A student with this email has already been registered"));
 
 					List<Student> students = studentRepository.findAll();
@@ -117,6 +155,161 @@ public class StudentApiTest {
 		}
 	}
 
+	@Nested
+	class given_importStudents {
+		@Nested
+		class when_bodyIsCsv {
+			@Test
+			public void should_importValidRowsAndReportRejectedOnes() {
+				Student student = new Student();
+				student.setFirstName("Johnny");
+				student.setLastName("Doe");
+				student.setEmailAddress("john.doe@mail.com");
+				studentRepository.save(student);
+
+				String body = String.join("\n",
+						"firstName,lastName,emailAddress",
+						"Jane,Doe,jane.doe@mail.com",
+						"John,Doe,john.doe@mail.com",
+						"\"Mary, Ann\",Smith,mary.smith@mail.com",
+						"Mary,Smith,mary.smith@mail.com",
+						",Nobody,nobody@mail.com",
+						"Too,Many,fields,here");
+
+				given()
+						.contentType("text/csv")
+						.body(body)
+						.post("/students/import")
+						.then()
+						.assertThat()
+						.statusCode(200)
+						.header(SERVER_TIMING_HEADER, runsAtMost(3))
+						.body("rowsRead", equalTo(6))
+						.body("imported", equalTo(2))
+						.body("rejected", equalTo(4))
+						.body("errors.line", equalTo(List.of(6, 7, 3, 5)))
+						.body("errorsTruncated", equalTo(false));
+
+				assertThat(studentRepository.findAll(), hasSize(3));
+				assertThat(studentRepository.findOneByEmailAddress("mary.smith@mail.com").orElseThrow().getFirstName(),
+						equalTo("Mary, Ann"));
+			}
+		}
+
+		@Nested
+		class when_bodyIsNdjson {
+			@Test
+			public void should_importEachLine() {
+				String body = String.join("\n",
+						"{\"firstName\": \"Jane\", \"lastName\": \"Doe\", \"emailAddress\": \"jane.doe@mail.com\"}",
+						"",
+						"{\"firstName\": \"John\", \"lastName\": \"Doe\", \"emailAddress\": \"john.doe@mail.com\"}",
+						"{not json");
+
+				given()
+						.config(RestAssured.config().encoderConfig(
+								encoderConfig().encodeContentTypeAs("application/x-ndjson", ContentType.TEXT)))
+						.contentType("application/x-ndjson")
+						.body(body)
+						.post("/students/import")
+						.then()
+						.assertThat()
+						.statusCode(200)
+						.header(SERVER_TIMING_HEADER, runsAtMost(3))
+						.body("rowsRead", equalTo(3))
+						.body("imported", equalTo(2))
+						.body("errors[0].line", equalTo(4))
+						.body("errors[0].message", equalTo("Malformed row"));
+
+				assertThat(studentRepository.findAll(), hasSize(2));
+			}
+		}
+
+		@Nested
+		class when_progressIsAskedFor {
+			@Test
+			public void should_streamAProgressLineAfterEveryChunkAndTheResultLast() throws Exception {
+				StringBuilder body = new StringBuilder("firstName,lastName,emailAddress\n");
+				for (int i = 0; i < 1100; i++) {
+					body.append("First").append(i).append(",Last").append(i).append(",email").append(i).append("@mail.com\n");
+				}
+				body.append(",Nobody,nobody@mail.com\n");
+
+				String response = given()
+						.contentType("text/csv")
+						.accept("application/x-ndjson")
+						.body(body.toString())
+						.post("/students/import")
+						.then()
+						.assertThat()
+						.statusCode(200)
+						.contentType(Matchers.startsWith("application/x-ndjson"))
+						.extract()
+						.asString();
+
+				List<JSONObject> lines = new ArrayList<>();
+				for (String line : response.lines().toList()) {
+					lines.add(new JSONObject(line));
+				}
+				assertThat(lines, hasSize(4));
+				assertThat(lines.get(0).getLong("rowsRead"), equalTo(500L));
+				assertThat(lines.get(0).getLong("imported"), equalTo(500L));
+				assertThat(lines.get(1).getLong("imported"), equalTo(1000L));
+				assertThat(lines.get(2).getLong("rowsRead"), equalTo(1101L));
+				assertThat(lines.get(2).getLong("imported"), equalTo(1100L));
+				assertThat(lines.get(2).getLong("rejected"), equalTo(1L));
+				assertThat(lines.get(3).getLong("imported"), equalTo(1100L));
+				assertThat(lines.get(3).getJSONArray("errors").getJSONObject(0).getLong("line"), equalTo(1102L));
+				assertThat(studentRepository.count(), equalTo(1100L));
+			}
+		}
+
+		@Nested
+		class when_aStudentIsRegisteredBetweenTheDuplicateCheckAndTheInsert {
+			/**
+			 * Mocks are only reset on their own after tests of the class that declares them, not of nested classes.
+			 */
+			@AfterEach
+			public void resetRepository() {
+				reset(studentRepository);
+			}
+
+			@Test
+			public void should_rejectOnlyThatRowAndImportTheRest() {
+				Student student = new Student();
+				student.setFirstName("Johnny");
+				student.setLastName("Doe");
+				student.setEmailAddress("john.doe@mail.com");
+				studentRepository.save(student);
+				// As if the registration committed after the import looked the addresses up
+				doReturn(List.of()).when(studentRepository).findEmailAddressesIn(any());
+
+				String body = String.join("\n",
+						"firstName,lastName,emailAddress",
+						"Jane,Doe,jane.doe@mail.com",
+						"John,Doe,john.doe@mail.com",
+						"Mary,Smith,mary.smith@mail.com");
+
+				given()
+						.contentType("text/csv")
+						.body(body)
+						.post("/students/import")
+						.then()
+						.assertThat()
+						.statusCode(200)
+						.body("rowsRead", equalTo(3))
+						.body("imported", equalTo(2))
+						.body("rejected", equalTo(1))
+						.body("errors[0].line", equalTo(3))
+						.body("errors[0].message", equalTo("A student with this email has already been registered"));
+
+				assertThat(studentRepository.findAll(), hasSize(3));
+				assertThat(studentRepository.findOneByEmailAddress("john.doe@mail.com").orElseThrow().getFirstName(),
+						equalTo("Johnny"));
+			}
+		}
+	}
+
 	@Nested
 	class given_listStudents {
 		@Nested
@@ -127,6 +320,7 @@ public class StudentApiTest {
 						.then()
 						.assertThat()
 						.statusCode(200)
+						.header(SERVER_TIMING_HEADER, runsExactly(1))
 						.extract()
 						.path("content");
 
@@ -165,6 +359,7 @@ public class StudentApiTest {
 							.then()
 							.assertThat()
 							.statusCode(200)
+							.header(SERVER_TIMING_HEADER, runsExactly(1))
 							.extract()
 							.path("content");
 
@@ -177,6 +372,113 @@ public class StudentApiTest {
 				}
 			}
 
+			@Nested
+			class andCursorIsSupplied {
+				@Test
+				public void should_returnTheRowsAfterTheCursor() {
+					String nextCursor = given().get("/students?sort=name&size=1")
+							.then()
+							.assertThat()
+							.statusCode(200)
+							.header(SERVER_TIMING_HEADER, runsExactly(2))
+							.body("content.firstName", equalTo(List.of("First1")))
+							.body("pagination.last", equalTo(false))
+							.extract()
+							.path("pagination.nextCursor");
+
+					given().get("/students?sort=name&size=1&after=" + nextCursor)
+							.then()
+							.assertThat()
+							.statusCode(200)
+							.header(SERVER_TIMING_HEADER, runsExactly(1))
+							.body("content.firstName", equalTo(List.of("First2")))
+							.body("pagination.last", equalTo(true))
+							.body("pagination.nextCursor", nullValue())
+							.body("pagination.totalElements", nullValue());
+				}
+
+				@Test
+				public void should_return400WhenTheCursorWasIssuedForAnotherSortKey() {
+					String nextCursor = given().get("/students?sort=name&size=1")
+							.then()
+							.extract()
+							.path("pagination.nextCursor");
+
+					given().get("/students?sort=email&size=1&after=" + nextCursor)
+							.then()
+							.assertThat()
+							.statusCode(400);
+				}
+
+				@Test
+				public void should_return400WhenTheCursorLacksItsSortValue() {
+					String cursor = new PageCursor("name", 5, null).encode();
+
+					given().get("/students?sort=name&size=1&after=" + cursor)
+							.then()
+							.assertThat()
+							.statusCode(400)
+							.body("message", equalTo("Invalid cursor for this sort key"));
+				}
+			}
+
+			@Nested
+			class andTotalIsNotWanted {
+				@Test
+				public void should_leaveTheTotalOut() {
+					given().get("/students?size=1&total=none")
+							.then()
+							.assertThat()
+							.statusCode(200)
+							.header(SERVER_TIMING_HEADER, runsExactly(1))
+							.body("content", hasSize(1))
+							.body("pagination.last", equalTo(false))
+							.body("pagination.totalElements", nullValue());
+				}
+			}
+
+			@Nested
+			class andApproximateTotalIsRequested {
+				@Test
+				public void should_returnTheCachedTotal() {
+					approximateCountCache.refresh();
+
+					given().get("/students?noCoursesOnly=true&total=approximate")
+							.then()
+							.assertThat()
+							.statusCode(200)
+							.header(SERVER_TIMING_HEADER, runsExactly(2))
+							.body("content", hasSize(1))
+							.body("pagination.totalElements", equalTo(1))
+							.body("pagination.totalElementsApproximate", equalTo(true));
+				}
+			}
+
+			@Nested
+			class andUnknownSortKeyIsSupplied {
+				@Test
+				public void should_return400() {
+					given().get("/students?sort=age")
+							.then()
+							.assertThat()
+							.statusCode(400)
+							.header(SERVER_TIMING_HEADER, runsExactly(0))
+							.body("message", equalTo("Unknown sort key"));
+				}
+			}
+
+			@Nested
+			class andPageSizeIsAboveTheLimit {
+				@Test
+				public void should_capThePageSize() {
+					given().get("/students?size=1000000")
+							.then()
+							.assertThat()
+							.statusCode(200)
+							.body("pagination.pageSize", equalTo(PaginationDto.MAX_PAGE_SIZE));
+				}
+			}
+
 			@Nested
 			class andNoCoursesOnlyParameterIsNotSupplied {
 				@Test
@@ -185,6 +487,7 @@ public class StudentApiTest {
 							.then()
 							.assertThat()
 							.statusCode(200)
+							.header(SERVER_TIMING_HEADER, runsExactly(1))
 							.extract()
 							.path("content");
 
@@ -228,6 +531,7 @@ public class StudentApiTest {
 						.get("/students/" + id)
 						.then()
 						.statusCode(200)
+						.header(SERVER_TIMING_HEADER, runsExactly(1))
 						.extract()
 						.as(Student.class);
 
@@ -235,6 +539,54 @@ public class StudentApiTest {
 				assertThat(student.getLastName(), equalTo("Doe"));
 				assertThat(student.getEmailAddress(), equalTo("john.doe@mail.com"));
 			}
+
+			@Test
+			public void should_serveRepeatedLookupsFromTheCacheUntilTheStudentIsUpdated() throws Exception {
+				Student student = new Student();
+				student.setFirstName("First");
+				student.setLastName("Last");
+				student.setEmailAddress("Email");
+				studentRepository.save(student);
+
+				Cache<?, ?> cache = (Cache<?, ?>) cacheManager.getCache(ApplicationCacheConfig.STUDENTS).getNativeCache();
+				long hitsBefore = cache.stats().hitCount();
+
+				given().get("/students/" + student.getId()).then().statusCode(200);
+				given().get("/students/" + student.getId())
+						.then()
+						.statusCode(200)
+						.header(SERVER_TIMING_HEADER, runsExactly(0))
+						.body("firstName", equalTo("First"));
+
+				assertThat(cache.stats().hitCount(), equalTo(hitsBefore + 1));
+
+				JSONObject request = new JSONObject();
+				request.put("firstName", "NewName");
+				request.put("lastName", "Last");
+				request.put("emailAddress", "Email");
+				given().body(request.toString()).put("/students/" + student.getId()).then().statusCode(200);
+
+				given().get("/students/" + student.getId()).then().statusCode(200).body("firstName", equalTo("NewName"));
+			}
+
+			@Test
+			public void should_return304WhenTheClientHoldsTheCurrentVersion() {
+				Student student = new Student();
+				student.setFirstName("First");
+				student.setLastName("Last");
+				student.setEmailAddress("Email");
+				studentRepository.save(student);
+
+				String eTag = given().get("/students/" + student.getId()).then().statusCode(200).extract().header("ETag");
+
+				given()
+						.header("If-None-Match", "\"other\", " + eTag)
+						.get("/students/" + student.getId())
+						.then()
+						.statusCode(304)
+						.header(SERVER_TIMING_HEADER, runsExactly(0))
+						.header("ETag", equalTo(eTag));
+			}
 		}
 
 		@Nested
@@ -244,7 +596,8 @@ public class StudentApiTest {
 				given()
 						.get("/students/901132212")
 						.then()
-						.statusCode(404);
+						.statusCode(404)
+						.header(SERVER_TIMING_HEADER, runsExactly(1));
 			}
 		}
 	}
@@ -268,14 +621,14 @@ public class StudentApiTest {
 
 				long id = student.getId();
 
-				List<Course> courses = List.of(
-						given()
-								.get("/students/" + id + "/courses")
-								.then()
-								.statusCode(200)
-								.extract()
-								.as(Course[].class)
-				);
+				List<Course> courses = given()
+						.get("/students/" + id + "/courses")
+						.then()
+						.statusCode(200)
+						.header(SERVER_TIMING_HEADER, runsExactly(2))
+						.extract()
+						.jsonPath()
+						.getList("content", Course.class);
 
 				assertThat(courses.size(), equalTo(1));
 				assertThat(courses.get(0).getName(), equalTo("Course"));
@@ -289,7 +642,8 @@ public class StudentApiTest {
 				given()
 						.get("/students/901132212/courses")
 						.then()
-						.statusCode(404);
+						.statusCode(404)
+						.header(SERVER_TIMING_HEADER, runsExactly(1));
 			}
 		}
 	}
@@ -318,11 +672,105 @@ public class StudentApiTest {
 						.put("/students/" + id)
 						.then()
 						.statusCode(200)
+						.header(SERVER_TIMING_HEADER, runsExactly(3))
 						.extract()
 						.path("firstName");
 
 				assertThat(updatedName, equalTo("NewName"));
 			}
+
+			@Test
+			public void should_return400WhenTheEmailAddressBelongsToAnotherStudent() throws Exception {
+				Student student = new Student();
+				student.setFirstName("First");
+				student.setLastName("Last");
+				student.setEmailAddress("Email");
+				studentRepository.save(student);
+
+				Student otherStudent = new Student();
+				otherStudent.setFirstName("Other");
+				otherStudent.setLastName("Student");
+				otherStudent.setEmailAddress("OtherEmail");
+				studentRepository.save(otherStudent);
+
+				JSONObject request = new JSONObject();
+				request.put("firstName", "First");
+				request.put("lastName", "Last");
+				request.put("emailAddress", "OtherEmail");
+
+				given()
+						.body(request.toString())
+						.put("/students/" + student.getId())
+						.then()
+						.statusCode(400)
+						.header(SERVER_TIMING_HEADER, runsExactly(2))
+						.body("emailAddress", equalTo("OtherEmail"));
+
+				assertThat(studentRepository.findById(student.getId()).orElseThrow().getEmailAddress(), equalTo("Email"));
+			}
+
+			@Test
+			public void should_updateWhenTheETagIsCurrent() throws Exception {
+				Student student = new Student();
+				student.setFirstName("First");
+				student.setLastName("Last");
+				student.setEmailAddress("Email");
+				studentRepository.save(student);
+
+				String eTag = given().get("/students/" + student.getId()).then().extract().header("ETag");
+
+				JSONObject request = new JSONObject();
+				request.put("firstName", "NewName");
+				request.put("lastName", "Last");
+				request.put("emailAddress", "Email");
+
+				given()
+						.header("If-Match", eTag)
+						.body(request.toString())
+						.put("/students/" + student.getId())
+						.then()
+						.statusCode(200);
+
+				request.put("firstName", "OtherName");
+				given()
+						.header("If-Match", eTag)
+						.body(request.toString())
+						.put("/students/" + student.getId())
+						.then()
+						.statusCode(412);
+
+				assertThat(studentRepository.findById(student.getId()).orElseThrow().getFirstName(), equalTo("NewName"));
+			}
+
+			@Test
+			public void should_applyConcurrentUpdatesOneAfterTheOther() throws Exception {
+				Student student = new Student();
+				student.setFirstName("First");
+				student.setLastName("Last");
+				student.setEmailAddress("Email");
+				studentRepository.save(student);
+
+				// Each attempt that loses a conflict does so to another update committing, so five concurrent updates
+				// all succeed within the five attempts allowed by default
+				ExecutorService executor = Executors.newFixedThreadPool(5);
+				List<Future<Integer>> statusCodes = new ArrayList<>();
+				try {
+					for (int i = 0; i < 5; i++) {
+						String firstName = "Name" + i;
+						statusCodes.add(executor.submit(() -> given()
+								.body(Map.of("firstName", firstName, "lastName", "Last", "emailAddress", "Email"))
+								.put("/students/" + student.getId())
+								.statusCode()));
+					}
+					for (Future<Integer> statusCode : statusCodes) {
+						assertThat(statusCode.get(), equalTo(200));
+					}
+				} finally {
+					executor.shutdown();
+				}
+
+				assertThat(studentRepository.findById(student.getId()).orElseThrow().getFirstName(), Matchers.startsWith("Name"));
+			}
 		}
 
 		@Nested
@@ -338,7 +786,8 @@ public class StudentApiTest {
 						.body(request.toString())
 						.put("/students/901132212")
 						.then()
-						.statusCode(404);
+						.statusCode(404)
+						.header(SERVER_TIMING_HEADER, runsExactly(1));
 			}
 		}
 	}
@@ -360,7 +809,37 @@ public class StudentApiTest {
 				given()
 						.delete("/students/" + id)
 						.then()
+						.statusCode(204)
+						.header(SERVER_TIMING_HEADER, runsExactly(5));
+			}
+
+			@Test
+			public void should_releaseTheSeatsOfEnrolledCourses() throws Exception {
+				Course course = new Course();
+				course.setName("Course");
+				courseRepository.save(course);
+
+				Student student = new Student();
+				student.setFirstName("First");
+				student.setLastName("Last");
+				student.setEmailAddress("Email");
+				studentRepository.save(student);
+
+				JSONObject request = new JSONObject();
+				request.put("studentId", student.getId());
+
+				given()
+						.body(request.toString())
+						.post("/courses/" + course.getId() + "/enroll")
+						.then()
+						.statusCode(201);
+
+				given()
+						.delete("/students/" + student.getId())
+						.then()
 						.statusCode(204);
+
+				assertThat(courseRepository.findById(course.getId()).orElseThrow().getEnrolledStudentsCount(), equalTo(0));
 			}
 		}
 
@@ -371,7 +850,8 @@ public class StudentApiTest {
 				given()
 						.delete("/students/901132212")
 						.then()
-						.statusCode(404);
+						.statusCode(404)
+						.header(SERVER_TIMING_HEADER, runsExactly(1));
 			}
 		}
 	}